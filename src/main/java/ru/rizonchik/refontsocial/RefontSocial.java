@@ -8,9 +8,17 @@ import ru.rizonchik.refontsocial.gui.GuiService;
 import ru.rizonchik.refontsocial.listener.InteractionTracker;
 import ru.rizonchik.refontsocial.listener.SeenListener;
 import ru.rizonchik.refontsocial.placeholder.ReputationExpansion;
+import ru.rizonchik.refontsocial.service.BackupService;
+import ru.rizonchik.refontsocial.service.MaintenanceService;
+import ru.rizonchik.refontsocial.service.RescoreService;
 import ru.rizonchik.refontsocial.service.ReputationService;
+import ru.rizonchik.refontsocial.storage.BackupStorage;
+import ru.rizonchik.refontsocial.storage.MaintenanceStorage;
+import ru.rizonchik.refontsocial.storage.ScoreStorage;
 import ru.rizonchik.refontsocial.storage.Storage;
 import ru.rizonchik.refontsocial.storage.StorageType;
+import ru.rizonchik.refontsocial.storage.log.LogStorage;
+import ru.rizonchik.refontsocial.storage.mapped.MappedStorage;
 import ru.rizonchik.refontsocial.storage.sql.MysqlStorage;
 import ru.rizonchik.refontsocial.storage.sql.SqliteStorage;
 import ru.rizonchik.refontsocial.storage.yaml.YamlStorage;
@@ -22,9 +30,13 @@ import java.util.Locale;
 public final class RefontSocial extends JavaPlugin {
 
     private Storage storage;
+    private StorageType storageType;
     private ReputationService reputationService;
     private GuiService guiService;
     private InteractionTracker interactionTracker;
+    private BackupService backupService;
+    private MaintenanceService maintenanceService;
+    private RescoreService rescoreService;
 
     private SeenListener seenListener;
 
@@ -76,6 +88,21 @@ public final class RefontSocial extends JavaPlugin {
             reputationService = null;
         }
 
+        if (rescoreService != null) {
+            rescoreService.shutdown();
+            rescoreService = null;
+        }
+
+        if (backupService != null) {
+            backupService.shutdown();
+            backupService = null;
+        }
+
+        if (maintenanceService != null) {
+            maintenanceService.shutdown();
+            maintenanceService = null;
+        }
+
         if (storage != null) {
             storage.close();
             storage = null;
@@ -85,35 +112,16 @@ public final class RefontSocial extends JavaPlugin {
     }
 
     public void reloadPlugin() {
+        reloadPlugin(null);
+    }
+
+    // whileClosed runs after the old storage is closed and before the new one is opened
+    public void reloadPlugin(Runnable whileClosed) {
         reloadConfig();
 
         String storageTypeStr = getConfig().getString("storage.type", "SQLITE")
                 .toUpperCase(Locale.ROOT);
 
-        LibraryManager libs = new LibraryManager(this);
-
-        if (storageTypeStr.equals("SQLITE")) {
-            boolean enabled = getConfig().getBoolean("libraries.sqlite.enabled", true);
-            if (enabled) {
-                String gid = getConfig().getString("libraries.sqlite.groupId", "org.xerial");
-                String aid = getConfig().getString("libraries.sqlite.artifactId", "sqlite-jdbc");
-                String ver = getConfig().getString("libraries.sqlite.version", "3.46.0.0");
-                String path = gid.replace('.', '/') + "/" + aid + "/" + ver + "/" + aid + "-" + ver + ".jar";
-                libs.ensureDriverPresent("org.sqlite.JDBC", path, aid + "-" + ver + ".jar");
-            }
-        }
-
-        if (storageTypeStr.equals("MYSQL")) {
-            boolean enabled = getConfig().getBoolean("libraries.mysql.enabled", true);
-            if (enabled) {
-                String gid = getConfig().getString("libraries.mysql.groupId", "com.mysql");
-                String aid = getConfig().getString("libraries.mysql.artifactId", "mysql-connector-j");
-                String ver = getConfig().getString("libraries.mysql.version", "8.0.33");
-                String path = gid.replace('.', '/') + "/" + aid + "/" + ver + "/" + aid + "-" + ver + ".jar";
-                libs.ensureDriverPresent("com.mysql.cj.jdbc.Driver", path, aid + "-" + ver + ".jar");
-            }
-        }
-
         YamlUtil.reloadMessages(this);
         YamlUtil.reloadGui(this);
 
@@ -139,35 +147,61 @@ public final class RefontSocial extends JavaPlugin {
             reputationService = null;
         }
 
+        if (rescoreService != null) {
+            rescoreService.shutdown();
+            rescoreService = null;
+        }
+
+        if (backupService != null) {
+            backupService.shutdown();
+            backupService = null;
+        }
+
+        if (maintenanceService != null) {
+            maintenanceService.shutdown();
+            maintenanceService = null;
+        }
+
         if (storage != null) {
             storage.close();
             storage = null;
         }
 
-        StorageType storageType;
+        if (whileClosed != null) whileClosed.run();
+
         try {
             storageType = StorageType.valueOf(storageTypeStr);
         } catch (Exception e) {
             storageType = StorageType.SQLITE;
         }
 
-        if (storageType == StorageType.MYSQL) {
-            storage = new MysqlStorage(this);
-        } else if (storageType == StorageType.YAML) {
-            storage = new YamlStorage(this);
-        } else {
-            storage = new SqliteStorage(this);
+        storage = createStorage(storageType);
+        storage.init();
+
+        if (storage instanceof BackupStorage) {
+            backupService = new BackupService(this, (BackupStorage) storage);
+            backupService.start();
         }
 
-        storage.init();
+        if (storage instanceof MaintenanceStorage) {
+            maintenanceService = new MaintenanceService(this, (MaintenanceStorage) storage);
+            maintenanceService.start();
+        }
 
         reputationService = new ReputationService(this, storage);
+        reputationService.start();
         guiService = new GuiService(this, reputationService);
 
+        // after the services whose caches it drops when done
+        if (storage instanceof ScoreStorage) {
+            rescoreService = new RescoreService(this, (ScoreStorage) storage);
+            rescoreService.start();
+        }
+
         Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
             for (org.bukkit.entity.Player p : Bukkit.getOnlinePlayers()) {
                 try {
-                    storage.markSeen(p.getUniqueId(), p.getName(), null);
+                    reputationService.markSeen(p.getUniqueId(), p.getName(), null);
                 } catch (Throwable ignored) {
                 }
             }
@@ -196,7 +230,7 @@ public final class RefontSocial extends JavaPlugin {
                     String ipHash = (ip == null) ? null : ru.rizonchik.refontsocial.util.SecurityUtil.sha256(ip + "|" + salt);
 
                     try {
-                        storage.markSeen(p.getUniqueId(), p.getName(), ipHash);
+                        reputationService.markSeen(p.getUniqueId(), p.getName(), ipHash);
                     } catch (Throwable ignored) {
                     }
                 }
@@ -214,10 +248,65 @@ public final class RefontSocial extends JavaPlugin {
         }
     }
 
+    // not initialised; the caller owns init() and close()
+    public Storage createStorage(StorageType type) {
+        ensureDriver(type);
+
+        if (type == StorageType.MYSQL) return new MysqlStorage(this);
+        if (type == StorageType.YAML) return new YamlStorage(this);
+        if (type == StorageType.LOG) return new LogStorage(this);
+        if (type == StorageType.MAPPED) return new MappedStorage(this);
+        return new SqliteStorage(this);
+    }
+
+    private void ensureDriver(StorageType type) {
+        LibraryManager libs = new LibraryManager(this);
+
+        if (type == StorageType.SQLITE) {
+            boolean enabled = getConfig().getBoolean("libraries.sqlite.enabled", true);
+            if (enabled) {
+                String gid = getConfig().getString("libraries.sqlite.groupId", "org.xerial");
+                String aid = getConfig().getString("libraries.sqlite.artifactId", "sqlite-jdbc");
+                String ver = getConfig().getString("libraries.sqlite.version", "3.46.0.0");
+                String path = gid.replace('.', '/') + "/" + aid + "/" + ver + "/" + aid + "-" + ver + ".jar";
+                libs.ensureDriverPresent("org.sqlite.JDBC", path, aid + "-" + ver + ".jar");
+            }
+        }
+
+        if (type == StorageType.MYSQL) {
+            boolean enabled = getConfig().getBoolean("libraries.mysql.enabled", true);
+            if (enabled) {
+                String gid = getConfig().getString("libraries.mysql.groupId", "com.mysql");
+                String aid = getConfig().getString("libraries.mysql.artifactId", "mysql-connector-j");
+                String ver = getConfig().getString("libraries.mysql.version", "8.0.33");
+                String path = gid.replace('.', '/') + "/" + aid + "/" + ver + "/" + aid + "-" + ver + ".jar";
+                libs.ensureDriverPresent("com.mysql.cj.jdbc.Driver", path, aid + "-" + ver + ".jar");
+            }
+        }
+    }
+
     public Storage getStorage() {
         return storage;
     }
 
+    // null when the current storage type has no file-level backups
+    public BackupService getBackupService() {
+        return backupService;
+    }
+
+    // null when the current storage type has no retention jobs
+    public MaintenanceService getMaintenanceService() {
+        return maintenanceService;
+    }
+
+    public RescoreService getRescoreService() {
+        return rescoreService;
+    }
+
+    public StorageType getStorageType() {
+        return storageType;
+    }
+
     public ReputationService getReputationService() {
         return reputationService;
     }
@@ -5,16 +5,34 @@ import org.bukkit.OfflinePlayer;
 import org.bukkit.command.*;
 import org.bukkit.entity.Player;
 import ru.rizonchik.refontsocial.RefontSocial;
+import ru.rizonchik.refontsocial.service.BackupService;
+import ru.rizonchik.refontsocial.service.IpClusterIndex;
+import ru.rizonchik.refontsocial.service.MaintenanceService;
+import ru.rizonchik.refontsocial.service.RescoreService;
+import ru.rizonchik.refontsocial.service.RateLimiter;
+import ru.rizonchik.refontsocial.service.ReputationService;
+import ru.rizonchik.refontsocial.service.RingDetector;
+import ru.rizonchik.refontsocial.storage.BulkStorage;
+import ru.rizonchik.refontsocial.storage.Storage;
+import ru.rizonchik.refontsocial.storage.StorageMigrator;
+import ru.rizonchik.refontsocial.storage.StorageType;
 import ru.rizonchik.refontsocial.storage.TopCategory;
+import ru.rizonchik.refontsocial.storage.dump.DumpFormat;
+import ru.rizonchik.refontsocial.storage.dump.StorageDump;
+import ru.rizonchik.refontsocial.storage.log.LogStorage;
 import ru.rizonchik.refontsocial.util.Colors;
 import ru.rizonchik.refontsocial.util.NumberUtil;
 
+import java.io.File;
+import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public final class ReputationCommand implements CommandExecutor, TabCompleter {
 
     private final RefontSocial plugin;
+    private final AtomicBoolean bulkRunning = new AtomicBoolean(false);
 
     public ReputationCommand(RefontSocial plugin) {
         this.plugin = plugin;
@@ -35,7 +53,14 @@ public final class ReputationCommand implements CommandExecutor, TabCompleter {
         }
 
         if (args.length == 0) {
-            plugin.getReputationService().sendShow(player, player.getUniqueId(), player.getName());
+            ReputationService service = plugin.getReputationService();
+            if (!service.getRateLimiter().tryAcquire(player.getUniqueId(), RateLimiter.Action.SHOW)) {
+                if (!service.sendCachedShow(player, player.getUniqueId(), player.getName())) {
+                    player.sendMessage(Colors.msg(plugin, "rateLimited"));
+                }
+                return true;
+            }
+            service.sendShow(player, player.getUniqueId(), player.getName());
             return true;
         }
 
@@ -56,17 +81,26 @@ public final class ReputationCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
+        if (sub.equals("admin")) {
+            if (!player.hasPermission("refontsocial.admin")) {
+                player.sendMessage(Colors.msg(plugin, "noPermission"));
+                return true;
+            }
+            handleAdmin(player, args);
+            return true;
+        }
+
         if (sub.equals("profile")) {
             if (args.length < 2) {
                 Colors.sendList(player, plugin, "help");
                 return true;
             }
-            OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
-            if (target == null || target.getUniqueId() == null) {
+            UUID target = resolve(args[1]);
+            if (target == null) {
                 player.sendMessage(Colors.msg(plugin, "playerNotFound"));
                 return true;
             }
-            plugin.getGuiService().openProfile(player, target.getUniqueId(), target.getName());
+            plugin.getGuiService().openProfile(player, target, nameOf(target, args[1]));
             return true;
         }
 
@@ -100,37 +134,672 @@ public final class ReputationCommand implements CommandExecutor, TabCompleter {
                 return true;
             }
 
-            OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
-            if (target == null || target.getUniqueId() == null) {
+            UUID target = resolve(args[1]);
+            if (target == null) {
                 player.sendMessage(Colors.msg(plugin, "playerNotFound"));
                 return true;
             }
 
             boolean like = sub.equals("like");
             boolean reasonsEnabled = plugin.getConfig().getBoolean("reasons.enabled", true);
+            String targetName = nameOf(target, args[1]);
 
             if (reasonsEnabled) {
-                plugin.getGuiService().openReasons(player, target.getUniqueId(), target.getName(), like);
+                plugin.getGuiService().openReasons(player, target, targetName, like);
             } else {
-                plugin.getReputationService().vote(player, target.getUniqueId(), target.getName(), like);
+                plugin.getReputationService().vote(player, target, targetName, like);
             }
             return true;
         }
 
-        OfflinePlayer target = Bukkit.getOfflinePlayer(args[0]);
-        if (target == null || target.getUniqueId() == null) {
+        UUID target = resolve(args[0]);
+        if (target == null) {
             player.sendMessage(Colors.msg(plugin, "playerNotFound"));
             return true;
         }
 
-        plugin.getGuiService().openRate(player, target.getUniqueId(), target.getName());
+        plugin.getGuiService().openRate(player, target, nameOf(target, args[0]));
         return true;
     }
 
+    private void handleAdmin(Player player, String[] args) {
+        if (args.length < 2) {
+            Colors.sendList(player, plugin, "adminHelp");
+            return;
+        }
+
+        String action = args[1].toLowerCase(Locale.ROOT);
+
+        if (action.equals("ip")) {
+            if (args.length < 3) {
+                Colors.sendList(player, plugin, "adminHelp");
+                return;
+            }
+            showIpClusters(player, args[2]);
+            return;
+        }
+
+        if (action.equals("metrics")) {
+            Map<String, Long> snapshot = plugin.getReputationService().getMetrics().snapshot();
+            if (snapshot.isEmpty()) {
+                player.sendMessage(Colors.msg(plugin, "adminMetricsEmpty"));
+                return;
+            }
+            for (Map.Entry<String, Long> e : snapshot.entrySet()) {
+                player.sendMessage(Colors.msg(plugin, "adminMetricsEntry",
+                        "%name%", e.getKey(),
+                        "%value%", String.valueOf(e.getValue())
+                ));
+            }
+            return;
+        }
+
+        if (action.equals("rings")) {
+            RingDetector rings = plugin.getReputationService().getRingDetector();
+            if (args.length >= 3 && args[2].equalsIgnoreCase("clear")) {
+                rings.clearFlags();
+                player.sendMessage(Colors.msg(plugin, "adminRingsCleared"));
+                return;
+            }
+            showRings(player, rings);
+            return;
+        }
+
+        if (action.equals("importyaml")) {
+            importYaml(player);
+            return;
+        }
+
+        if (action.equals("rescore")) {
+            rescoreNow(player);
+            return;
+        }
+
+        if (action.equals("cleanup")) {
+            cleanupNow(player);
+            return;
+        }
+
+        if (action.equals("backup")) {
+            backupNow(player);
+            return;
+        }
+
+        if (action.equals("restore")) {
+            restoreBackup(player, args.length >= 3 ? args[2] : null);
+            return;
+        }
+
+        if (action.equals("export")) {
+            exportDump(player, args.length >= 3 ? args[2] : null);
+            return;
+        }
+
+        if (action.equals("import")) {
+            if (args.length < 3) {
+                player.sendMessage(Colors.msg(plugin, "adminDumpImportUsage"));
+                return;
+            }
+            importDump(player, args[2]);
+            return;
+        }
+
+        if (action.equals("migrate")) {
+            if (args.length < 4) {
+                player.sendMessage(Colors.msg(plugin, "adminMigrateUsage"));
+                return;
+            }
+            migrate(player, args[2], args[3]);
+            return;
+        }
+
+        Colors.sendList(player, plugin, "adminHelp");
+    }
+
+    private void importYaml(Player player) {
+        if (!(plugin.getStorage() instanceof LogStorage)) {
+            player.sendMessage(Colors.msg(plugin, "adminImportWrongType"));
+            return;
+        }
+
+        File source = new File(plugin.getDataFolder(), "data.yml");
+        if (!source.exists()) {
+            player.sendMessage(Colors.msg(plugin, "adminImportNoFile"));
+            return;
+        }
+
+        LogStorage storage = (LogStorage) plugin.getStorage();
+        player.sendMessage(Colors.msg(plugin, "adminImportStarted"));
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            int imported;
+            try {
+                imported = storage.importYaml(source);
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("data.yml import failed: " + e.getMessage());
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminImportFailed", "%error%", String.valueOf(e.getMessage())));
+                });
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                // caches and indexes were built from the old state
+                plugin.reloadPlugin();
+                if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminImportDone", "%players%", String.valueOf(imported)));
+            });
+        });
+    }
+
+    private void migrate(Player player, String fromArg, String toArg) {
+        StorageType from = parseStorageType(fromArg);
+        StorageType to = parseStorageType(toArg);
+        if (from == null || to == null) {
+            player.sendMessage(Colors.msg(plugin, "adminMigrateUsage"));
+            return;
+        }
+        if (from == to) {
+            player.sendMessage(Colors.msg(plugin, "adminMigrateSame"));
+            return;
+        }
+        if (!bulkRunning.compareAndSet(false, true)) {
+            player.sendMessage(Colors.msg(plugin, "adminBulkRunning"));
+            return;
+        }
+
+        StorageType active = plugin.getStorageType();
+        Storage activeStorage = plugin.getStorage();
+        File checkpoint = new File(plugin.getDataFolder(), "migrate-" + from.name().toLowerCase(Locale.ROOT)
+                + "-" + to.name().toLowerCase(Locale.ROOT) + ".yml");
+        int chunkSize = plugin.getConfig().getInt("migration.chunkSize", 500);
+
+        player.sendMessage(Colors.msg(plugin, checkpoint.exists() ? "adminMigrateResumed" : "adminMigrateStarted",
+                "%from%", from.name(),
+                "%to%", to.name()
+        ));
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            Storage source = null;
+            Storage target = null;
+            long started = System.currentTimeMillis();
+            try {
+                // the active backend is used as is, the other side is opened just for the copy
+                source = from == active ? activeStorage : plugin.createStorage(from);
+                if (source != activeStorage) source.init();
+                target = to == active ? activeStorage : plugin.createStorage(to);
+                if (target != activeStorage) target.init();
+
+                if (!(source instanceof BulkStorage) || !(target instanceof BulkStorage)) {
+                    throw new IllegalStateException("storage does not support bulk copy");
+                }
+
+                StorageMigrator migrator = new StorageMigrator((BulkStorage) source, (BulkStorage) target, checkpoint, chunkSize);
+                long rows = migrator.run(progressTo(player, "adminMigrateProgress"));
+
+                long seconds = (System.currentTimeMillis() - started) / 1000L;
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    // caches and indexes were built before the copy
+                    if (to == active) plugin.reloadPlugin();
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminMigrateDone",
+                            "%rows%", String.valueOf(rows),
+                            "%seconds%", String.valueOf(seconds)
+                    ));
+                });
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Migration " + from + " -> " + to + " failed: " + e.getMessage());
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminMigrateFailed", "%error%", String.valueOf(e.getMessage())));
+                });
+            } finally {
+                if (source != null && source != activeStorage) source.close();
+                if (target != null && target != activeStorage) target.close();
+                bulkRunning.set(false);
+            }
+        });
+    }
+
+    private void exportDump(Player player, String formatArg) {
+        DumpFormat format;
+        try {
+            format = DumpFormat.valueOf((formatArg != null ? formatArg : plugin.getConfig().getString("dump.format", "NDJSON"))
+                    .toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            player.sendMessage(Colors.msg(plugin, "adminDumpExportUsage"));
+            return;
+        }
+        if (!(plugin.getStorage() instanceof BulkStorage)) {
+            player.sendMessage(Colors.msg(plugin, "adminDumpUnsupported"));
+            return;
+        }
+        if (!bulkRunning.compareAndSet(false, true)) {
+            player.sendMessage(Colors.msg(plugin, "adminBulkRunning"));
+            return;
+        }
+
+        BulkStorage storage = (BulkStorage) plugin.getStorage();
+        int fetchSize = plugin.getConfig().getInt("dump.fetchSize", 1000);
+        String name = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File dir = new File(new File(plugin.getDataFolder(), "exports"), name);
+
+        player.sendMessage(Colors.msg(plugin, "adminDumpExportStarted", "%name%", name, "%format%", format.name().toLowerCase(Locale.ROOT)));
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            long started = System.currentTimeMillis();
+            try {
+                if (!dir.isDirectory() && !dir.mkdirs()) throw new IllegalStateException("cannot create " + dir);
+
+                long rows = 0;
+                long bytes = 0;
+                for (BulkStorage.Table table : BulkStorage.Table.values()) {
+                    File file = new File(dir, StorageDump.fileName(table, format));
+                    rows += StorageDump.export(storage, table, format, file, fetchSize, progressTo(player, "adminDumpProgress"));
+                    bytes += file.length();
+                }
+
+                long totalRows = rows;
+                long kb = bytes / 1024L;
+                long seconds = (System.currentTimeMillis() - started) / 1000L;
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminDumpExportDone",
+                            "%name%", name,
+                            "%rows%", String.valueOf(totalRows),
+                            "%kb%", String.valueOf(kb),
+                            "%seconds%", String.valueOf(seconds)
+                    ));
+                });
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Data export failed: " + e.getMessage());
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminDumpFailed", "%error%", String.valueOf(e.getMessage())));
+                });
+            } finally {
+                bulkRunning.set(false);
+            }
+        });
+    }
+
+    private void importDump(Player player, String name) {
+        File dir = new File(new File(plugin.getDataFolder(), "exports"), name);
+        if (name.contains("..") || !dir.isDirectory()) {
+            player.sendMessage(Colors.msg(plugin, "adminDumpImportNoDir", "%name%", name));
+            return;
+        }
+        if (!(plugin.getStorage() instanceof BulkStorage)) {
+            player.sendMessage(Colors.msg(plugin, "adminDumpUnsupported"));
+            return;
+        }
+        if (!bulkRunning.compareAndSet(false, true)) {
+            player.sendMessage(Colors.msg(plugin, "adminBulkRunning"));
+            return;
+        }
+
+        BulkStorage storage = (BulkStorage) plugin.getStorage();
+        int batchSize = plugin.getConfig().getInt("dump.batchSize", 1000);
+
+        player.sendMessage(Colors.msg(plugin, "adminDumpImportStarted", "%name%", name));
+
+        double defaultScore = NumberUtil.defaultScore(plugin);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            long started = System.currentTimeMillis();
+            try {
+                long rows = 0;
+                for (BulkStorage.Table table : BulkStorage.Table.values()) {
+                    for (DumpFormat format : DumpFormat.values()) {
+                        File file = new File(dir, StorageDump.fileName(table, format));
+                        if (!file.isFile()) continue;
+                        rows += StorageDump.load(storage, table, format, file, batchSize, defaultScore,
+                                progressTo(player, "adminDumpProgress"));
+                        break;
+                    }
+                }
+
+                long totalRows = rows;
+                long seconds = (System.currentTimeMillis() - started) / 1000L;
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    // caches and indexes were built before the import
+                    plugin.reloadPlugin();
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminDumpImportDone",
+                            "%rows%", String.valueOf(totalRows),
+                            "%seconds%", String.valueOf(seconds)
+                    ));
+                });
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Import of " + name + " failed: " + e.getMessage());
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminDumpFailed", "%error%", String.valueOf(e.getMessage())));
+                });
+            } finally {
+                bulkRunning.set(false);
+            }
+        });
+    }
+
+    private void rescoreNow(Player player) {
+        RescoreService rescore = plugin.getRescoreService();
+        if (rescore == null || rescore.isRunning()) {
+            player.sendMessage(Colors.msg(plugin, "adminRescoreRunning"));
+            return;
+        }
+
+        player.sendMessage(Colors.msg(plugin, "adminRescoreStarted"));
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            RescoreService.Result result;
+            try {
+                result = rescore.runNow();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Score recompute failed: " + e.getMessage());
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminRescoreFailed", "%error%", String.valueOf(e.getMessage())));
+                });
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline()) return;
+                if (result == null) {
+                    player.sendMessage(Colors.msg(plugin, "adminRescoreRunning"));
+                    return;
+                }
+                player.sendMessage(Colors.msg(plugin, "adminRescoreDone",
+                        "%players%", String.valueOf(result.players),
+                        "%ms%", String.valueOf(result.millis)
+                ));
+            });
+        });
+    }
+
+    private void cleanupNow(Player player) {
+        MaintenanceService maintenance = plugin.getMaintenanceService();
+        if (maintenance == null) {
+            player.sendMessage(Colors.msg(plugin, "adminCleanupUnsupported"));
+            return;
+        }
+
+        player.sendMessage(Colors.msg(plugin, "adminCleanupStarted"));
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            MaintenanceService.Report report;
+            try {
+                report = maintenance.runNow();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Data cleanup aborted: " + e.getMessage());
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminCleanupFailed", "%error%", String.valueOf(e.getMessage())));
+                });
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline()) return;
+                if (report == null) {
+                    player.sendMessage(Colors.msg(plugin, "adminCleanupRunning"));
+                    return;
+                }
+                player.sendMessage(Colors.msg(plugin, "adminCleanupDone",
+                        "%log%", String.valueOf(report.voteLogRemoved),
+                        "%players%", String.valueOf(report.playersRemoved),
+                        "%tags%", String.valueOf(report.tagsRemoved),
+                        "%ms%", String.valueOf(report.millis)
+                ));
+            });
+        });
+    }
+
+    private void backupNow(Player player) {
+        BackupService backups = plugin.getBackupService();
+        if (backups == null) {
+            player.sendMessage(Colors.msg(plugin, "adminBackupUnsupported"));
+            return;
+        }
+        if (backups.isRunning()) {
+            player.sendMessage(Colors.msg(plugin, "adminBackupRunning"));
+            return;
+        }
+
+        player.sendMessage(Colors.msg(plugin, "adminBackupStarted"));
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            BackupService.Result result;
+            try {
+                result = backups.backupNow();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Backup failed: " + e.getMessage());
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminBackupFailed", "%error%", String.valueOf(e.getMessage())));
+                });
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline()) return;
+                if (result == null) {
+                    player.sendMessage(Colors.msg(plugin, "adminBackupRunning"));
+                    return;
+                }
+                player.sendMessage(Colors.msg(plugin, "adminBackupDone",
+                        "%file%", result.file.getName(),
+                        "%kb%", String.valueOf(result.bytes / 1024L),
+                        "%ms%", String.valueOf(result.millis)
+                ));
+            });
+        });
+    }
+
+    private void restoreBackup(Player player, String name) {
+        BackupService backups = plugin.getBackupService();
+        if (backups == null) {
+            player.sendMessage(Colors.msg(plugin, "adminBackupUnsupported"));
+            return;
+        }
+
+        if (name == null) {
+            List<File> files = backups.list();
+            if (files.isEmpty()) {
+                player.sendMessage(Colors.msg(plugin, "adminRestoreEmpty"));
+                return;
+            }
+            player.sendMessage(Colors.msg(plugin, "adminRestoreHeader"));
+            for (File f : files) {
+                player.sendMessage(Colors.msg(plugin, "adminRestoreEntry",
+                        "%file%", f.getName(),
+                        "%kb%", String.valueOf(f.length() / 1024L)
+                ));
+            }
+            return;
+        }
+
+        File backup = backups.find(name);
+        if (backup == null) {
+            player.sendMessage(Colors.msg(plugin, "adminRestoreNotFound", "%file%", name));
+            return;
+        }
+        if (backups.isRunning()) {
+            player.sendMessage(Colors.msg(plugin, "adminBackupRunning"));
+            return;
+        }
+        if (!bulkRunning.compareAndSet(false, true)) {
+            player.sendMessage(Colors.msg(plugin, "adminBulkRunning"));
+            return;
+        }
+
+        player.sendMessage(Colors.msg(plugin, "adminRestoreVerifying", "%file%", name));
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                backups.verify(backup);
+            } catch (RuntimeException e) {
+                bulkRunning.set(false);
+                Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) player.sendMessage(Colors.msg(plugin, "adminRestoreInvalid", "%error%", String.valueOf(e.getMessage())));
+                });
+                return;
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                String[] error = new String[1];
+                try {
+                    plugin.reloadPlugin(() -> {
+                        try {
+                            backups.swapIn(backup);
+                        } catch (RuntimeException e) {
+                            // the old file stays in place and is opened again
+                            error[0] = String.valueOf(e.getMessage());
+                            plugin.getLogger().warning("Restore of " + name + " failed: " + error[0]);
+                        }
+                    });
+                } finally {
+                    bulkRunning.set(false);
+                }
+
+                if (!player.isOnline()) return;
+                if (error[0] != null) player.sendMessage(Colors.msg(plugin, "adminRestoreFailed", "%error%", error[0]));
+                else player.sendMessage(Colors.msg(plugin, "adminRestoreDone", "%file%", name));
+            });
+        });
+    }
+
+    // called from the worker thread; the message itself is sent on the main thread
+    private BulkStorage.Progress progressTo(Player player, String key) {
+        return (table, done, total, rate) -> Bukkit.getScheduler().runTask(plugin, () -> {
+            if (player.isOnline()) player.sendMessage(Colors.msg(plugin, key,
+                    "%table%", table.name().toLowerCase(Locale.ROOT),
+                    "%done%", String.valueOf(done),
+                    "%total%", String.valueOf(total),
+                    "%rate%", String.valueOf(rate)
+            ));
+        });
+    }
+
+    private static StorageType parseStorageType(String raw) {
+        try {
+            return StorageType.valueOf(raw.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void showIpClusters(Player player, String query) {
+        IpClusterIndex index = plugin.getReputationService().getIpIndex();
+
+        Set<String> hashes;
+        if (!index.cluster(query).isEmpty()) {
+            hashes = Collections.singleton(query);
+        } else if (query.length() >= 8 && !index.findHashes(query).isEmpty()) {
+            hashes = index.findHashes(query);
+        } else {
+            UUID target = resolve(query);
+            hashes = target == null ? Collections.emptySet() : index.hashesOf(target);
+        }
+
+        if (hashes.isEmpty()) {
+            player.sendMessage(Colors.msg(plugin, "adminIpNone", "%query%", query));
+            return;
+        }
+
+        final Set<String> hashesFinal = hashes;
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            List<String> lines = new ArrayList<>();
+            for (String hash : hashesFinal) {
+                Set<UUID> cluster = index.cluster(hash);
+                List<String> names = new ArrayList<>();
+                for (UUID uuid : cluster) names.add(displayName(uuid));
+                Collections.sort(names, String.CASE_INSENSITIVE_ORDER);
+
+                lines.add(Colors.msg(plugin, "adminIpCluster",
+                        "%hash%", hash.length() > 12 ? hash.substring(0, 12) : hash,
+                        "%count%", String.valueOf(cluster.size()),
+                        "%players%", String.join(", ", names)
+                ));
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline()) return;
+                for (String line : lines) player.sendMessage(line);
+            });
+        });
+    }
+
+    private void showRings(Player player, RingDetector rings) {
+        if (!rings.isEnabled()) {
+            player.sendMessage(Colors.msg(plugin, "adminRingsDisabled"));
+            return;
+        }
+
+        List<RingDetector.Cluster> clusters = rings.getClusters();
+        List<RingDetector.Burst> bursts = rings.getBursts();
+
+        if (clusters.isEmpty() && bursts.isEmpty()) {
+            player.sendMessage(Colors.msg(plugin, "adminRingsEmpty"));
+            return;
+        }
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            long now = System.currentTimeMillis();
+            List<String> lines = new ArrayList<>();
+
+            for (RingDetector.Cluster c : clusters) {
+                List<String> names = new ArrayList<>();
+                for (UUID uuid : c.members) names.add(displayName(uuid));
+                Collections.sort(names, String.CASE_INSENSITIVE_ORDER);
+
+                lines.add(Colors.msg(plugin, "adminRingsCluster",
+                        "%id%", String.valueOf(c.id),
+                        "%size%", String.valueOf(c.members.size()),
+                        "%minutes%", String.valueOf((now - c.lastSeen) / 60000L),
+                        "%players%", String.join(", ", names)
+                ));
+            }
+
+            for (RingDetector.Burst b : bursts) {
+                lines.add(Colors.msg(plugin, "adminRingsBurst",
+                        "%target%", displayName(b.target),
+                        "%likes%", String.valueOf(b.likes),
+                        "%seconds%", String.valueOf(b.spanMillis / 1000L),
+                        "%minutes%", String.valueOf((now - b.time) / 60000L)
+                ));
+            }
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline()) return;
+                for (String line : lines) player.sendMessage(line);
+            });
+        });
+    }
+
+    // online players, then the name index, then the server's own profile cache; never a network lookup
+    private UUID resolve(String name) {
+        Player online = Bukkit.getPlayerExact(name);
+        if (online != null) return online.getUniqueId();
+
+        UUID indexed = plugin.getReputationService().getNameIndex().find(name);
+        if (indexed != null) return indexed;
+
+        try {
+            OfflinePlayer cached = Bukkit.getOfflinePlayerIfCached(name);
+            if (cached != null) return cached.getUniqueId();
+        } catch (Throwable ignored) {
+        }
+        return null;
+    }
+
+    private String nameOf(UUID uuid, String typed) {
+        Player online = Bukkit.getPlayer(uuid);
+        if (online != null) return online.getName();
+
+        String name = plugin.getReputationService().getNameIndex().get(uuid);
+        return name != null ? name : typed;
+    }
+
+    private String displayName(UUID uuid) {
+        String name = plugin.getReputationService().getName(uuid);
+        return name != null ? name : uuid.toString().substring(0, 8);
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
-            List<String> base = Arrays.asList("help", "top", "like", "dislike", "profile", "reload");
+            List<String> base = Arrays.asList("help", "top", "like", "dislike", "profile", "reload", "admin");
             String p = args[0].toLowerCase(Locale.ROOT);
             return base.stream().filter(s -> s.startsWith(p)).collect(Collectors.toList());
         }
@@ -139,10 +808,58 @@ public final class ReputationCommand implements CommandExecutor, TabCompleter {
                 || args[0].equalsIgnoreCase("dislike")
                 || args[0].equalsIgnoreCase("profile"))) {
             String prefix = args[1].toLowerCase(Locale.ROOT);
-            return Bukkit.getOnlinePlayers().stream()
+            Set<String> out = new LinkedHashSet<>();
+            Bukkit.getOnlinePlayers().stream()
                     .map(Player::getName)
                     .filter(n -> n.toLowerCase(Locale.ROOT).startsWith(prefix))
                     .limit(30)
+                    .forEach(out::add);
+
+            for (String name : plugin.getReputationService().getNameIndex().complete(prefix, 30)) {
+                if (out.size() >= 30) break;
+                out.add(name);
+            }
+            return new ArrayList<>(out);
+        }
+
+        if (args.length == 2 && args[0].equalsIgnoreCase("admin") && sender.hasPermission("refontsocial.admin")) {
+            String p = args[1].toLowerCase(Locale.ROOT);
+            return Arrays.asList("ip", "rings", "metrics", "importyaml", "migrate", "export", "import", "backup", "restore", "cleanup", "rescore").stream()
+                    .filter(s -> s.startsWith(p))
+                    .collect(Collectors.toList());
+        }
+
+        if (args.length == 3 && args[0].equalsIgnoreCase("admin") && sender.hasPermission("refontsocial.admin")) {
+            String p = args[2].toLowerCase(Locale.ROOT);
+            if (args[1].equalsIgnoreCase("export")) {
+                return Arrays.asList("ndjson", "csv").stream()
+                        .filter(s -> s.startsWith(p))
+                        .collect(Collectors.toList());
+            }
+            if (args[1].equalsIgnoreCase("restore")) {
+                BackupService backups = plugin.getBackupService();
+                if (backups == null) return Collections.emptyList();
+                return backups.list().stream()
+                        .map(File::getName)
+                        .filter(s -> s.toLowerCase(Locale.ROOT).startsWith(p))
+                        .collect(Collectors.toList());
+            }
+            if (args[1].equalsIgnoreCase("import")) {
+                String[] names = new File(plugin.getDataFolder(), "exports").list();
+                if (names == null) return Collections.emptyList();
+                return Arrays.stream(names)
+                        .filter(s -> s.toLowerCase(Locale.ROOT).startsWith(p))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+
+        if ((args.length == 3 || args.length == 4) && args[0].equalsIgnoreCase("admin")
+                && args[1].equalsIgnoreCase("migrate") && sender.hasPermission("refontsocial.admin")) {
+            String p = args[args.length - 1].toLowerCase(Locale.ROOT);
+            return Arrays.stream(StorageType.values())
+                    .map(t -> t.name().toLowerCase(Locale.ROOT))
+                    .filter(s -> s.startsWith(p))
                     .collect(Collectors.toList());
         }
 
@@ -4,7 +4,6 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -22,13 +21,20 @@ import xyz.overdyn.dyngui.items.ItemWrapper;
 import xyz.overdyn.dyngui.policy.GuiPolicy;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public final class CategoryTopGui extends AbstractGuiLayer {
+public final class CategoryTopGui extends AbstractGuiLayer implements LiveGui {
 
     private final RefontSocial plugin;
     private final ReputationService service;
     private final TopCategory category;
     private final int page;
+    private int limit;
+
+    private final ItemStack[] placed = new ItemStack[45];
+    private volatile TopPageCache.Page shown;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile boolean dirty;
 
     public CategoryTopGui(RefontSocial plugin, ReputationService service, TopCategory category, int page) {
         super(54, Component.text("empty title"), GuiPolicy.Factories.HIGHEST);
@@ -53,6 +59,27 @@ public final class CategoryTopGui extends AbstractGuiLayer {
         ItemStack filler = ItemUtil.fromGui(plugin, "filler");
         registerItem(new GuiItem(filler).addSlots(Arrays.asList(46, 47, 48, 19, 50, 51, 52)));
 
+        registerItem(new GuiItem(ItemUtil.fromGui(plugin, "back")).addSlot(getInventory().getSize() - 9));
+        registerItem(new GuiItem(ItemUtil.fromGui(plugin, "next")).addSlot(getInventory().getSize() - 1));
+
+        int pageSize = plugin.getConfig().getInt("gui.categoryTop.pageSize", 45);
+        if (pageSize < 1) pageSize = 45;
+
+        final int limit = pageSize;
+        this.limit = limit;
+        TopPageCache topPages = plugin.getGuiService().getTopPages();
+
+        TopPageCache.Page warm = topPages.peek("category", category, page, limit);
+        if (warm != null) {
+            shown = warm;
+            ItemStack[] heads = warm.items();
+            place(heads);
+
+            openGui(player);
+            prefetch(player, limit, heads.length >= limit);
+            return;
+        }
+
         registerItem(
             new GuiItem(
                 ItemWrapper.builder(Material.PAPER)
@@ -61,56 +88,114 @@ public final class CategoryTopGui extends AbstractGuiLayer {
             ).addSlot(22)
         );
 
-        registerItem(new GuiItem(ItemUtil.fromGui(plugin, "back")).addSlot(getInventory().getSize() - 9));
-        registerItem(new GuiItem(ItemUtil.fromGui(plugin, "next")).addSlot(getInventory().getSize() - 1));
-
         openGui(player);
 
         scheduler.runTaskAsync(() -> {
-            int pageSize = plugin.getConfig().getInt("gui.categoryTop.pageSize", 45);
-            if (pageSize < 1) pageSize = 45;
+            TopPageCache.Page loaded = topPages.get("category", category, page, limit, () -> render(page, limit));
+            ItemStack[] heads = loaded.items();
+
+            scheduler.runTask(() -> {
+                // closed or replaced by another page meanwhile: leave its prefetch alone
+                if (!isShownTo(player)) return;
 
-            int offset = (page - 1) * pageSize;
-            List<PlayerRep> top = plugin.getStorage().getTop(category, pageSize, offset);
+                shown = loaded;
+                place(heads);
+                prefetch(player, limit, heads.length >= limit);
+            });
+        });
+    }
+
+    @Override
+    public boolean isAffectedBy(PlayerRep rep) {
+        TopPageCache.Page current = shown;
+        return current != null && plugin.getGuiService().getTopPages().affects(current, rep);
+    }
+
+    @Override
+    public void refresh(Player viewer) {
+        if (!refreshing.compareAndSet(false, true)) {
+            dirty = true;
+            return;
+        }
+        dirty = false;
+
+        scheduler.runTaskAsync(() -> {
+            TopPageCache.Page loaded;
+            try {
+                loaded = plugin.getGuiService().getTopPages().get("category", category, page, limit, () -> render(page, limit));
+            } catch (RuntimeException e) {
+                refreshing.set(false);
+                throw e;
+            }
+            ItemStack[] heads = loaded.items();
 
             scheduler.runTask(() -> {
-                for (int i = 0; i < top.size() && i < 45; i++) {
-                    PlayerRep rep = top.get(i);
-
-                    ItemStack head = new ItemStack(Material.PLAYER_HEAD);
-                    SkullMeta sm = (SkullMeta) head.getItemMeta();
-
-                    String name = rep.getName();
-                    if (name == null) name = service.getName(rep.getUuid());
-                    if (name == null) {
-                        OfflinePlayer off = Bukkit.getOfflinePlayer(rep.getUuid());
-                        name = off != null ? off.getName() : null;
-                    }
-                    if (name == null) name = rep.getUuid().toString().substring(0, 8);
-
-                    sm.setDisplayName("§f#" + (offset + i + 1) + " §7— §f" + name);
-
-                    List<String> lore = new ArrayList<>();
-                    lore.add("§7Рейтинг: §f" + NumberUtil.formatScore(plugin, rep.getScore()));
-                    lore.add("§7Лайки: §a" + rep.getLikes() + " §7/ Дизлайки: §c" + rep.getDislikes());
-                    lore.add("§7Голосов: §f" + rep.getVotes());
-                    lore.add("");
-                    lore.add("§eНажми: открыть профиль");
-                    sm.setLore(lore);
-
-                    try {
-                        OfflinePlayer off = Bukkit.getOfflinePlayer(rep.getUuid());
-                        sm.setOwningPlayer(off);
-                    } catch (Throwable ignored) {
-                    }
-
-                    head.setItemMeta(sm);
-                    registerItem(new GuiItem(head).addSlot(i));
-                }
+                refreshing.set(false);
+                if (!isShownTo(viewer)) return;
+
+                shown = loaded;
+                place(heads);
+
+                if (dirty) refresh(viewer);
             });
         });
     }
 
+    // registers only slots whose head differs from what this GUI already shows
+    private boolean isShownTo(Player player) {
+        if (!player.isOnline()) return false;
+        if (player.getOpenInventory() == null) return false;
+        return getInventory().equals(player.getOpenInventory().getTopInventory());
+    }
+
+    private void place(ItemStack[] heads) {
+        for (int i = 0; i < 45; i++) {
+            ItemStack want = i < heads.length ? heads[i] : null;
+            ItemStack current = placed[i];
+            if (current == null ? want == null : current.equals(want)) continue;
+
+            placed[i] = want;
+            if (want != null) {
+                registerItem(new GuiItem(want).addSlot(i));
+            } else {
+                getInventory().setItem(i, null);
+            }
+        }
+    }
+
+    private void prefetch(Player player, int limit, boolean hasNext) {
+        plugin.getGuiService().prefetchTop(player, "category", category, page, limit, hasNext, p -> render(p, limit));
+    }
+
+    private TopPageCache.Page render(int page, int limit) {
+        int offset = (page - 1) * limit;
+        List<PlayerRep> top = service.withNames(plugin.getStorage().getTop(category, limit, offset));
+
+        ItemStack[] rendered = new ItemStack[Math.min(top.size(), 45)];
+        for (int i = 0; i < rendered.length; i++) {
+            rendered[i] = head(top.get(i), offset + i + 1);
+        }
+        return new TopPageCache.Page(category, top, rendered);
+    }
+
+    private ItemStack head(PlayerRep rep, int place) {
+        ItemStack head = plugin.getGuiService().getHeads().get(rep.getUuid(), rep.getName());
+        SkullMeta sm = (SkullMeta) head.getItemMeta();
+
+        sm.setDisplayName("§f#" + place + " §7— §f" + rep.getName());
+
+        List<String> lore = new ArrayList<>();
+        lore.add("§7Рейтинг: §f" + NumberUtil.formatScore(plugin, rep.getScore()));
+        lore.add("§7Лайки: §a" + rep.getLikes() + " §7/ Дизлайки: §c" + rep.getDislikes());
+        lore.add("§7Голосов: §f" + rep.getVotes());
+        lore.add("");
+        lore.add("§eНажми: открыть профиль");
+        sm.setLore(lore);
+
+        head.setItemMeta(sm);
+        return head;
+    }
+
     @Override
     public void onClick(Player player, int rawSlot, ItemStack clicked) {
         if (rawSlot == inventory.getSize() - 9) {
@@ -6,13 +6,21 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import ru.rizonchik.refontsocial.RefontSocial;
+import ru.rizonchik.refontsocial.service.RateLimiter;
 import ru.rizonchik.refontsocial.service.ReputationService;
 import ru.rizonchik.refontsocial.storage.TopCategory;
+import ru.rizonchik.refontsocial.storage.model.PlayerRep;
+import ru.rizonchik.refontsocial.util.Colors;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
 
 public final class GuiService implements Listener {
 
@@ -20,10 +28,95 @@ public final class GuiService implements Listener {
     private final ReputationService service;
 
     private final Map<UUID, AbstractGui> open = new ConcurrentHashMap<>();
+    private final HeadCache heads;
+    private final TopPageCache topPages;
+    private final Map<UUID, AtomicBoolean> prefetches = new ConcurrentHashMap<>();
+    private final boolean prefetchEnabled;
+
+    private final boolean liveUpdates;
+    private final Map<UUID, PlayerRep> pendingChanges = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
 
     public GuiService(RefontSocial plugin, ReputationService service) {
         this.plugin = plugin;
         this.service = service;
+        this.heads = new HeadCache(plugin);
+        this.topPages = new TopPageCache(plugin, service.getMetrics());
+        this.prefetchEnabled = plugin.getConfig().getBoolean("performance.topCache.prefetch", true);
+
+        this.liveUpdates = plugin.getConfig().getBoolean("performance.liveUpdates", true);
+
+        service.addRepListener(topPages::onRepChanged);
+        service.addRepListener(this::onRepChanged);
+    }
+
+    public HeadCache getHeads() {
+        return heads;
+    }
+
+    public TopPageCache getTopPages() {
+        return topPages;
+    }
+
+    public void prefetchTop(Player player, String view, TopCategory category, int page, int pageSize,
+                            boolean hasNext, IntFunction<TopPageCache.Page> render) {
+        if (!prefetchEnabled) return;
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicBoolean previous = prefetches.put(player.getUniqueId(), cancelled);
+        if (previous != null) previous.set(true);
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                int[] adjacent = {hasNext ? page + 1 : 0, page - 1};
+                for (int p : adjacent) {
+                    if (cancelled.get()) {
+                        service.getMetrics().increment("top.prefetch.cancelled");
+                        return;
+                    }
+                    if (p < 1) continue;
+                    topPages.prefetch(view, category, p, pageSize, () -> render.apply(p));
+                }
+            } finally {
+                prefetches.remove(player.getUniqueId(), cancelled);
+            }
+        });
+    }
+
+    private void onRepChanged(PlayerRep rep) {
+        if (!liveUpdates) return;
+
+        pendingChanges.put(rep.getUuid(), rep);
+        if (flushScheduled.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTask(plugin, this::flushChanges);
+        }
+    }
+
+    // runs at most once per tick no matter how many votes landed since the last one
+    private void flushChanges() {
+        flushScheduled.set(false);
+        if (pendingChanges.isEmpty()) return;
+
+        List<PlayerRep> changes = new ArrayList<>(pendingChanges.values());
+        for (PlayerRep rep : changes) pendingChanges.remove(rep.getUuid(), rep);
+
+        for (Map.Entry<UUID, AbstractGui> e : open.entrySet()) {
+            if (!(e.getValue() instanceof LiveGui)) continue;
+
+            LiveGui gui = (LiveGui) e.getValue();
+            for (PlayerRep rep : changes) {
+                if (!gui.isAffectedBy(rep)) continue;
+
+                Player viewer = Bukkit.getPlayer(e.getKey());
+                if (viewer != null && viewer.isOnline()) gui.refresh(viewer);
+                break;
+            }
+        }
+    }
+
+    private void cancelPrefetch(UUID uuid) {
+        AtomicBoolean cancelled = prefetches.remove(uuid);
+        if (cancelled != null) cancelled.set(true);
     }
 
     public void openTop(Player player, int page) {
@@ -31,29 +124,45 @@ public final class GuiService implements Listener {
     }
 
     public void openCategoryTop(Player player, TopCategory category, int page) {
+        if (!allow(player, RateLimiter.Action.TOP, null, null)) return;
+
         AbstractGui gui = new CategoryTopGui(plugin, service, category, page);
         open.put(player.getUniqueId(), gui);
         gui.open(player);
     }
 
     public void openRate(Player player, UUID target, String targetName) {
+        if (!allow(player, RateLimiter.Action.RATE, target, targetName)) return;
+
         AbstractGui gui = new RateGui(plugin, service, target, targetName);
         open.put(player.getUniqueId(), gui);
         gui.open(player);
     }
 
     public void openProfile(Player player, UUID target, String targetName) {
+        if (!allow(player, RateLimiter.Action.PROFILE, target, targetName)) return;
+
         AbstractGui gui = new ProfileGui(plugin, service, target, targetName);
         open.put(player.getUniqueId(), gui);
         gui.open(player);
     }
 
     public void openReasons(Player player, UUID target, String targetName, boolean like) {
+        if (!allow(player, RateLimiter.Action.REASONS, target, targetName)) return;
+
         AbstractGui gui = new ReasonsGui(plugin, service, target, targetName, like);
         open.put(player.getUniqueId(), gui);
         gui.open(player);
     }
 
+    private boolean allow(Player player, RateLimiter.Action action, UUID target, String targetName) {
+        if (service.getRateLimiter().tryAcquire(player.getUniqueId(), action)) return true;
+
+        if (target != null && service.sendCachedShow(player, target, targetName)) return false;
+        player.sendMessage(Colors.msg(plugin, "rateLimited"));
+        return false;
+    }
+
     @EventHandler
     public void onClick(InventoryClickEvent e) {
         if (!(e.getWhoClicked() instanceof Player)) return;
@@ -79,10 +188,18 @@ public final class GuiService implements Listener {
 
         if (e.getInventory() != null && e.getInventory().equals(gui.getInventory())) {
             open.remove(player.getUniqueId());
+            cancelPrefetch(player.getUniqueId());
             gui.onClose(player);
         }
     }
 
+    @EventHandler
+    public void onQuit(PlayerQuitEvent e) {
+        open.remove(e.getPlayer().getUniqueId());
+        cancelPrefetch(e.getPlayer().getUniqueId());
+        service.getRateLimiter().forget(e.getPlayer().getUniqueId());
+    }
+
     public void shutdown() {
         for (UUID uuid : open.keySet()) {
             Player p = Bukkit.getPlayer(uuid);
@@ -91,5 +208,9 @@ public final class GuiService implements Listener {
             }
         }
         open.clear();
+        pendingChanges.clear();
+        for (UUID uuid : prefetches.keySet()) cancelPrefetch(uuid);
+        heads.shutdown();
+        topPages.clear();
     }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package ru.rizonchik.refontsocial.gui;
+
+import com.destroystokyo.paper.profile.PlayerProfile;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class HeadCache {
+
+    private final JavaPlugin plugin;
+    private final int maxSize;
+    private final boolean completeTextures;
+
+    private final LinkedHashMap<UUID, ItemStack> heads;
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+
+    public HeadCache(JavaPlugin plugin) {
+        this.plugin = plugin;
+        this.maxSize = Math.max(16, plugin.getConfig().getInt("performance.headCache.maxSize", 1000));
+        this.completeTextures = plugin.getConfig().getBoolean("performance.headCache.completeTextures", true);
+
+        final int cap = maxSize;
+        this.heads = new LinkedHashMap<UUID, ItemStack>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, ItemStack> eldest) {
+                return size() > cap;
+            }
+        };
+    }
+
+    public ItemStack get(UUID uuid, String name) {
+        ItemStack cached;
+        synchronized (this) {
+            cached = heads.get(uuid);
+        }
+        if (cached != null) return cached.clone();
+
+        ItemStack head = create(uuid, name, false);
+        synchronized (this) {
+            heads.putIfAbsent(uuid, head);
+        }
+
+        if (completeTextures) complete(uuid, name);
+        return head.clone();
+    }
+
+    public synchronized void invalidate(UUID uuid) {
+        heads.remove(uuid);
+    }
+
+    public synchronized int size() {
+        return heads.size();
+    }
+
+    public void shutdown() {
+        closed = true;
+        synchronized (this) {
+            heads.clear();
+        }
+        pending.clear();
+    }
+
+    private void complete(UUID uuid, String name) {
+        if (closed || !pending.add(uuid)) return;
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                ItemStack head = create(uuid, name, true);
+                if (closed) return;
+                synchronized (this) {
+                    heads.put(uuid, head);
+                }
+            } finally {
+                pending.remove(uuid);
+            }
+        });
+    }
+
+    private ItemStack create(UUID uuid, String name, boolean completeProfile) {
+        ItemStack head = new ItemStack(Material.PLAYER_HEAD);
+        SkullMeta meta = (SkullMeta) head.getItemMeta();
+        if (meta == null) return head;
+
+        try {
+            PlayerProfile profile = Bukkit.createProfile(uuid, name);
+            // blocking lookup against the session server, only ever called off the main thread
+            if (completeProfile && !profile.isComplete()) profile.complete(true);
+            meta.setPlayerProfile(profile);
+        } catch (Throwable t) {
+            try {
+                meta.setOwningPlayer(Bukkit.getOfflinePlayer(uuid));
+            } catch (Throwable ignored) {
+            }
+        }
+
+        head.setItemMeta(meta);
+        return head;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.rizonchik.refontsocial.gui;
+
+import org.bukkit.entity.Player;
+import ru.rizonchik.refontsocial.storage.model.PlayerRep;
+
+public interface LiveGui {
+
+    boolean isAffectedBy(PlayerRep rep);
+
+    // reloads in the background and updates only the slots that changed
+    void refresh(Player viewer);
+}
@@ -2,7 +2,6 @@ package ru.rizonchik.refontsocial.gui;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -10,6 +9,7 @@ import org.bukkit.inventory.meta.SkullMeta;
 import ru.rizonchik.refontsocial.RefontSocial;
 import ru.rizonchik.refontsocial.service.ReputationService;
 import ru.rizonchik.refontsocial.storage.model.PlayerRep;
+import ru.rizonchik.refontsocial.storage.model.ProfileData;
 import ru.rizonchik.refontsocial.storage.model.VoteLogEntry;
 import ru.rizonchik.refontsocial.util.ItemUtil;
 import ru.rizonchik.refontsocial.util.NumberUtil;
@@ -17,14 +17,18 @@ import xyz.overdyn.dyngui.abstracts.AbstractGuiLayer;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public final class ProfileGui extends AbstractGuiLayer {
+public final class ProfileGui extends AbstractGuiLayer implements LiveGui {
 
     private final RefontSocial plugin;
     private final ReputationService service;
     private final UUID target;
     private final String targetName;
 
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile boolean dirty;
+
     public ProfileGui(RefontSocial plugin, ReputationService service, UUID target, String targetName) {
         this.plugin = plugin;
         this.service = service;
@@ -56,121 +60,142 @@ public final class ProfileGui extends AbstractGuiLayer {
 
         viewer.openInventory(inventory);
 
-        final Player viewerFinal = viewer;
+        refresh(viewer);
+    }
+
+    @Override
+    public boolean isAffectedBy(PlayerRep rep) {
+        return target.equals(rep.getUuid());
+    }
+
+    @Override
+    public void refresh(Player viewer) {
+        if (!refreshing.compareAndSet(false, true)) {
+            dirty = true;
+            return;
+        }
+        dirty = false;
 
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            PlayerRep rep = service.getOrCreate(target, targetName);
-            int rank = plugin.getStorage().getRank(target);
-            String rankStr = (rank > 0)
-                    ? String.valueOf(rank)
-                    : plugin.getConfig().getString("placeholders.notFound", "не найден");
-
-            int tagLimit = plugin.getConfig().getInt("profile.topTags.limit", 3);
-            if (tagLimit < 1) tagLimit = 3;
-
-            Map<String, Integer> topTags = plugin.getStorage().getTopTags(target, tagLimit);
-
-            boolean historyEnabled = plugin.getConfig().getBoolean("profile.history.enabled", true);
-            int limit = plugin.getConfig().getInt("profile.history.limit", 10);
-            if (limit < 1) limit = 10;
-
-            boolean includeVoter = service.shouldShowVoterName(viewerFinal);
-            List<VoteLogEntry> history = historyEnabled
-                    ? plugin.getStorage().getRecentVotes(target, limit, includeVoter)
-                    : Collections.emptyList();
-
-            final int limitFinal = limit;
-            final boolean includeVoterFinal = includeVoter;
-            final boolean historyEnabledFinal = historyEnabled;
-            final PlayerRep repFinal = rep;
-            final String rankStrFinal = rankStr;
-            final Map<String, Integer> topTagsFinal = topTags;
-            final List<VoteLogEntry> historyFinal = history;
+            ItemStack[] content;
+            try {
+                content = build(viewer);
+            } catch (RuntimeException e) {
+                refreshing.set(false);
+                throw e;
+            }
 
             Bukkit.getScheduler().runTask(plugin, () -> {
-                if (!viewerFinal.isOnline()) return;
-                if (viewerFinal.getOpenInventory() == null) return;
-                if (viewerFinal.getOpenInventory().getTopInventory() == null) return;
-                if (!viewerFinal.getOpenInventory().getTopInventory().equals(inventory)) return;
-
-                for (int i = 0; i < 45; i++) inventory.setItem(i, null);
-
-                ItemStack head = new ItemStack(Material.PLAYER_HEAD);
-                SkullMeta sm = (SkullMeta) head.getItemMeta();
-                if (sm != null) {
-                    sm.setDisplayName("§f" + targetName);
-
-                    List<String> lore = new ArrayList<>();
-                    lore.add("§7Рейтинг: §f" + NumberUtil.formatScore(plugin, repFinal.getScore()) + " §7(место: §f" + rankStrFinal + "§7)");
-                    lore.add("§7Лайки: §a" + repFinal.getLikes() + " §7/ Дизлайки: §c" + repFinal.getDislikes());
-                    lore.add("§7Голосов: §f" + repFinal.getVotes());
-                    lore.add("");
-                    lore.add("§7Теги:");
-
-                    if (topTagsFinal.isEmpty()) {
-                        lore.add("§8• §7нет");
-                    } else {
-                        for (Map.Entry<String, Integer> e : topTagsFinal.entrySet()) {
-                            String key = e.getKey();
-                            int cnt = e.getValue();
-                            String display = plugin.getConfig().getString("reasons.tags." + key, key);
-                            lore.add("§8• §f" + display + " §8x§7" + cnt);
-                        }
-                    }
+                refreshing.set(false);
 
-                    sm.setLore(lore);
+                if (!viewer.isOnline()) return;
+                if (viewer.getOpenInventory() == null) return;
+                if (viewer.getOpenInventory().getTopInventory() == null) return;
+                if (!viewer.getOpenInventory().getTopInventory().equals(inventory)) return;
 
-                    try {
-                        OfflinePlayer off = Bukkit.getOfflinePlayer(target);
-                        sm.setOwningPlayer(off);
-                    } catch (Throwable ignored) {
-                    }
+                for (int i = 0; i < content.length; i++) {
+                    ItemStack current = inventory.getItem(i);
+                    if (current == null ? content[i] == null : current.equals(content[i])) continue;
+                    inventory.setItem(i, content[i]);
+                }
+
+                if (dirty) refresh(viewer);
+            });
+        });
+    }
 
-                    head.setItemMeta(sm);
+    private ItemStack[] build(Player viewer) {
+        int tagLimit = plugin.getConfig().getInt("profile.topTags.limit", 3);
+        if (tagLimit < 1) tagLimit = 3;
+
+        boolean historyEnabled = plugin.getConfig().getBoolean("profile.history.enabled", true);
+        int limit = plugin.getConfig().getInt("profile.history.limit", 10);
+        if (limit < 1) limit = 10;
+
+        boolean includeVoter = service.shouldShowVoterName(viewer);
+        ProfileData profile = service.getProfile(target, tagLimit, historyEnabled ? limit : 0, includeVoter);
+
+        PlayerRep rep = profile.getRep();
+        int rank = profile.getRank();
+        String rankStr = (rank > 0)
+                ? String.valueOf(rank)
+                : plugin.getConfig().getString("placeholders.notFound", "не найден");
+
+        Map<String, Integer> topTags = profile.getTopTags();
+        List<VoteLogEntry> history = profile.getHistory();
+
+        ItemStack[] content = new ItemStack[Math.min(45, inventory.getSize())];
+
+        ItemStack head = plugin.getGuiService().getHeads().get(target, targetName);
+        SkullMeta sm = (SkullMeta) head.getItemMeta();
+        if (sm != null) {
+            sm.setDisplayName("§f" + targetName);
+
+            List<String> lore = new ArrayList<>();
+            lore.add("§7Рейтинг: §f" + NumberUtil.formatScore(plugin, rep.getScore()) + " §7(место: §f" + rankStr + "§7)");
+            lore.add("§7Лайки: §a" + rep.getLikes() + " §7/ Дизлайки: §c" + rep.getDislikes());
+            lore.add("§7Голосов: §f" + rep.getVotes());
+            lore.add("");
+            lore.add("§7Теги:");
+
+            if (topTags.isEmpty()) {
+                lore.add("§8• §7нет");
+            } else {
+                for (Map.Entry<String, Integer> e : topTags.entrySet()) {
+                    String key = e.getKey();
+                    int cnt = e.getValue();
+                    String display = plugin.getConfig().getString("reasons.tags." + key, key);
+                    lore.add("§8• §f" + display + " §8x§7" + cnt);
                 }
+            }
 
-                inventory.setItem(13, head);
+            sm.setLore(lore);
 
-                if (historyEnabledFinal) {
-                    ItemStack book = new ItemStack(Material.BOOK);
-                    ItemMeta bm = book.getItemMeta();
-                    if (bm != null) {
-                        bm.setDisplayName("§fИстория оценок");
-                        List<String> lore = new ArrayList<>();
-                        lore.add("§7Последние " + limitFinal + " событий:");
-                        lore.add("");
+            head.setItemMeta(sm);
+        }
 
-                        SimpleDateFormat df = new SimpleDateFormat("dd.MM HH:mm");
-                        if (historyFinal.isEmpty()) {
-                            lore.add("§8• §7пусто");
+        if (content.length > 13) content[13] = head;
+
+        if (historyEnabled && content.length > 31) {
+            ItemStack book = new ItemStack(Material.BOOK);
+            ItemMeta bm = book.getItemMeta();
+            if (bm != null) {
+                bm.setDisplayName("§fИстория оценок");
+                List<String> lore = new ArrayList<>();
+                lore.add("§7Последние " + limit + " событий:");
+                lore.add("");
+
+                SimpleDateFormat df = new SimpleDateFormat("dd.MM HH:mm");
+                if (history.isEmpty()) {
+                    lore.add("§8• §7пусто");
+                } else {
+                    for (VoteLogEntry e : history) {
+                        String when = df.format(new Date(e.getTimeMillis()));
+                        String sign = (e.getValue() == 1 ? "§a+§7" : "§c-§7");
+
+                        String reason = e.getReason();
+                        if (reason != null && !reason.trim().isEmpty()) {
+                            reason = plugin.getConfig().getString("reasons.tags." + reason, reason);
                         } else {
-                            for (VoteLogEntry e : historyFinal) {
-                                String when = df.format(new Date(e.getTimeMillis()));
-                                String sign = (e.getValue() == 1 ? "§a+§7" : "§c-§7");
-
-                                String reason = e.getReason();
-                                if (reason != null && !reason.trim().isEmpty()) {
-                                    reason = plugin.getConfig().getString("reasons.tags." + reason, reason);
-                                } else {
-                                    reason = "без причины";
-                                }
-
-                                if (includeVoterFinal && e.getVoterName() != null && !e.getVoterName().trim().isEmpty()) {
-                                    lore.add("§8• §7" + when + " " + sign + " §f" + e.getVoterName() + " §8— §f" + reason);
-                                } else {
-                                    lore.add("§8• §7" + when + " " + sign + " §8— §f" + reason);
-                                }
-                            }
+                            reason = "без причины";
                         }
 
-                        bm.setLore(lore);
-                        book.setItemMeta(bm);
+                        if (includeVoter && e.getVoterName() != null && !e.getVoterName().trim().isEmpty()) {
+                            lore.add("§8• §7" + when + " " + sign + " §f" + e.getVoterName() + " §8— §f" + reason);
+                        } else {
+                            lore.add("§8• §7" + when + " " + sign + " §8— §f" + reason);
+                        }
                     }
-
-                    inventory.setItem(31, book);
                 }
-            });
-        });
+
+                bm.setLore(lore);
+                book.setItemMeta(bm);
+            }
+
+            content[31] = book;
+        }
+
+        return content;
     }
 
     @Override
@@ -37,25 +37,48 @@ public final class RateGui extends AbstractGuiLayer {
 
         inventory = Bukkit.createInventory(null, size, title);
 
-        PlayerRep rep = service.getOrCreate(target, targetName);
+        PlayerRep cached = service.getCached(target);
+        fill(cached);
+
+        player.openInventory(inventory);
+
+        if (cached != null) return;
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            PlayerRep rep = service.getOrCreate(target, targetName);
+
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline()) return;
+                if (player.getOpenInventory() == null) return;
+                if (!inventory.equals(player.getOpenInventory().getTopInventory())) return;
+
+                fill(rep);
+            });
+        });
+    }
+
+    // rep == null renders the loading state; the vote buttons work either way
+    private void fill(PlayerRep rep) {
+        String score = rep != null ? NumberUtil.formatScore(plugin, rep.getScore()) : "...";
+        String likes = rep != null ? String.valueOf(rep.getLikes()) : "...";
+        String dislikes = rep != null ? String.valueOf(rep.getDislikes()) : "...";
+        String votes = rep != null ? String.valueOf(rep.getVotes()) : "...";
 
         ItemStack like = ItemUtil.fromGui(plugin, "like",
-                "%score%", NumberUtil.formatScore(plugin, rep.getScore()));
+                "%score%", score);
         ItemStack dislike = ItemUtil.fromGui(plugin, "dislike",
-                "%score%", NumberUtil.formatScore(plugin, rep.getScore()));
+                "%score%", score);
         ItemStack info = ItemUtil.fromGui(plugin, "info",
                 "%target%", targetName,
-                "%score%", NumberUtil.formatScore(plugin, rep.getScore()),
-                "%likes%", String.valueOf(rep.getLikes()),
-                "%dislikes%", String.valueOf(rep.getDislikes()),
-                "%votes%", String.valueOf(rep.getVotes())
+                "%score%", score,
+                "%likes%", likes,
+                "%dislikes%", dislikes,
+                "%votes%", votes
         );
 
         inventory.setItem(11, like);
         inventory.setItem(15, dislike);
         inventory.setItem(13, info);
-
-        player.openInventory(inventory);
     }
 
     @Override
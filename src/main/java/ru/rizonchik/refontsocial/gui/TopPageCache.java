@@ -0,0 +1,236 @@
+package ru.rizonchik.refontsocial.gui;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.java.JavaPlugin;
+import ru.rizonchik.refontsocial.service.Metrics;
+import ru.rizonchik.refontsocial.storage.TopCategory;
+import ru.rizonchik.refontsocial.storage.model.PlayerRep;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+public final class TopPageCache {
+
+    public static final class Page {
+        private final TopCategory category;
+        private final ItemStack[] items;
+        private final Map<UUID, Double> keys = new HashMap<>();
+        private final double minKey;
+        private final double maxKey;
+
+        public Page(TopCategory category, List<PlayerRep> reps, ItemStack[] items) {
+            this.category = category;
+            this.items = items;
+
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (PlayerRep rep : reps) {
+                double k = key(category, rep);
+                keys.put(rep.getUuid(), k);
+                min = Math.min(min, k);
+                max = Math.max(max, k);
+            }
+            this.minKey = min;
+            this.maxKey = max;
+        }
+
+        public ItemStack[] items() {
+            ItemStack[] out = new ItemStack[items.length];
+            for (int i = 0; i < items.length; i++) {
+                out[i] = items[i] != null ? items[i].clone() : null;
+            }
+            return out;
+        }
+    }
+
+    private static final class Key {
+        private final String view;
+        private final TopCategory category;
+        private final int page;
+        private final int pageSize;
+
+        private Key(String view, TopCategory category, int page, int pageSize) {
+            this.view = view;
+            this.category = category;
+            this.page = page;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return page == k.page && pageSize == k.pageSize && category == k.category && view.equals(k.view);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(view, category, page, pageSize);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<Page> future = new CompletableFuture<>();
+        private final long created = System.currentTimeMillis();
+        private final AtomicBoolean prefetched = new AtomicBoolean();
+    }
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final int maxPages;
+
+    private final Map<Key, Entry> pages = new ConcurrentHashMap<>();
+    private final Metrics metrics;
+
+    public TopPageCache(JavaPlugin plugin, Metrics metrics) {
+        this.metrics = metrics;
+        this.enabled = plugin.getConfig().getBoolean("performance.topCache.enabled", true);
+        this.ttlMillis = Math.max(1L, plugin.getConfig().getLong("performance.topCache.ttlSeconds", 10L)) * 1000L;
+        this.maxPages = Math.max(4, plugin.getConfig().getInt("performance.topCache.maxPages", 200));
+    }
+
+    // blocks while another thread renders the same page; call off the main thread only
+    public Page get(String view, TopCategory category, int page, int pageSize, Supplier<Page> loader) {
+        return load(new Key(view, category, page, pageSize), loader, false);
+    }
+
+    public boolean prefetch(String view, TopCategory category, int page, int pageSize, Supplier<Page> loader) {
+        if (!enabled) return false;
+
+        Key key = new Key(view, category, page, pageSize);
+        Entry entry = pages.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.created <= ttlMillis) return false;
+
+        metrics.increment("top.prefetch.issued");
+        try {
+            load(key, loader, true);
+        } catch (RuntimeException e) {
+            metrics.increment("top.prefetch.failed");
+        }
+        return true;
+    }
+
+    public Page peek(String view, TopCategory category, int page, int pageSize) {
+        if (!enabled) return null;
+
+        Entry entry = pages.get(new Key(view, category, page, pageSize));
+        if (entry == null || System.currentTimeMillis() - entry.created > ttlMillis) return null;
+
+        Page cached = done(entry);
+        if (cached != null) served(entry);
+        return cached;
+    }
+
+    private Page load(Key key, Supplier<Page> loader, boolean prefetch) {
+        if (!enabled) return loader.get();
+
+        long now = System.currentTimeMillis();
+
+        Entry mine = new Entry();
+        if (prefetch) mine.prefetched.set(true);
+
+        Entry entry = pages.compute(key, (k, old) -> {
+            if (old == null) return mine;
+            if (now - old.created > ttlMillis) return mine;
+            if (old.future.isCompletedExceptionally()) return mine;
+            return old;
+        });
+
+        if (entry != mine) {
+            Page page = entry.future.join();
+            if (!prefetch) served(entry);
+            return page;
+        }
+
+        if (pages.size() > maxPages) prune(now);
+
+        try {
+            Page loaded = loader.get();
+            mine.future.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            pages.remove(key, mine);
+            mine.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void served(Entry entry) {
+        if (entry.prefetched.compareAndSet(true, false)) metrics.increment("top.prefetch.hit");
+    }
+
+    public void onRepChanged(PlayerRep rep) {
+        Map<TopCategory, Double> previous = new EnumMap<>(TopCategory.class);
+        for (Entry entry : pages.values()) {
+            Page page = done(entry);
+            if (page == null) continue;
+
+            Double k = page.keys.get(rep.getUuid());
+            if (k != null) previous.putIfAbsent(page.category, k);
+        }
+
+        for (Map.Entry<Key, Entry> e : pages.entrySet()) {
+            Page page = done(e.getValue());
+
+            // a page still rendering may have read rows from before this vote
+            if (page == null || isAffected(page, rep, previous.get(page.category))) {
+                pages.remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    public boolean affects(Page page, PlayerRep rep) {
+        Double previous = null;
+        for (Entry entry : pages.values()) {
+            Page cached = done(entry);
+            if (cached == null || cached.category != page.category) continue;
+
+            previous = cached.keys.get(rep.getUuid());
+            if (previous != null) break;
+        }
+        return isAffected(page, rep, previous);
+    }
+
+    public void clear() {
+        pages.clear();
+    }
+
+    private static Page done(Entry entry) {
+        if (!entry.future.isDone() || entry.future.isCompletedExceptionally()) return null;
+        return entry.future.join();
+    }
+
+    private static boolean isAffected(Page page, PlayerRep rep, Double previous) {
+        if (page.keys.isEmpty() || page.keys.containsKey(rep.getUuid())) return true;
+
+        double now = key(page.category, rep);
+
+        // not on any cached page: it can only have climbed into this page's range
+        if (previous == null) return now >= page.minKey;
+
+        double lo = Math.min(previous, now);
+        double hi = Math.max(previous, now);
+        return hi >= page.minKey && lo <= page.maxKey;
+    }
+
+    private void prune(long now) {
+        pages.entrySet().removeIf(e -> now - e.getValue().created > ttlMillis);
+
+        Iterator<Key> it = pages.keySet().iterator();
+        while (pages.size() > maxPages && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static double key(TopCategory category, PlayerRep rep) {
+        if (category == TopCategory.LIKES) return rep.getLikes();
+        if (category == TopCategory.DISLIKES) return rep.getDislikes();
+        if (category == TopCategory.VOTES) return rep.getVotes();
+        return rep.getScore();
+    }
+}
@@ -29,6 +29,6 @@ public final class SeenListener implements Listener {
         String salt = ru.rizonchik.refontsocial.util.SaltStore.getOrCreate(plugin);
         String ipHash = (ip == null) ? null : SecurityUtil.sha256(ip + "|" + salt);
 
-        plugin.getStorage().markSeen(p.getUniqueId(), p.getName(), ipHash);
+        plugin.getReputationService().markSeen(p.getUniqueId(), p.getName(), ipHash);
     }
 }
\ No newline at end of file
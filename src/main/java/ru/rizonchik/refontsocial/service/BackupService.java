@@ -0,0 +1,169 @@
+package ru.rizonchik.refontsocial.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+import ru.rizonchik.refontsocial.storage.BackupStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// periodic online copies of the storage file into backups/, keeping the newest backup.keep of them
+public final class BackupService {
+
+    public static final class Result {
+        public final File file;
+        public final long bytes;
+        public final long millis;
+
+        public Result(File file, long bytes, long millis) {
+            this.file = file;
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+    }
+
+    private static final String PREFIX = "backup-";
+
+    private final JavaPlugin plugin;
+    private final BackupStorage storage;
+    private final File dir;
+    private final ReentrantLock running = new ReentrantLock();
+
+    private BukkitTask task;
+    private volatile boolean closed;
+
+    public BackupService(JavaPlugin plugin, BackupStorage storage) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.dir = new File(plugin.getDataFolder(), "backups");
+    }
+
+    public void start() {
+        long minutes = plugin.getConfig().getLong("backup.intervalMinutes", 360L);
+        if (minutes <= 0) return;
+
+        long period = minutes * 60L * 20L;
+        task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            try {
+                backupNow();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Backup failed: " + e.getMessage());
+            }
+        }, period, period);
+    }
+
+    // waits for a backup in progress: the storage is closed right after this returns
+    public void shutdown() {
+        closed = true;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        if (!running.tryLock()) {
+            plugin.getLogger().info("Waiting for the running backup to finish...");
+            running.lock();
+        }
+        running.unlock();
+    }
+
+    public boolean isRunning() {
+        return running.isLocked();
+    }
+
+    // blocking; call off the main thread. Returns null if another backup is in progress or the service is shut down
+    public Result backupNow() {
+        if (!running.tryLock()) return null;
+        try {
+            if (closed) return null;
+
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IllegalStateException("cannot create " + dir);
+
+            String name = PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + "." + storage.backupExtension();
+            File target = new File(dir, name);
+            File part = new File(dir, name + ".part");
+            part.delete();
+
+            long started = System.currentTimeMillis();
+            try {
+                storage.backupTo(part);
+                Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                part.delete();
+                throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                part.delete();
+                throw e;
+            }
+            long millis = System.currentTimeMillis() - started;
+
+            rotate();
+
+            Result result = new Result(target, target.length(), millis);
+            plugin.getLogger().info("Backup " + name + ": " + (result.bytes / 1024L) + " KB in " + millis + " ms");
+            return result;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    // newest first; only copies made for the current backend type
+    public List<File> list() {
+        File[] files = dir.listFiles((d, n) -> n.startsWith(PREFIX) && n.endsWith("." + storage.backupExtension()));
+        if (files == null) return new ArrayList<>();
+
+        List<File> out = new ArrayList<>(Arrays.asList(files));
+        out.sort(Comparator.comparing(File::getName).reversed());
+        return out;
+    }
+
+    public File find(String name) {
+        for (File f : list()) {
+            if (f.getName().equals(name)) return f;
+        }
+        return null;
+    }
+
+    public void verify(File backup) {
+        storage.verifyBackup(backup);
+    }
+
+    // runs while the storage is closed: the live file is kept as <name>.before-restore until the next restore
+    public void swapIn(File backup) {
+        File live = storage.dataFile();
+        File previous = new File(live.getParentFile(), live.getName() + ".before-restore");
+
+        try {
+            if (live.exists()) Files.move(live.toPath(), previous.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.copy(backup.toPath(), live.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                if (previous.exists()) Files.move(previous.toPath(), live.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        // a leftover journal of the old file would be replayed into the restored one
+        for (String suffix : new String[]{"-journal", "-wal", "-shm"}) {
+            new File(live.getParentFile(), live.getName() + suffix).delete();
+        }
+    }
+
+    private void rotate() {
+        int keep = Math.max(1, plugin.getConfig().getInt("backup.keep", 7));
+        List<File> files = list();
+        for (int i = keep; i < files.size(); i++) {
+            if (!files.get(i).delete()) {
+                plugin.getLogger().warning("Failed to delete old backup " + files.get(i).getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package ru.rizonchik.refontsocial.service;
+
+import ru.rizonchik.refontsocial.util.TimingWheel;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+public final class CooldownIndex {
+
+    private static final int NONE = -1;
+    private static final byte VALUE_NONE = -1;
+
+    private final TimingWheel wheel;
+    private final IntConsumer expire = this::release;
+
+    private long[] voterMost;
+    private long[] voterLeast;
+    private long[] targetMost;
+    private long[] targetLeast;
+    private long[] time;
+    private byte[] value;
+    private int[] freeNext;
+
+    private int freeHead = NONE;
+    private int used;
+    private int count;
+
+    private int[] table;
+    private int mask;
+
+    private long globalRetentionMillis;
+    private long pairRetentionMillis;
+
+    public CooldownIndex(long nowMillis) {
+        int cap = 256;
+        wheel = new TimingWheel(1000L, cap, nowMillis);
+
+        voterMost = new long[cap];
+        voterLeast = new long[cap];
+        targetMost = new long[cap];
+        targetLeast = new long[cap];
+        time = new long[cap];
+        value = new byte[cap];
+        freeNext = new int[cap];
+
+        table = new int[cap * 2];
+        Arrays.fill(table, NONE);
+        mask = table.length - 1;
+    }
+
+    public synchronized void setRetention(long globalMillis, long pairMillis) {
+        this.globalRetentionMillis = Math.max(0L, globalMillis);
+        this.pairRetentionMillis = Math.max(0L, pairMillis);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(table, NONE);
+        wheel.clear();
+        freeHead = NONE;
+        used = 0;
+        count = 0;
+    }
+
+    public synchronized long lastGlobal(UUID voter, long now) {
+        wheel.advance(now, expire);
+        int id = find(voter.getMostSignificantBits(), voter.getLeastSignificantBits(), 0L, 0L);
+        return id == NONE ? -1L : time[id];
+    }
+
+    public synchronized void markGlobal(UUID voter, long timeMillis) {
+        wheel.advance(System.currentTimeMillis(), expire);
+        if (globalRetentionMillis <= 0L) return;
+
+        long vm = voter.getMostSignificantBits();
+        long vl = voter.getLeastSignificantBits();
+
+        int id = find(vm, vl, 0L, 0L);
+        if (id != NONE && time[id] > timeMillis) return;
+
+        put(vm, vl, 0L, 0L, timeMillis, VALUE_NONE, timeMillis + globalRetentionMillis);
+    }
+
+    public synchronized long lastVoteTime(UUID voter, UUID target, long now) {
+        wheel.advance(now, expire);
+        int id = findPair(voter, target);
+        return id == NONE ? -1L : time[id];
+    }
+
+    public synchronized int lastVoteValue(UUID voter, UUID target, long now) {
+        wheel.advance(now, expire);
+        int id = findPair(voter, target);
+        return id == NONE ? -1 : value[id];
+    }
+
+    public synchronized void recordVote(UUID voter, UUID target, Integer voteValue, long timeMillis) {
+        wheel.advance(System.currentTimeMillis(), expire);
+        if (pairRetentionMillis <= 0L) return;
+
+        long deadline = timeMillis + pairRetentionMillis;
+        byte v = voteValue == null ? VALUE_NONE : (byte) (voteValue == 1 ? 1 : 0);
+
+        int id = findPair(voter, target);
+        if (id != NONE && time[id] > timeMillis) return;
+
+        put(voter.getMostSignificantBits(), voter.getLeastSignificantBits(),
+                target.getMostSignificantBits(), target.getLeastSignificantBits(),
+                timeMillis, v, deadline);
+    }
+
+    private int findPair(UUID voter, UUID target) {
+        return find(voter.getMostSignificantBits(), voter.getLeastSignificantBits(),
+                target.getMostSignificantBits(), target.getLeastSignificantBits());
+    }
+
+    private void put(long vm, long vl, long tm, long tl, long t, byte v, long deadline) {
+        int id = find(vm, vl, tm, tl);
+        if (id == NONE) {
+            id = allocate();
+            voterMost[id] = vm;
+            voterLeast[id] = vl;
+            targetMost[id] = tm;
+            targetLeast[id] = tl;
+            insert(id);
+        }
+
+        time[id] = t;
+        value[id] = v;
+        wheel.schedule(id, deadline);
+    }
+
+    private int find(long vm, long vl, long tm, long tl) {
+        int i = hash(vm, vl, tm, tl) & mask;
+        while (true) {
+            int id = table[i];
+            if (id == NONE) return NONE;
+            if (voterMost[id] == vm && voterLeast[id] == vl && targetMost[id] == tm && targetLeast[id] == tl) {
+                return id;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void insert(int id) {
+        if ((count + 1) * 2 > table.length) rehash(table.length * 2);
+
+        int i = hash(voterMost[id], voterLeast[id], targetMost[id], targetLeast[id]) & mask;
+        while (table[i] != NONE) i = (i + 1) & mask;
+        table[i] = id;
+        count++;
+    }
+
+    private void release(int id) {
+        int i = hash(voterMost[id], voterLeast[id], targetMost[id], targetLeast[id]) & mask;
+        while (table[i] != id) {
+            if (table[i] == NONE) return;
+            i = (i + 1) & mask;
+        }
+
+        // backward-shift deletion keeps probe chains intact without tombstones
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (table[j] != NONE) {
+            int other = table[j];
+            int home = hash(voterMost[other], voterLeast[other], targetMost[other], targetLeast[other]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                table[hole] = other;
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        table[hole] = NONE;
+
+        count--;
+        freeNext[id] = freeHead;
+        freeHead = id;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int id = freeHead;
+            freeHead = freeNext[id];
+            return id;
+        }
+
+        if (used == voterMost.length) {
+            int cap = voterMost.length * 2;
+            voterMost = Arrays.copyOf(voterMost, cap);
+            voterLeast = Arrays.copyOf(voterLeast, cap);
+            targetMost = Arrays.copyOf(targetMost, cap);
+            targetLeast = Arrays.copyOf(targetLeast, cap);
+            time = Arrays.copyOf(time, cap);
+            value = Arrays.copyOf(value, cap);
+            freeNext = Arrays.copyOf(freeNext, cap);
+            wheel.ensureCapacity(cap);
+        }
+        return used++;
+    }
+
+    private void rehash(int newSize) {
+        int[] old = table;
+        table = new int[newSize];
+        Arrays.fill(table, NONE);
+        mask = newSize - 1;
+
+        for (int id : old) {
+            if (id == NONE) continue;
+            int i = hash(voterMost[id], voterLeast[id], targetMost[id], targetLeast[id]) & mask;
+            while (table[i] != NONE) i = (i + 1) & mask;
+            table[i] = id;
+        }
+    }
+
+    private static int hash(long vm, long vl, long tm, long tl) {
+        long h = vm * 0x9E3779B97F4A7C15L;
+        h ^= vl + 0x632BE59BD9B4E019L + (h << 6) + (h >>> 2);
+        h ^= tm * 0xC2B2AE3D27D4EB4FL;
+        h ^= tl + 0x165667B19E3779F9L + (h << 6) + (h >>> 2);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,130 @@
+package ru.rizonchik.refontsocial.service;
+
+import ru.rizonchik.refontsocial.storage.Storage;
+import ru.rizonchik.refontsocial.storage.model.VoteRecord;
+
+import java.io.*;
+import java.util.*;
+
+// per voter, the targets that hold a vote cast today: the same set the storage counts on a rebuild
+// (rs_votes rows with a value and last_time in the day), so the limit does not drift across restarts
+public final class DailyVoteCounter {
+
+    private static final int MAGIC = 0x52534443; // "RSDC"
+    private static final int VERSION = 2;
+
+    private final Map<UUID, Set<UUID>> targets = new HashMap<>();
+
+    private long dayStart;
+    private long nextDayStart;
+
+    public DailyVoteCounter(long dayStart, long nextDayStart) {
+        this.dayStart = dayStart;
+        this.nextDayStart = nextDayStart;
+    }
+
+    public synchronized long getDayStart() {
+        return dayStart;
+    }
+
+    public synchronized long getNextDayStart() {
+        return nextDayStart;
+    }
+
+    public synchronized boolean isExpired(long now) {
+        return now >= nextDayStart;
+    }
+
+    public synchronized int get(UUID voter) {
+        Set<UUID> set = targets.get(voter);
+        return set == null ? 0 : set.size();
+    }
+
+    // CREATED and CHANGED leave a vote cast now; REMOVED frees the slot only if that vote was cast today
+    public synchronized void record(UUID voter, UUID target, Storage.VoteResult result, long time) {
+        if (time < dayStart) return; // applied across midnight, the day is already gone
+
+        if (result == Storage.VoteResult.REMOVED) {
+            Set<UUID> set = targets.get(voter);
+            if (set == null) return;
+            set.remove(target);
+            if (set.isEmpty()) targets.remove(voter);
+            return;
+        }
+
+        targets.computeIfAbsent(voter, k -> new HashSet<>()).add(target);
+    }
+
+    public synchronized void reset(long dayStart, long nextDayStart) {
+        if (dayStart <= this.dayStart) return;
+        targets.clear();
+        this.dayStart = dayStart;
+        this.nextDayStart = nextDayStart;
+    }
+
+    public synchronized void addAll(Collection<VoteRecord> records) {
+        for (VoteRecord r : records) {
+            if (r.getValue() == null || r.getLastTime() < dayStart || r.getLastTime() >= nextDayStart) continue;
+            targets.computeIfAbsent(r.getVoter(), k -> new HashSet<>()).add(r.getTarget());
+        }
+    }
+
+    public synchronized int size() {
+        return targets.size();
+    }
+
+    public synchronized void save(File file) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        if (!file.getParentFile().exists()) file.getParentFile().mkdirs();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(dayStart);
+
+            out.writeInt(targets.size());
+            for (Map.Entry<UUID, Set<UUID>> e : targets.entrySet()) {
+                writeUuid(out, e.getKey());
+                out.writeInt(e.getValue().size());
+                for (UUID target : e.getValue()) writeUuid(out, target);
+            }
+        }
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot replace " + file.getAbsolutePath());
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Cannot move temp file to " + file.getAbsolutePath());
+        }
+    }
+
+    // false for a missing file, an older format or another day; the caller rebuilds from the storage then
+    public synchronized boolean load(File file) throws IOException {
+        if (!file.exists()) return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) return false;
+            if (in.readInt() != VERSION) return false;
+            if (in.readLong() != dayStart) return false;
+
+            int voters = in.readInt();
+            for (int i = 0; i < voters; i++) {
+                UUID voter = readUuid(in);
+                int n = in.readInt();
+                Set<UUID> set = new HashSet<>();
+                for (int j = 0; j < n; j++) set.add(readUuid(in));
+                if (!set.isEmpty()) targets.put(voter, set);
+            }
+        }
+        return true;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
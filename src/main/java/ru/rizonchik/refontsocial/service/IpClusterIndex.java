@@ -0,0 +1,64 @@
+package ru.rizonchik.refontsocial.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class IpClusterIndex {
+
+    private final Map<String, Set<UUID>> byHash = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> byPlayer = new ConcurrentHashMap<>();
+
+    public void add(UUID uuid, String ipHash) {
+        if (uuid == null || ipHash == null || ipHash.isEmpty()) return;
+
+        byHash.computeIfAbsent(ipHash, k -> ConcurrentHashMap.newKeySet()).add(uuid);
+        byPlayer.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(ipHash);
+    }
+
+    public void addAll(Map<UUID, String> hashes) {
+        for (Map.Entry<UUID, String> e : hashes.entrySet()) {
+            add(e.getKey(), e.getValue());
+        }
+    }
+
+    public boolean sharesHash(UUID a, UUID b) {
+        Set<String> hashes = byPlayer.get(a);
+        if (hashes == null) return false;
+
+        for (String h : hashes) {
+            Set<UUID> cluster = byHash.get(h);
+            if (cluster != null && cluster.contains(b)) return true;
+        }
+        return false;
+    }
+
+    public Set<String> hashesOf(UUID uuid) {
+        Set<String> hashes = byPlayer.get(uuid);
+        return hashes == null ? Collections.emptySet() : new TreeSet<>(hashes);
+    }
+
+    public Set<UUID> cluster(String ipHash) {
+        Set<UUID> cluster = byHash.get(ipHash);
+        return cluster == null ? Collections.emptySet() : new HashSet<>(cluster);
+    }
+
+    public Set<String> findHashes(String prefix) {
+        Set<String> out = new TreeSet<>();
+        if (prefix == null || prefix.isEmpty()) return out;
+
+        String p = prefix.toLowerCase(Locale.ROOT);
+        for (String h : byHash.keySet()) {
+            if (h.startsWith(p)) out.add(h);
+        }
+        return out;
+    }
+
+    public int size() {
+        return byHash.size();
+    }
+
+    public void clear() {
+        byHash.clear();
+        byPlayer.clear();
+    }
+}
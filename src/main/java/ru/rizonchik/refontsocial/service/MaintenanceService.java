@@ -0,0 +1,124 @@
+package ru.rizonchik.refontsocial.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+import ru.rizonchik.refontsocial.storage.MaintenanceStorage;
+import ru.rizonchik.refontsocial.storage.Throttle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// periodic retention jobs; each works in small throttled transactions and stops between chunks on shutdown
+public final class MaintenanceService {
+
+    public static final class Report {
+        public final long voteLogRemoved;
+        public final long playersRemoved;
+        public final long tagsRemoved;
+        public final long millis;
+
+        public Report(long voteLogRemoved, long playersRemoved, long tagsRemoved, long millis) {
+            this.voteLogRemoved = voteLogRemoved;
+            this.playersRemoved = playersRemoved;
+            this.tagsRemoved = tagsRemoved;
+            this.millis = millis;
+        }
+    }
+
+    private final JavaPlugin plugin;
+    private final MaintenanceStorage storage;
+    private final ReentrantLock running = new ReentrantLock();
+
+    private BukkitTask task;
+    private volatile Throttle throttle;
+    private volatile boolean closed;
+
+    public MaintenanceService(JavaPlugin plugin, MaintenanceStorage storage) {
+        this.plugin = plugin;
+        this.storage = storage;
+    }
+
+    public void start() {
+        long minutes = plugin.getConfig().getLong("retention.intervalMinutes", 60L);
+        if (minutes <= 0) return;
+
+        long period = minutes * 60L * 20L;
+        task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            try {
+                runNow();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Data cleanup aborted: " + e.getMessage());
+            }
+        }, period, period);
+    }
+
+    // stops a run at its next chunk and waits for it: the storage is closed right after this returns
+    public void shutdown() {
+        closed = true;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        Throttle t = throttle;
+        if (t != null) t.cancel();
+
+        if (!running.tryLock()) {
+            plugin.getLogger().info("Waiting for the data cleanup to stop...");
+            running.lock();
+        }
+        running.unlock();
+    }
+
+    // blocking; call off the main thread. Returns null if a run is already in progress or the service is shut down
+    public Report runNow() {
+        if (!running.tryLock()) return null;
+        try {
+            if (closed) return null;
+
+            Throttle t = new Throttle(
+                    plugin.getConfig().getInt("retention.chunkSize", 500),
+                    plugin.getConfig().getLong("retention.pauseMs", 50L)
+            );
+            throttle = t;
+            if (closed) t.cancel(); // shutdown may have looked before the throttle was published
+
+            long started = System.currentTimeMillis();
+            long voteLog = 0;
+
+            if (plugin.getConfig().getBoolean("retention.voteLog.enabled", true)) {
+                // never below what the profile shows
+                int keep = Math.max(
+                        plugin.getConfig().getInt("retention.voteLog.keepPerTarget", 50),
+                        plugin.getConfig().getInt("profile.history.limit", 10)
+                );
+                long days = Math.max(1L, plugin.getConfig().getLong("retention.voteLog.keepDays", 90L));
+                boolean archive = plugin.getConfig().getBoolean("retention.voteLog.archive", true);
+
+                voteLog = storage.pruneVoteLog(keep, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days), archive, t);
+            }
+
+            long players = 0;
+            if (!t.isCancelled() && plugin.getConfig().getBoolean("retention.phantomPlayers.enabled", true)) {
+                long days = Math.max(1L, plugin.getConfig().getLong("retention.phantomPlayers.minAgeDays", 30L));
+                players = storage.purgePhantomPlayers(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days), t);
+            }
+
+            long tags = 0;
+            if (!t.isCancelled() && plugin.getConfig().getBoolean("retention.emptyTags", true)) {
+                tags = storage.purgeEmptyTags(t);
+            }
+
+            Report report = new Report(voteLog, players, tags, System.currentTimeMillis() - started);
+            if (report.voteLogRemoved + report.playersRemoved + report.tagsRemoved > 0) {
+                plugin.getLogger().info("Cleanup: " + report.voteLogRemoved + " history entries, " + report.playersRemoved
+                        + " empty players, " + report.tagsRemoved + " empty tags in " + report.millis + " ms");
+            }
+            return report;
+        } finally {
+            throttle = null;
+            running.unlock();
+        }
+    }
+}
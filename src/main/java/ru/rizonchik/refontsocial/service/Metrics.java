@@ -0,0 +1,36 @@
+package ru.rizonchik.refontsocial.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class Metrics {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    public void increment(String name) {
+        add(name, 1L);
+    }
+
+    public void add(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    public long get(String name) {
+        LongAdder a = counters.get(name);
+        return a == null ? 0L : a.sum();
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) {
+            out.put(e.getKey(), e.getValue().sum());
+        }
+        return out;
+    }
+
+    public void clear() {
+        counters.clear();
+    }
+}
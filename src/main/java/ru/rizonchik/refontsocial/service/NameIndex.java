@@ -0,0 +1,66 @@
+package ru.rizonchik.refontsocial.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public final class NameIndex {
+
+    private final ConcurrentSkipListMap<String, UUID> byName = new ConcurrentSkipListMap<>();
+    private final Map<UUID, String> byUuid = new ConcurrentHashMap<>();
+
+    public String get(UUID uuid) {
+        return byUuid.get(uuid);
+    }
+
+    public UUID find(String name) {
+        if (name == null || name.isEmpty()) return null;
+        return byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public synchronized void put(UUID uuid, String name) {
+        if (uuid == null || name == null || name.trim().isEmpty()) return;
+
+        String old = byUuid.put(uuid, name);
+        if (old != null && !old.equalsIgnoreCase(name)) {
+            byName.remove(old.toLowerCase(Locale.ROOT), uuid);
+        }
+        byName.put(name.toLowerCase(Locale.ROOT), uuid);
+    }
+
+    public void putAll(Map<UUID, String> names) {
+        for (Map.Entry<UUID, String> e : names.entrySet()) {
+            put(e.getKey(), e.getValue());
+        }
+    }
+
+    public Map<UUID, String> getAll(Collection<UUID> uuids) {
+        Map<UUID, String> out = new HashMap<>();
+        for (UUID uuid : uuids) {
+            String name = byUuid.get(uuid);
+            if (name != null) out.put(uuid, name);
+        }
+        return out;
+    }
+
+    public List<String> complete(String prefix, int limit) {
+        List<String> out = new ArrayList<>();
+        String p = prefix == null ? "" : prefix.toLowerCase(Locale.ROOT);
+
+        for (UUID uuid : byName.subMap(p, true, p + Character.MAX_VALUE, true).values()) {
+            if (out.size() >= limit) break;
+            String name = byUuid.get(uuid);
+            if (name != null) out.add(name);
+        }
+        return out;
+    }
+
+    public int size() {
+        return byUuid.size();
+    }
+
+    public synchronized void clear() {
+        byName.clear();
+        byUuid.clear();
+    }
+}
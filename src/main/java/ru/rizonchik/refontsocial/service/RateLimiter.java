@@ -0,0 +1,100 @@
+package ru.rizonchik.refontsocial.service;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+public final class RateLimiter {
+
+    public enum Action {
+        SHOW,
+        TOP,
+        PROFILE,
+        RATE,
+        REASONS
+    }
+
+    private static final Action[] ACTIONS = Action.values();
+
+    private final Metrics metrics;
+    private final LongSupplier clock;
+    private final boolean enabled;
+
+    private final long[] intervalNanos = new long[ACTIONS.length];
+    private final long[] toleranceNanos = new long[ACTIONS.length];
+    private final String[] metricKeys = new String[ACTIONS.length];
+
+    // one theoretical-arrival-time slot per action (GCRA), updated with CAS only
+    private final Map<UUID, AtomicLongArray> states = new ConcurrentHashMap<>();
+
+    public RateLimiter(JavaPlugin plugin, Metrics metrics) {
+        this(plugin, metrics, System::nanoTime);
+    }
+
+    // tests drive the clock by hand
+    RateLimiter(JavaPlugin plugin, Metrics metrics, LongSupplier nanoClock) {
+        this.metrics = metrics;
+        this.clock = nanoClock;
+        this.enabled = plugin.getConfig().getBoolean("performance.rateLimit.enabled", true);
+
+        for (Action a : ACTIONS) {
+            metricKeys[a.ordinal()] = "throttle." + a.name().toLowerCase(Locale.ROOT);
+
+            String base = "performance.rateLimit.actions." + a.name().toLowerCase(Locale.ROOT) + ".";
+            double perSecond = plugin.getConfig().getDouble(base + "perSecond", 1.0);
+            int burst = plugin.getConfig().getInt(base + "burst", 3);
+
+            if (perSecond <= 0.0) {
+                intervalNanos[a.ordinal()] = 0L;
+                continue;
+            }
+
+            long interval = (long) (1_000_000_000L / perSecond);
+            intervalNanos[a.ordinal()] = Math.max(1L, interval);
+            toleranceNanos[a.ordinal()] = Math.max(0, burst - 1) * intervalNanos[a.ordinal()];
+        }
+    }
+
+    public boolean tryAcquire(UUID player, Action action) {
+        if (!enabled || player == null) return true;
+
+        int i = action.ordinal();
+        long interval = intervalNanos[i];
+        if (interval <= 0L) return true;
+
+        AtomicLongArray tat = states.get(player);
+        if (tat == null) tat = states.computeIfAbsent(player, k -> newState());
+
+        while (true) {
+            long now = clock.getAsLong();
+            long cur = tat.get(i);
+            long base = (cur == Long.MIN_VALUE || cur - now < 0L) ? now : cur;
+
+            if (base - now > toleranceNanos[i]) {
+                metrics.increment(metricKeys[i]);
+                return false;
+            }
+
+            if (tat.compareAndSet(i, cur, base + interval)) return true;
+        }
+    }
+
+    public void forget(UUID player) {
+        states.remove(player);
+    }
+
+    public void clear() {
+        states.clear();
+    }
+
+    private static AtomicLongArray newState() {
+        AtomicLongArray a = new AtomicLongArray(ACTIONS.length);
+        for (int i = 0; i < ACTIONS.length; i++) a.set(i, Long.MIN_VALUE);
+        return a;
+    }
+}
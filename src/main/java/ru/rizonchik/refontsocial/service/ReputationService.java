@@ -4,16 +4,29 @@ import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 import ru.rizonchik.refontsocial.listener.InteractionTracker;
+import ru.rizonchik.refontsocial.storage.ScoreStorage;
 import ru.rizonchik.refontsocial.storage.Storage;
 import ru.rizonchik.refontsocial.storage.model.PlayerRep;
+import ru.rizonchik.refontsocial.storage.model.ProfileData;
+import ru.rizonchik.refontsocial.storage.model.VoteLogEntry;
+import ru.rizonchik.refontsocial.storage.model.VoteRecord;
 import ru.rizonchik.refontsocial.util.Colors;
 import ru.rizonchik.refontsocial.util.NumberUtil;
 
+import java.io.File;
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public final class ReputationService {
 
@@ -23,11 +36,192 @@ public final class ReputationService {
     private InteractionTracker interactionTracker;
 
     private final Map<UUID, CacheEntry> cache = new ConcurrentHashMap<>();
-    private final Map<String, Long> cooldownGlobal = new ConcurrentHashMap<>();
+    private final Map<UUID, ProfileEntry> profiles = new ConcurrentHashMap<>();
+    private final AtomicLong profileVersion = new AtomicLong();
+    private final CooldownIndex cooldowns = new CooldownIndex(System.currentTimeMillis());
+
+    private final IpClusterIndex ipIndex = new IpClusterIndex();
+    private final RingDetector ringDetector;
+    private final Metrics metrics = new Metrics();
+    private final RateLimiter rateLimiter;
+    private final NameIndex names = new NameIndex();
+    private final List<Consumer<PlayerRep>> repListeners = new CopyOnWriteArrayList<>();
+
+    private DailyVoteCounter dailyCounter;
+    private BukkitTask dailyResetTask;
+
+    // cooldowns, the daily counter and the IP index are filled off the main thread; until then vote checks
+    // read the storage directly. Changes made meanwhile are replayed over the snapshot, which may predate them
+    private final Object warmLock = new Object();
+    private List<Runnable> warmReplay = new ArrayList<>();
+    private volatile boolean warm;
+    private volatile boolean closed;
 
     public ReputationService(JavaPlugin plugin, Storage storage) {
         this.plugin = plugin;
         this.storage = storage;
+        this.ringDetector = new RingDetector(plugin);
+        this.rateLimiter = new RateLimiter(plugin, metrics);
+
+        ringDetector.setQuarantineListener(players -> {
+            if (!closed) Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> rescoreQuarantined(players));
+        });
+    }
+
+    public void start() {
+        cooldowns.setRetention(globalRetentionMillis(), pairRetentionMillis());
+
+        ZoneId zone = NumberUtil.dailyZone(plugin);
+        long now = System.currentTimeMillis();
+        dailyCounter = new DailyVoteCounter(NumberUtil.startOfDayMillis(now, zone), NumberUtil.startOfNextDayMillis(now, zone));
+        if (plugin.getConfig().getBoolean("antiAbuse.dailyLimit.enabled", true)) scheduleDailyReset();
+
+        ringDetector.start();
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, this::warmUp);
+    }
+
+    public IpClusterIndex getIpIndex() {
+        return ipIndex;
+    }
+
+    public NameIndex getNameIndex() {
+        return names;
+    }
+
+    public RingDetector getRingDetector() {
+        return ringDetector;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public void addRepListener(Consumer<PlayerRep> listener) {
+        repListeners.add(listener);
+    }
+
+    private void fireRepChanged(PlayerRep rep) {
+        for (Consumer<PlayerRep> listener : repListeners) {
+            try {
+                listener.accept(rep);
+            } catch (Throwable t) {
+                plugin.getLogger().warning("Reputation listener failed: " + t.getMessage());
+            }
+        }
+    }
+
+    public void markSeen(UUID uuid, String name, String ipHash) {
+        indexed(() -> {
+            ipIndex.add(uuid, ipHash);
+            names.put(uuid, name);
+        });
+        storage.markSeen(uuid, name, ipHash);
+    }
+
+    // until this finishes getName and command lookups fall back to the storage and the server's player cache
+    private void warmUp() {
+        try {
+            names.putAll(storage.getNames());
+
+            long now = System.currentTimeMillis();
+            long window = Math.max(globalRetentionMillis(), pairRetentionMillis());
+
+            boolean rebuildDaily = plugin.getConfig().getBoolean("antiAbuse.dailyLimit.enabled", true) && !loadDailyFile();
+
+            // one scan serves both: the cooldown window and, when the file is missing, today's votes
+            long since = now - window;
+            if (rebuildDaily) since = Math.min(since, dailyCounter.getDayStart());
+
+            if (window > 0L || rebuildDaily) {
+                List<VoteRecord> recent = storage.getVotesSince(since);
+                for (VoteRecord r : recent) {
+                    if (r.getLastTime() < now - window) continue;
+                    cooldowns.recordVote(r.getVoter(), r.getTarget(), r.getValue(), r.getLastTime());
+                    cooldowns.markGlobal(r.getVoter(), r.getLastTime());
+                }
+                if (rebuildDaily) dailyCounter.addAll(recent);
+            }
+
+            ipIndex.addAll(storage.getIpHashes());
+        } catch (RuntimeException e) {
+            if (!closed) plugin.getLogger().warning("Failed to load vote indexes, checks keep reading the storage: " + e.getMessage());
+            synchronized (warmLock) {
+                warmReplay = null;
+            }
+            return;
+        }
+
+        synchronized (warmLock) {
+            if (warmReplay != null) {
+                for (Runnable change : warmReplay) change.run();
+                warmReplay = null;
+            }
+            warm = !closed;
+        }
+    }
+
+    // applies a change to the indexes now and again after the snapshot, if one is still loading
+    private void indexed(Runnable change) {
+        synchronized (warmLock) {
+            change.run();
+            if (warmReplay != null) warmReplay.add(change);
+        }
+    }
+
+    private boolean loadDailyFile() {
+        File file = new File(plugin.getDataFolder(), "daily_votes.dat");
+        boolean loaded = false;
+        try {
+            loaded = dailyCounter.load(file);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to read daily_votes.dat, rebuilding: " + e.getMessage());
+        }
+
+        // consumed on load: after a crash the stale file must not be trusted again
+        if (file.exists()) file.delete();
+        return loaded;
+    }
+
+    private void scheduleDailyReset() {
+        if (!plugin.isEnabled() || closed) return;
+
+        long delayMs = dailyCounter.getNextDayStart() - System.currentTimeMillis();
+        long delayTicks = Math.max(1L, delayMs / 50L + 1L);
+
+        dailyResetTask = Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> {
+            rollDay(System.currentTimeMillis());
+            scheduleDailyReset();
+        }, delayTicks);
+    }
+
+    private void rollDay(long now) {
+        if (!dailyCounter.isExpired(now)) return;
+
+        ZoneId zone = NumberUtil.dailyZone(plugin);
+        dailyCounter.reset(NumberUtil.startOfDayMillis(now, zone), NumberUtil.startOfNextDayMillis(now, zone));
+    }
+
+    private long globalRetentionMillis() {
+        return Math.max(0, plugin.getConfig().getInt("antiAbuse.cooldowns.voteGlobalSeconds", 20)) * 1000L;
+    }
+
+    private long pairRetentionMillis() {
+        long sameTarget = plugin.getConfig().getInt("antiAbuse.cooldowns.sameTargetSeconds", 600);
+        long changeVote = plugin.getConfig().getInt("antiAbuse.cooldowns.changeVoteSeconds", 1800);
+        long seconds = Math.max(sameTarget, changeVote);
+
+        boolean ipEnabled = plugin.getConfig().getBoolean("antiAbuse.ipProtection.enabled", false);
+        String ipMode = plugin.getConfig().getString("antiAbuse.ipProtection.mode", "SAME_IP_DENY");
+        if (ipEnabled && ipMode != null && ipMode.equalsIgnoreCase("SAME_IP_COOLDOWN")) {
+            seconds = Math.max(seconds, Math.max(1L, plugin.getConfig().getLong("antiAbuse.ipProtection.cooldownSeconds", 86400)));
+        }
+
+        return Math.max(0L, seconds) * 1000L;
     }
 
     public void setInteractionTracker(InteractionTracker tracker) {
@@ -35,8 +229,53 @@ public final class ReputationService {
     }
 
     public void shutdown() {
+        closed = true;
+        ringDetector.shutdown();
+
+        if (dailyResetTask != null) {
+            dailyResetTask.cancel();
+            dailyResetTask = null;
+        }
+
+        // a counter that never finished loading would be trusted as complete on the next start
+        if (warm && dailyCounter != null && plugin.getConfig().getBoolean("antiAbuse.dailyLimit.enabled", true)) {
+            rollDay(System.currentTimeMillis());
+            try {
+                dailyCounter.save(new File(plugin.getDataFolder(), "daily_votes.dat"));
+            } catch (IOException e) {
+                plugin.getLogger().warning("Failed to save daily_votes.dat: " + e.getMessage());
+            }
+        }
+
+        repListeners.clear();
         cache.clear();
-        cooldownGlobal.clear();
+        profiles.clear();
+        names.clear();
+        cooldowns.clear();
+        ipIndex.clear();
+        rateLimiter.clear();
+    }
+
+    // blocking; scores of players in (or just out of) a quarantined ring, without the ring's votes for each other
+    public void rescoreQuarantined(Set<UUID> players) {
+        if (closed || !(storage instanceof ScoreStorage)) return;
+
+        try {
+            for (UUID uuid : players) {
+                ((ScoreStorage) storage).rescore(uuid, ringDetector.quarantinedVoters(uuid));
+                cache.remove(uuid);
+                profiles.remove(uuid);
+            }
+            profileVersion.incrementAndGet();
+        } catch (RuntimeException e) {
+            if (!closed) plugin.getLogger().warning("Failed to rescore quarantined players: " + e.getMessage());
+        }
+    }
+
+    // after a bulk change of stored scores
+    public void invalidateScores() {
+        cache.clear();
+        profiles.clear();
     }
 
     public PlayerRep getOrCreate(UUID uuid, String name) {
@@ -56,14 +295,118 @@ public final class ReputationService {
         return rep;
     }
 
+    public PlayerRep getCached(UUID uuid) {
+        CacheEntry entry = cache.get(uuid);
+        if (entry == null) return null;
+
+        int expireSeconds = plugin.getConfig().getInt("performance.cache.expireSeconds", 30);
+        if (System.currentTimeMillis() - entry.time > Math.max(1, expireSeconds) * 1000L) return null;
+        return entry.rep;
+    }
+
+    public boolean sendCachedShow(Player viewer, UUID target, String targetName) {
+        PlayerRep rep = getCached(target);
+        if (rep == null) return false;
+
+        metrics.increment("throttle.servedFromCache");
+        String key = viewer.getUniqueId().equals(target) ? "showSelf" : "showOther";
+        viewer.sendMessage(Colors.msg(plugin, key,
+                "%target%", targetName != null ? targetName : "Player",
+                "%score%", NumberUtil.formatScore(plugin, rep.getScore()),
+                "%likes%", String.valueOf(rep.getLikes()),
+                "%dislikes%", String.valueOf(rep.getDislikes()),
+                "%votes%", String.valueOf(rep.getVotes())
+        ));
+        return true;
+    }
+
+    public ProfileData getProfile(UUID target, int tagLimit, int historyLimit, boolean includeVoterName) {
+        long ttl = Math.max(0, plugin.getConfig().getInt("performance.profileCache.ttlSeconds", 5)) * 1000L;
+        long now = System.currentTimeMillis();
+
+        ProfileData data = null;
+        ProfileEntry e = profiles.get(target);
+        if (e != null && now - e.time <= ttl && e.tagLimit == tagLimit && e.historyLimit == historyLimit) {
+            data = e.data;
+            metrics.increment("profile.cache.hit");
+        }
+
+        if (data == null) {
+            long version = profileVersion.get();
+            data = storage.loadProfile(target, tagLimit, historyLimit, true);
+            metrics.increment("profile.cache.miss");
+
+            // a vote that landed while loading may not be in this snapshot
+            if (ttl > 0 && profileVersion.get() == version) {
+                profiles.put(target, new ProfileEntry(data, now, tagLimit, historyLimit));
+            }
+        }
+
+        if (includeVoterName) return data;
+
+        List<VoteLogEntry> anonymous = new ArrayList<>(data.getHistory().size());
+        for (VoteLogEntry entry : data.getHistory()) {
+            anonymous.add(new VoteLogEntry(entry.getTimeMillis(), entry.getValue(), entry.getReason(), null));
+        }
+        return new ProfileData(data.getRep(), data.getRank(), data.getTopTags(), anonymous);
+    }
+
     public String getName(UUID uuid) {
-        return storage.getLastKnownName(uuid);
+        String name = names.get(uuid);
+        if (name != null) return name;
+
+        name = storage.getLastKnownName(uuid);
+        names.put(uuid, name);
+        return name;
     }
 
     public List<PlayerRep> getTop(int limit, int offset) {
         return storage.getTop(limit, offset);
     }
 
+    public List<PlayerRep> withNames(List<PlayerRep> reps) {
+        List<UUID> missing = new ArrayList<>();
+        for (PlayerRep rep : reps) {
+            if (rep.getName() == null || rep.getName().trim().isEmpty()) {
+                missing.add(rep.getUuid());
+            } else {
+                names.put(rep.getUuid(), rep.getName());
+            }
+        }
+        if (missing.isEmpty()) return reps;
+
+        Map<UUID, String> resolved = names.getAll(missing);
+        if (resolved.size() < missing.size()) {
+            List<UUID> unknown = new ArrayList<>();
+            for (UUID uuid : missing) {
+                if (!resolved.containsKey(uuid)) unknown.add(uuid);
+            }
+
+            Map<UUID, String> loaded = storage.getLastKnownNames(unknown);
+            for (Map.Entry<UUID, String> e : loaded.entrySet()) names.put(e.getKey(), e.getValue());
+            resolved.putAll(loaded);
+        }
+
+        List<PlayerRep> out = new ArrayList<>(reps.size());
+        for (PlayerRep rep : reps) {
+            if (rep.getName() != null && !rep.getName().trim().isEmpty()) {
+                out.add(rep);
+                continue;
+            }
+
+            String name = resolved.get(rep.getUuid());
+            if (name == null) {
+                OfflinePlayer off = Bukkit.getOfflinePlayer(rep.getUuid());
+                name = off != null ? off.getName() : null;
+                names.put(rep.getUuid(), name);
+            }
+            if (name == null) name = rep.getUuid().toString().substring(0, 8);
+
+            out.add(new PlayerRep(rep.getUuid(), name, rep.getLikes(), rep.getDislikes(), rep.getVotes(), rep.getScore()));
+        }
+        return out;
+    }
+
     public void sendShow(Player viewer, UUID target, String targetName) {
         PlayerRep rep = getOrCreate(target, targetName != null ? targetName : "Player");
         String key = viewer.getUniqueId().equals(target) ? "showSelf" : "showOther";
@@ -90,7 +433,7 @@ public final class ReputationService {
         return viewer != null && viewer.hasPermission(perm);
     }
 
-    private boolean isIpBlocked(Player voter, UUID target, Storage.VoteState state, long now) {
+    private boolean isIpBlocked(Player voter, UUID target, long lastTime, long now) {
         boolean enabled = plugin.getConfig().getBoolean("antiAbuse.ipProtection.enabled", false);
         if (!enabled) return false;
 
@@ -100,11 +443,7 @@ public final class ReputationService {
         if (mode == null) mode = "SAME_IP_DENY";
         mode = mode.toUpperCase(java.util.Locale.ROOT);
 
-        String voterIp = storage.getIpHash(voter.getUniqueId());
-        String targetIp = storage.getIpHash(target);
-
-        if (voterIp == null || targetIp == null) return false;
-        if (!voterIp.equals(targetIp)) return false;
+        if (!sharesIp(voter.getUniqueId(), target)) return false;
 
         if (mode.equals("SAME_IP_DENY")) {
             voter.sendMessage(Colors.msg(plugin, "ipDenied"));
@@ -115,8 +454,8 @@ public final class ReputationService {
         if (cd < 1) cd = 1;
         long cdMs = cd * 1000L;
 
-        if (state != null && state.lastTime != null) {
-            long left = (state.lastTime + cdMs) - now;
+        if (lastTime >= 0L) {
+            long left = (lastTime + cdMs) - now;
             if (left > 0) {
                 voter.sendMessage(Colors.msg(plugin, "ipCooldown", "%seconds%", String.valueOf(left / 1000L + 1)));
                 return true;
@@ -126,13 +465,26 @@ public final class ReputationService {
         return false;
     }
 
-    public void voteWithReason(Player voter, UUID target, String targetName, boolean like, String reasonTagKey) {
-        if (voter == null || target == null) return;
+    private boolean sharesIp(UUID voter, UUID target) {
+        if (warm) return ipIndex.sharesHash(voter, target);
+
+        String voterIp = storage.getIpHash(voter);
+        return voterIp != null && voterIp.equals(storage.getIpHash(target));
+    }
+
+    // RING_PENDING: allowed so far, but the voter is in the target's quarantined ring and whether this click takes
+    // a vote back is not in the index; the async apply decides, so the main thread never reads the storage for it
+    private enum Check {
+        DENIED,
+        ALLOWED,
+        RING_PENDING
+    }
 
+    private Check checkVote(Player voter, UUID target, boolean like, long now) {
         boolean preventSelf = plugin.getConfig().getBoolean("antiAbuse.preventSelfVote", true);
         if (preventSelf && voter.getUniqueId().equals(target)) {
             voter.sendMessage(Colors.msg(plugin, "selfVoteDenied"));
-            return;
+            return Check.DENIED;
         }
 
         boolean requireHasPlayedBefore = plugin.getConfig().getBoolean("antiAbuse.targetEligibility.requireHasPlayedBefore", true);
@@ -143,7 +495,7 @@ public final class ReputationService {
         if (requireTargetOnline) {
             if (off == null || !off.isOnline()) {
                 voter.sendMessage(Colors.msg(plugin, "targetMustBeOnline"));
-                return;
+                return Check.DENIED;
             }
         }
 
@@ -153,26 +505,24 @@ public final class ReputationService {
                 played = (off != null && off.hasPlayedBefore());
             } catch (Throwable ignored) {
             }
+
             if (!played && (off == null || !off.isOnline())) {
                 voter.sendMessage(Colors.msg(plugin, "targetNeverPlayed"));
-                return;
+                return Check.DENIED;
             }
         }
 
         boolean bypassCooldown = voter.hasPermission("refontsocial.bypass.cooldown");
         boolean bypassInteraction = voter.hasPermission("refontsocial.bypass.interaction");
 
-        long now = System.currentTimeMillis();
-
         int globalCd = plugin.getConfig().getInt("antiAbuse.cooldowns.voteGlobalSeconds", 20);
         if (!bypassCooldown && globalCd > 0) {
-            String key = voter.getUniqueId().toString();
-            Long last = cooldownGlobal.get(key);
-            if (last != null) {
+            long last = cooldowns.lastGlobal(voter.getUniqueId(), now);
+            if (last >= 0L) {
                 long left = (last + globalCd * 1000L) - now;
                 if (left > 0) {
                     voter.sendMessage(Colors.msg(plugin, "cooldownGlobal", "%seconds%", String.valueOf(left / 1000L + 1)));
-                    return;
+                    return Check.DENIED;
                 }
             }
         }
@@ -183,7 +533,7 @@ public final class ReputationService {
             long validMs = Math.max(1, validSeconds) * 1000L;
             if (!interactionTracker.hasRecentInteraction(voter.getUniqueId(), target, validMs)) {
                 voter.sendMessage(Colors.msg(plugin, "interactionRequired"));
-                return;
+                return Check.DENIED;
             }
         }
 
@@ -191,10 +541,13 @@ public final class ReputationService {
         if (!bypassCooldown && dailyLimit) {
             int maxPerDay = plugin.getConfig().getInt("antiAbuse.dailyLimit.maxVotesPerDay", 20);
             if (maxPerDay > 0) {
-                int used = storage.countVotesByVoterSince(voter.getUniqueId(), NumberUtil.startOfTodayMillis());
+                rollDay(now);
+                int used = warm
+                        ? dailyCounter.get(voter.getUniqueId())
+                        : storage.countVotesByVoterSince(voter.getUniqueId(), dailyCounter.getDayStart());
                 if (used >= maxPerDay) {
                     voter.sendMessage(Colors.msg(plugin, "dailyLimit", "%limit%", String.valueOf(maxPerDay)));
-                    return;
+                    return Check.DENIED;
                 }
             }
         }
@@ -202,32 +555,118 @@ public final class ReputationService {
         int sameTargetCd = plugin.getConfig().getInt("antiAbuse.cooldowns.sameTargetSeconds", 600);
         int changeVoteCd = plugin.getConfig().getInt("antiAbuse.cooldowns.changeVoteSeconds", 1800);
 
-        Storage.VoteState state = storage.getVoteState(voter.getUniqueId(), target);
+        long lastTime;
+        int lastValue;
+        if (warm) {
+            lastTime = cooldowns.lastVoteTime(voter.getUniqueId(), target, now);
+            lastValue = cooldowns.lastVoteValue(voter.getUniqueId(), target, now);
+        } else {
+            Storage.VoteState state = storage.getVoteState(voter.getUniqueId(), target);
+            lastTime = state != null && state.lastTime != null ? state.lastTime : -1L;
+            lastValue = state != null && state.value != null ? state.value : -1;
+        }
 
-        if (isIpBlocked(voter, target, state, now)) {
-            return;
+        if (isIpBlocked(voter, target, lastTime, now)) {
+            return Check.DENIED;
         }
 
-        if (!bypassCooldown && state != null) {
+        // ring mates may still take back a vote, only new ones are refused. A pair in the index (or read cold
+        // above) has a known value; an older vote has aged out of the index and is looked up off the main thread
+        boolean ringPending = false;
+        if (ringDetector.isQuarantined(voter.getUniqueId(), target)) {
+            if (lastTime >= 0L || !warm) {
+                if (lastValue != (like ? 1 : 0)) {
+                    voter.sendMessage(Colors.msg(plugin, "ringQuarantined"));
+                    return Check.DENIED;
+                }
+            } else {
+                ringPending = true;
+            }
+        }
+
+        if (!bypassCooldown && lastTime >= 0L) {
             if (sameTargetCd > 0) {
-                long left = (state.lastTime + sameTargetCd * 1000L) - now;
+                long left = (lastTime + sameTargetCd * 1000L) - now;
                 if (left > 0) {
                     voter.sendMessage(Colors.msg(plugin, "cooldownTarget", "%seconds%", String.valueOf(left / 1000L + 1)));
-                    return;
+                    return Check.DENIED;
                 }
             }
 
-            if (state.value != null && state.value != (like ? 1 : 0) && changeVoteCd > 0) {
-                long left = (state.lastTime + changeVoteCd * 1000L) - now;
+            if (lastValue >= 0 && lastValue != (like ? 1 : 0) && changeVoteCd > 0) {
+                long left = (lastTime + changeVoteCd * 1000L) - now;
                 if (left > 0) {
                     voter.sendMessage(Colors.msg(plugin, "cooldownChangeVote", "%seconds%", String.valueOf(left / 1000L + 1)));
-                    return;
+                    return Check.DENIED;
                 }
             }
         }
-        cooldownGlobal.put(voter.getUniqueId().toString(), now);
+
+        return ringPending ? Check.RING_PENDING : Check.ALLOWED;
+    }
+
+    // a pending ring check only takes the global cooldown; the pair is recorded once the vote is applied
+    private void markVoted(Player voter, UUID target, boolean like, long now, Check check) {
+        int value = like ? 1 : 0;
+        int lastValue = cooldowns.lastVoteValue(voter.getUniqueId(), target, now);
+
+        indexed(() -> {
+            cooldowns.markGlobal(voter.getUniqueId(), now);
+            if (check != Check.RING_PENDING) {
+                cooldowns.recordVote(voter.getUniqueId(), target, lastValue == value ? null : value, now);
+            }
+        });
+    }
+
+    // blocking; the same value again takes the vote back
+    private boolean isRemoval(UUID voter, UUID target, boolean like) {
+        Storage.VoteState state = storage.getVoteState(voter, target);
+        return state != null && state.value != null && state.value == (like ? 1 : 0);
+    }
+
+    // blocking; the quarantine decision for a pair the index no longer holds
+    private boolean ringVoteAllowed(Player voter, UUID target, boolean like) {
+        if (!ringDetector.isQuarantined(voter.getUniqueId(), target) || isRemoval(voter.getUniqueId(), target, like)) {
+            return true;
+        }
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            if (voter.isOnline()) voter.sendMessage(Colors.msg(plugin, "ringQuarantined"));
+        });
+        return false;
+    }
+
+    private void onVoteApplied(UUID voter, UUID target, int value, long now, Storage.VoteResult result) {
+        rollDay(now);
+        indexed(() -> {
+            cooldowns.recordVote(voter, target, result == Storage.VoteResult.REMOVED ? null : value, now);
+            dailyCounter.record(voter, target, result, now);
+        });
+        if (result != Storage.VoteResult.REMOVED) {
+            ringDetector.submit(voter, target, value, now);
+        }
+
+        // applyVote scored the raw counters; a flagged target keeps its ring mates' votes out
+        Set<UUID> excluded = ringDetector.quarantinedVoters(target);
+        if (!excluded.isEmpty() && storage instanceof ScoreStorage) {
+            ((ScoreStorage) storage).rescore(target, excluded);
+        }
+        cache.remove(target);
+        profileVersion.incrementAndGet();
+        profiles.remove(target);
+    }
+
+    public void voteWithReason(Player voter, UUID target, String targetName, boolean like, String reasonTagKey) {
+        if (voter == null || target == null) return;
+
+        long now = System.currentTimeMillis();
+        Check check = checkVote(voter, target, like, now);
+        if (check == Check.DENIED) return;
+
+        markVoted(voter, target, like, now, check);
 
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            if (check == Check.RING_PENDING && !ringVoteAllowed(voter, target, like)) return;
+
             Storage.VoteResult result = storage.applyVote(
                     voter.getUniqueId(),
                     target,
@@ -237,9 +676,10 @@ public final class ReputationService {
                     reasonTagKey
             );
 
-            cache.remove(target);
+            onVoteApplied(voter.getUniqueId(), target, like ? 1 : 0, now, result);
 
             PlayerRep rep = getOrCreate(target, targetName != null ? targetName : "Игрок");
+            fireRepChanged(rep);
             String score = NumberUtil.formatScore(plugin, rep.getScore());
 
             Bukkit.getScheduler().runTask(plugin, () -> {
@@ -273,103 +713,9 @@ public final class ReputationService {
     public void vote(Player voter, UUID target, String targetName, boolean like) {
         if (voter == null || target == null) return;
 
-        boolean preventSelf = plugin.getConfig().getBoolean("antiAbuse.preventSelfVote", true);
-        if (preventSelf && voter.getUniqueId().equals(target)) {
-            voter.sendMessage(Colors.msg(plugin, "selfVoteDenied"));
-            return;
-        }
-
-        boolean requireHasPlayedBefore = plugin.getConfig().getBoolean("antiAbuse.targetEligibility.requireHasPlayedBefore", true);
-        boolean requireTargetOnline = plugin.getConfig().getBoolean("antiAbuse.targetEligibility.requireTargetOnline", false);
-
-        OfflinePlayer off = Bukkit.getOfflinePlayer(target);
-
-        if (requireTargetOnline) {
-            if (off == null || !off.isOnline()) {
-                voter.sendMessage(Colors.msg(plugin, "targetMustBeOnline"));
-                return;
-            }
-        }
-
-        if (requireHasPlayedBefore) {
-            boolean played = false;
-            try {
-                played = (off != null && off.hasPlayedBefore());
-            } catch (Throwable ignored) {
-            }
-
-            if (!played && (off == null || !off.isOnline())) {
-                voter.sendMessage(Colors.msg(plugin, "targetNeverPlayed"));
-                return;
-            }
-        }
-
-        boolean bypassCooldown = voter.hasPermission("refontsocial.bypass.cooldown");
-        boolean bypassInteraction = voter.hasPermission("refontsocial.bypass.interaction");
-
         long now = System.currentTimeMillis();
-
-        int globalCd = plugin.getConfig().getInt("antiAbuse.cooldowns.voteGlobalSeconds", 20);
-        if (!bypassCooldown && globalCd > 0) {
-            String key = voter.getUniqueId().toString();
-            Long last = cooldownGlobal.get(key);
-            if (last != null) {
-                long left = (last + globalCd * 1000L) - now;
-                if (left > 0) {
-                    voter.sendMessage(Colors.msg(plugin, "cooldownGlobal", "%seconds%", String.valueOf(left / 1000L + 1)));
-                    return;
-                }
-            }
-        }
-
-        boolean requireInteraction = plugin.getConfig().getBoolean("antiAbuse.requireInteraction.enabled", true);
-        if (!bypassInteraction && requireInteraction && interactionTracker != null) {
-            long validSeconds = plugin.getConfig().getLong("antiAbuse.requireInteraction.interactionValidSeconds", 600);
-            long validMs = Math.max(1, validSeconds) * 1000L;
-            if (!interactionTracker.hasRecentInteraction(voter.getUniqueId(), target, validMs)) {
-                voter.sendMessage(Colors.msg(plugin, "interactionRequired"));
-                return;
-            }
-        }
-
-        boolean dailyLimit = plugin.getConfig().getBoolean("antiAbuse.dailyLimit.enabled", true);
-        if (!bypassCooldown && dailyLimit) {
-            int maxPerDay = plugin.getConfig().getInt("antiAbuse.dailyLimit.maxVotesPerDay", 20);
-            if (maxPerDay > 0) {
-                int used = storage.countVotesByVoterSince(voter.getUniqueId(), NumberUtil.startOfTodayMillis());
-                if (used >= maxPerDay) {
-                    voter.sendMessage(Colors.msg(plugin, "dailyLimit", "%limit%", String.valueOf(maxPerDay)));
-                    return;
-                }
-            }
-        }
-
-        int sameTargetCd = plugin.getConfig().getInt("antiAbuse.cooldowns.sameTargetSeconds", 600);
-        int changeVoteCd = plugin.getConfig().getInt("antiAbuse.cooldowns.changeVoteSeconds", 1800);
-
-        Storage.VoteState state = storage.getVoteState(voter.getUniqueId(), target);
-
-        if (isIpBlocked(voter, target, state, now)) {
-            return;
-        }
-
-        if (!bypassCooldown && state != null) {
-            if (sameTargetCd > 0) {
-                long left = (state.lastTime + sameTargetCd * 1000L) - now;
-                if (left > 0) {
-                    voter.sendMessage(Colors.msg(plugin, "cooldownTarget", "%seconds%", String.valueOf(left / 1000L + 1)));
-                    return;
-                }
-            }
-
-            if (state.value != null && state.value != (like ? 1 : 0) && changeVoteCd > 0) {
-                long left = (state.lastTime + changeVoteCd * 1000L) - now;
-                if (left > 0) {
-                    voter.sendMessage(Colors.msg(plugin, "cooldownChangeVote", "%seconds%", String.valueOf(left / 1000L + 1)));
-                    return;
-                }
-            }
-        }
+        Check check = checkVote(voter, target, like, now);
+        if (check == Check.DENIED) return;
 
         boolean reasonsEnabled = plugin.getConfig().getBoolean("reasons.enabled", true);
         boolean requireReason = plugin.getConfig().getBoolean("reasons.requireReason", false);
@@ -379,9 +725,21 @@ public final class ReputationService {
             return;
         }
 
-        String reason = null;
+        markVoted(voter, target, like, now, check);
+
+        if (check == Check.RING_PENDING) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                if (!ringVoteAllowed(voter, target, like)) return;
+                Bukkit.getScheduler().runTask(plugin, () -> applyVote(voter, target, targetName, like, now));
+            });
+            return;
+        }
+
+        applyVote(voter, target, targetName, like, now);
+    }
 
-        cooldownGlobal.put(voter.getUniqueId().toString(), now);
+    private void applyVote(Player voter, UUID target, String targetName, boolean like, long now) {
+        String reason = null;
 
         Storage.VoteResult result = storage.applyVote(
                 voter.getUniqueId(),
@@ -392,9 +750,10 @@ public final class ReputationService {
                 reason
         );
 
-        cache.remove(target);
+        onVoteApplied(voter.getUniqueId(), target, like ? 1 : 0, now, result);
 
         PlayerRep rep = getOrCreate(target, targetName != null ? targetName : "Player");
+        fireRepChanged(rep);
         String score = NumberUtil.formatScore(plugin, rep.getScore());
 
         if (result == Storage.VoteResult.CREATED) {
@@ -426,6 +785,20 @@ public final class ReputationService {
         return uuid.toString().substring(0, 8);
     }
 
+    private static final class ProfileEntry {
+        private final ProfileData data;
+        private final long time;
+        private final int tagLimit;
+        private final int historyLimit;
+
+        private ProfileEntry(ProfileData data, long time, int tagLimit, int historyLimit) {
+            this.data = data;
+            this.time = time;
+            this.tagLimit = tagLimit;
+            this.historyLimit = historyLimit;
+        }
+    }
+
     private static final class CacheEntry {
         private final PlayerRep rep;
         private final long time;
@@ -0,0 +1,104 @@
+package ru.rizonchik.refontsocial.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import ru.rizonchik.refontsocial.RefontSocial;
+import ru.rizonchik.refontsocial.storage.ScoreStorage;
+import ru.rizonchik.refontsocial.util.NumberUtil;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// recomputes stored scores in the background when the rating settings differ from the ones they were computed with
+public final class RescoreService {
+
+    public static final class Result {
+        public final long players;
+        public final long millis;
+
+        public Result(long players, long millis) {
+            this.players = players;
+            this.millis = millis;
+        }
+    }
+
+    private final RefontSocial plugin;
+    private final ScoreStorage storage;
+    private final ReentrantLock running = new ReentrantLock();
+
+    private BukkitTask task;
+    private volatile boolean closed;
+
+    public RescoreService(RefontSocial plugin, ScoreStorage storage) {
+        this.plugin = plugin;
+        this.storage = storage;
+    }
+
+    public void start() {
+        if (!plugin.getConfig().getBoolean("rating.recomputeOnChange", true)) return;
+
+        task = Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                String current = NumberUtil.scoreFingerprint(plugin);
+                String stored = storage.getScoreFingerprint();
+                if (current.equals(stored)) return;
+
+                if (stored != null) {
+                    plugin.getLogger().info("Rating settings changed (" + stored + " -> " + current + "), recomputing scores in the background...");
+                }
+                runNow();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Score recompute failed: " + e.getMessage());
+            }
+        });
+    }
+
+    // the recompute is one statement (one write lock in memory) and cannot stop halfway, so this waits for it:
+    // the storage is closed right after this returns
+    public void shutdown() {
+        closed = true;
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        if (!running.tryLock()) {
+            plugin.getLogger().info("Waiting for the score recompute to finish...");
+            running.lock();
+        }
+        running.unlock();
+    }
+
+    public boolean isRunning() {
+        return running.isLocked();
+    }
+
+    // blocking; call off the main thread. Returns null if a recomputation is already in progress or the service is shut down
+    public Result runNow() {
+        if (!running.tryLock()) return null;
+        try {
+            if (closed) return null;
+
+            long started = System.currentTimeMillis();
+            long players = storage.recomputeScores(NumberUtil.scoreFingerprint(plugin));
+
+            // the full pass counted every vote; flagged rings get theirs taken out again
+            ReputationService reputation = plugin.getReputationService();
+            if (reputation != null && !closed) reputation.rescoreQuarantined(reputation.getRingDetector().getQuarantinedPlayers());
+
+            Result result = new Result(players, System.currentTimeMillis() - started);
+
+            if (result.players > 0) {
+                plugin.getLogger().info("Scores recomputed: " + result.players + " players in " + result.millis + " ms");
+                if (plugin.isEnabled()) Bukkit.getScheduler().runTask(plugin, this::dropCachedScores);
+            }
+            return result;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private void dropCachedScores() {
+        if (plugin.getReputationService() != null) plugin.getReputationService().invalidateScores();
+        if (plugin.getGuiService() != null) plugin.getGuiService().getTopPages().clear();
+    }
+}
@@ -0,0 +1,360 @@
+package ru.rizonchik.refontsocial.service;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public final class RingDetector {
+
+    public static final class Cluster {
+        public final int id;
+        public final Set<UUID> members;
+        public final long firstSeen;
+        public final long lastSeen;
+
+        public Cluster(int id, Set<UUID> members, long firstSeen, long lastSeen) {
+            this.id = id;
+            this.members = members;
+            this.firstSeen = firstSeen;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    public static final class Burst {
+        public final UUID target;
+        public final int likes;
+        public final long spanMillis;
+        public final long time;
+
+        public Burst(UUID target, int likes, long spanMillis, long time) {
+            this.target = target;
+            this.likes = likes;
+            this.spanMillis = spanMillis;
+            this.time = time;
+        }
+    }
+
+    private static final class VoteEvent {
+        private final UUID voter;
+        private final UUID target;
+        private final long time;
+
+        private VoteEvent(UUID voter, UUID target, long time) {
+            this.voter = voter;
+            this.target = target;
+            this.time = time;
+        }
+    }
+
+    private static final class Node {
+        private final UUID[] out;
+        private final long[] outTime;
+        private int outHead;
+
+        private final long[] inTime;
+        private int inHead;
+        private int inCount;
+
+        private final Map<UUID, Long> mutual = new HashMap<>();
+
+        private Node(int edges, int burstLikes) {
+            this.out = new UUID[edges];
+            this.outTime = new long[edges];
+            this.inTime = new long[burstLikes];
+        }
+
+        private void addOut(UUID target, long time) {
+            for (int i = 0; i < out.length; i++) {
+                if (target.equals(out[i])) {
+                    outTime[i] = time;
+                    return;
+                }
+            }
+            out[outHead] = target;
+            outTime[outHead] = time;
+            outHead = (outHead + 1) % out.length;
+        }
+
+        private boolean hasOut(UUID target, long since) {
+            for (int i = 0; i < out.length; i++) {
+                if (outTime[i] >= since && target.equals(out[i])) return true;
+            }
+            return false;
+        }
+
+        private long addIn(long time) {
+            inTime[inHead] = time;
+            inHead = (inHead + 1) % inTime.length;
+            if (inCount < inTime.length) inCount++;
+            return inCount == inTime.length ? inTime[inHead] : -1L;
+        }
+
+        private void addMutual(UUID other, long time, int limit) {
+            if (!mutual.containsKey(other) && mutual.size() >= limit) {
+                UUID oldest = null;
+                long oldestTime = Long.MAX_VALUE;
+                for (Map.Entry<UUID, Long> e : mutual.entrySet()) {
+                    if (e.getValue() < oldestTime) {
+                        oldestTime = e.getValue();
+                        oldest = e.getKey();
+                    }
+                }
+                if (oldest != null) mutual.remove(oldest);
+            }
+            mutual.put(other, time);
+        }
+    }
+
+    private final JavaPlugin plugin;
+
+    private final boolean enabled;
+    private final boolean quarantine;
+    private final long windowMillis;
+    private final int maxTracked;
+    private final int edgesPerPlayer;
+    private final int minClusterSize;
+    private final int maxClusterScan;
+    private final int maxFlagged;
+    private final int burstLikes;
+    private final long burstWindowMillis;
+    private final int maxQueue;
+
+    private final Queue<VoteEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    private final Map<UUID, Integer> clusterOf = new ConcurrentHashMap<>();
+
+    private final LinkedHashMap<UUID, Node> nodes;
+    private final LinkedHashMap<Integer, Cluster> clusters = new LinkedHashMap<>();
+    private final LinkedHashMap<UUID, Burst> bursts = new LinkedHashMap<>();
+    private int nextClusterId = 1;
+
+    private volatile Consumer<Set<UUID>> quarantineListener;
+    private BukkitTask task;
+
+    public RingDetector(JavaPlugin plugin) {
+        this.plugin = plugin;
+
+        String base = "antiAbuse.rings.";
+        this.enabled = plugin.getConfig().getBoolean(base + "enabled", true);
+        this.quarantine = plugin.getConfig().getBoolean(base + "quarantine", false);
+        this.windowMillis = Math.max(60L, plugin.getConfig().getLong(base + "windowSeconds", 86400L)) * 1000L;
+        this.maxTracked = Math.max(100, plugin.getConfig().getInt(base + "maxTrackedPlayers", 20000));
+        this.edgesPerPlayer = Math.max(4, plugin.getConfig().getInt(base + "edgesPerPlayer", 32));
+        this.minClusterSize = Math.max(2, plugin.getConfig().getInt(base + "minClusterSize", 3));
+        this.maxClusterScan = Math.max(minClusterSize, plugin.getConfig().getInt(base + "maxClusterSize", 64));
+        this.maxFlagged = Math.max(1, plugin.getConfig().getInt(base + "maxFlagged", 200));
+        this.burstLikes = Math.max(2, plugin.getConfig().getInt(base + "burst.likes", 8));
+        this.burstWindowMillis = Math.max(1L, plugin.getConfig().getLong(base + "burst.windowSeconds", 600L)) * 1000L;
+        this.maxQueue = Math.max(100, plugin.getConfig().getInt(base + "maxQueue", 10000));
+
+        final int cap = maxTracked;
+        this.nodes = new LinkedHashMap<UUID, Node>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Node> eldest) {
+                return size() > cap;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void start() {
+        if (!enabled) return;
+        task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::drain, 20L, 20L);
+    }
+
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        queue.clear();
+        queued.set(0);
+    }
+
+    public void submit(UUID voter, UUID target, int value, long time) {
+        if (!enabled || value != 1) return;
+
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.add(new VoteEvent(voter, target, time));
+    }
+
+    public boolean isQuarantined(UUID voter, UUID target) {
+        if (!enabled || !quarantine) return false;
+
+        Integer a = clusterOf.get(voter);
+        if (a == null) return false;
+        return a.equals(clusterOf.get(target));
+    }
+
+    // told which players joined, changed or left a quarantined cluster, i.e. whose score has to be recounted
+    public void setQuarantineListener(Consumer<Set<UUID>> listener) {
+        this.quarantineListener = listener;
+    }
+
+    // the ring mates whose votes for this player do not count towards its score
+    public synchronized Set<UUID> quarantinedVoters(UUID target) {
+        if (!enabled || !quarantine) return Collections.emptySet();
+
+        Integer id = clusterOf.get(target);
+        Cluster c = id != null ? clusters.get(id) : null;
+        if (c == null) return Collections.emptySet();
+
+        Set<UUID> out = new HashSet<>(c.members);
+        out.remove(target);
+        return out;
+    }
+
+    public synchronized Set<UUID> getQuarantinedPlayers() {
+        if (!enabled || !quarantine) return Collections.emptySet();
+        return new HashSet<>(clusterOf.keySet());
+    }
+
+    public int getDropped() {
+        return dropped.get();
+    }
+
+    public synchronized List<Cluster> getClusters() {
+        List<Cluster> out = new ArrayList<>();
+        for (Cluster c : clusters.values()) {
+            out.add(new Cluster(c.id, new HashSet<>(c.members), c.firstSeen, c.lastSeen));
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    public synchronized List<Burst> getBursts() {
+        List<Burst> out = new ArrayList<>(bursts.values());
+        Collections.reverse(out);
+        return out;
+    }
+
+    public synchronized void clearFlags() {
+        Set<UUID> released = new HashSet<>(clusterOf.keySet());
+        clusters.clear();
+        bursts.clear();
+        clusterOf.clear();
+        notifyQuarantine(released);
+    }
+
+    // package-private so tests can process submitted votes without the scheduler
+    void drain() {
+        VoteEvent e;
+        synchronized (this) {
+            while ((e = queue.poll()) != null) {
+                queued.decrementAndGet();
+                process(e);
+            }
+        }
+    }
+
+    private Node node(UUID uuid) {
+        Node n = nodes.get(uuid);
+        if (n == null) {
+            n = new Node(edgesPerPlayer, burstLikes);
+            nodes.put(uuid, n);
+        }
+        return n;
+    }
+
+    private void process(VoteEvent e) {
+        if (e.voter.equals(e.target)) return;
+
+        Node voter = node(e.voter);
+        Node target = node(e.target);
+
+        voter.addOut(e.target, e.time);
+
+        long oldest = target.addIn(e.time);
+        if (oldest >= 0L && e.time - oldest <= burstWindowMillis) {
+            bursts.remove(e.target);
+            bursts.put(e.target, new Burst(e.target, burstLikes, e.time - oldest, e.time));
+            while (bursts.size() > maxFlagged) {
+                bursts.remove(bursts.keySet().iterator().next());
+            }
+        }
+
+        if (target.hasOut(e.voter, e.time - windowMillis)) {
+            voter.addMutual(e.target, e.time, edgesPerPlayer);
+            target.addMutual(e.voter, e.time, edgesPerPlayer);
+            detectCluster(e.voter, e.time);
+        }
+    }
+
+    private void detectCluster(UUID start, long now) {
+        long since = now - windowMillis;
+
+        Set<UUID> members = new HashSet<>();
+        Deque<UUID> pending = new ArrayDeque<>();
+        pending.add(start);
+        members.add(start);
+
+        while (!pending.isEmpty() && members.size() < maxClusterScan) {
+            Node n = nodes.get(pending.poll());
+            if (n == null) continue;
+
+            for (Map.Entry<UUID, Long> edge : n.mutual.entrySet()) {
+                if (edge.getValue() < since) continue;
+                if (members.add(edge.getKey())) pending.add(edge.getKey());
+                if (members.size() >= maxClusterScan) break;
+            }
+        }
+
+        if (members.size() < minClusterSize) return;
+
+        long firstSeen = now;
+        int known = 0;
+        Set<Integer> merged = new HashSet<>();
+        for (UUID m : members) {
+            Integer id = clusterOf.get(m);
+            if (id != null) merged.add(id);
+        }
+
+        for (Integer id : merged) {
+            Cluster old = clusters.remove(id);
+            if (old == null) continue;
+            firstSeen = Math.min(firstSeen, old.firstSeen);
+            known = Math.max(known, old.members.size());
+            members.addAll(old.members);
+        }
+
+        int id = merged.isEmpty() ? nextClusterId++ : Collections.min(merged);
+        clusters.put(id, new Cluster(id, members, firstSeen, now));
+        for (UUID m : members) clusterOf.put(m, id);
+
+        Set<UUID> released = new HashSet<>();
+        while (clusters.size() > maxFlagged) {
+            Iterator<Map.Entry<Integer, Cluster>> it = clusters.entrySet().iterator();
+            Cluster evicted = it.next().getValue();
+            it.remove();
+            for (UUID m : evicted.members) {
+                if (clusterOf.remove(m, evicted.id)) released.add(m);
+            }
+        }
+        notifyQuarantine(released);
+
+        if (members.size() <= known || !clusters.containsKey(id)) return;
+        plugin.getLogger().warning("Vote ring #" + id + " flagged: " + members.size() + " accounts with reciprocal likes");
+        notifyQuarantine(members);
+    }
+
+    private void notifyQuarantine(Set<UUID> players) {
+        Consumer<Set<UUID>> listener = quarantineListener;
+        if (listener == null || !quarantine || players.isEmpty()) return;
+        listener.accept(new HashSet<>(players));
+    }
+}
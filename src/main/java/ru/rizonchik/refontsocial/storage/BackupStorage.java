@@ -0,0 +1,19 @@
+package ru.rizonchik.refontsocial.storage;
+
+import java.io.File;
+
+// backends whose whole state lives in one file that can be copied while the server runs
+public interface BackupStorage {
+
+    // file extension of the copies, without the dot
+    String backupExtension();
+
+    // writes a consistent copy to target; safe to call from any thread while the storage is in use
+    void backupTo(File target);
+
+    // throws with a readable message if the copy is damaged or is not a copy of this backend
+    void verifyBackup(File backup);
+
+    // the live file that a restore replaces while the storage is closed
+    File dataFile();
+}
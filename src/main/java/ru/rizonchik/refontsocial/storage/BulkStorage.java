@@ -0,0 +1,33 @@
+package ru.rizonchik.refontsocial.storage;
+
+import ru.rizonchik.refontsocial.storage.model.BulkRow;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// chunked whole-table access for moving data between backends
+public interface BulkStorage {
+
+    enum Table {
+        PLAYERS,
+        VOTES,
+        TAGS,
+        VOTE_LOG
+    }
+
+    interface Progress {
+        void report(Table table, long done, long total, long rowsPerSecond);
+    }
+
+    long count(Table table);
+
+    // rows strictly after the cursor of a previously returned row, in a stable order; null starts at the beginning
+    List<BulkRow> read(Table table, String after, int limit);
+
+    // one forward pass over the whole table in no particular order, holding at most about fetchSize rows at a time
+    void scan(Table table, int fetchSize, Consumer<BulkRow> sink);
+
+    // one transaction per call; players, votes and tags are upserted and vote log rows already present are skipped,
+    // so writing the same chunk twice is harmless
+    void write(Table table, List<BulkRow> rows);
+}
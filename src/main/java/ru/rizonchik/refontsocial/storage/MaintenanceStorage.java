@@ -0,0 +1,16 @@
+package ru.rizonchik.refontsocial.storage;
+
+// background clean-up; every job commits chunk by chunk and can be stopped between chunks
+public interface MaintenanceStorage {
+
+    // drops vote log rows that are older than olderThanMillis and not among the newest keepPerTarget of their target,
+    // copying them to rs_vote_log_archive first when archive is set; returns the number of rows removed
+    long pruneVoteLog(int keepPerTarget, long olderThanMillis, boolean archive, Throttle throttle);
+
+    // drops player rows that were never seen on the server, have no votes either way and were not touched since
+    // untouchedSinceMillis (placeholder and command lookups create them); returns the number of rows removed
+    long purgePhantomPlayers(long untouchedSinceMillis, Throttle throttle);
+
+    // drops tag rows whose count went down to zero; returns the number of rows removed
+    long purgeEmptyTags(Throttle throttle);
+}
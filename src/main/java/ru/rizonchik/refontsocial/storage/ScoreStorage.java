@@ -0,0 +1,18 @@
+package ru.rizonchik.refontsocial.storage;
+
+import java.util.Collection;
+import java.util.UUID;
+
+// stored scores are computed at vote time; this brings all of them up to date after the rating settings change
+public interface ScoreStorage {
+
+    // fingerprint of the rating settings the stored scores were last recomputed with, null if unknown
+    String getScoreFingerprint();
+
+    // recomputes every stored score with the current settings and records the fingerprint; readers see either
+    // all old or all new scores. Returns the number of players updated
+    long recomputeScores(String fingerprint);
+
+    // recomputes one player's score leaving out the current votes of the given voters; counters stay as they are
+    void rescore(UUID target, Collection<UUID> excludedVoters);
+}
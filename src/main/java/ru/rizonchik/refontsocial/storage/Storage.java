@@ -1,8 +1,11 @@
 package ru.rizonchik.refontsocial.storage;
 
 import ru.rizonchik.refontsocial.storage.model.PlayerRep;
+import ru.rizonchik.refontsocial.storage.model.ProfileData;
 import ru.rizonchik.refontsocial.storage.model.VoteLogEntry;
+import ru.rizonchik.refontsocial.storage.model.VoteRecord;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -35,12 +38,18 @@ public interface Storage {
 
     String getLastKnownName(UUID uuid);
 
+    Map<UUID, String> getLastKnownNames(Collection<UUID> uuids);
+
+    Map<UUID, String> getNames();
+
     List<PlayerRep> getTop(int limit, int offset);
 
     List<PlayerRep> getTop(TopCategory category, int limit, int offset);
 
     VoteState getVoteState(UUID voter, UUID target);
 
+    List<VoteRecord> getVotesSince(long sinceMillis);
+
     VoteResult applyVote(UUID voter, UUID target, int value, long timeMillis, String targetName, String reason);
 
     int countVotesByVoterSince(UUID voter, long sinceMillis);
@@ -53,5 +62,9 @@ public interface Storage {
 
     List<VoteLogEntry> getRecentVotes(UUID target, int limit, boolean includeVoterName);
 
+    ProfileData loadProfile(UUID uuid, int tagLimit, int historyLimit, boolean includeVoterName);
+
     String getIpHash(UUID uuid);
+
+    Map<UUID, String> getIpHashes();
 }
\ No newline at end of file
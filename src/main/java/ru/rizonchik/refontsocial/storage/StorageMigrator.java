@@ -0,0 +1,88 @@
+package ru.rizonchik.refontsocial.storage;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import ru.rizonchik.refontsocial.storage.BulkStorage.Progress;
+import ru.rizonchik.refontsocial.storage.BulkStorage.Table;
+import ru.rizonchik.refontsocial.storage.model.BulkRow;
+import ru.rizonchik.refontsocial.util.YamlUtil;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+// copies every table chunk by chunk; the cursor of the last written chunk is checkpointed so a rerun resumes there
+public final class StorageMigrator {
+
+    private static final long REPORT_EVERY_MILLIS = 2000L;
+
+    private final BulkStorage from;
+    private final BulkStorage to;
+    private final File checkpointFile;
+    private final int chunkSize;
+
+    public StorageMigrator(BulkStorage from, BulkStorage to, File checkpointFile, int chunkSize) {
+        this.from = from;
+        this.to = to;
+        this.checkpointFile = checkpointFile;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public boolean isResuming() {
+        return checkpointFile.exists();
+    }
+
+    // returns the number of rows copied by this run
+    public long run(Progress progress) {
+        YamlConfiguration checkpoint = checkpointFile.exists()
+                ? YamlConfiguration.loadConfiguration(checkpointFile)
+                : new YamlConfiguration();
+
+        long started = System.currentTimeMillis();
+        long copied = 0;
+
+        for (Table table : Table.values()) {
+            String path = table.name().toLowerCase(Locale.ROOT);
+            if (checkpoint.getBoolean(path + ".done", false)) continue;
+
+            String cursor = checkpoint.getString(path + ".cursor", null);
+            long done = checkpoint.getLong(path + ".rows", 0L);
+            long total = from.count(table);
+            long lastReport = System.currentTimeMillis();
+
+            while (true) {
+                List<BulkRow> rows = from.read(table, cursor, chunkSize);
+                if (rows.isEmpty()) break;
+
+                to.write(table, rows);
+
+                cursor = rows.get(rows.size() - 1).cursor;
+                done += rows.size();
+                copied += rows.size();
+
+                checkpoint.set(path + ".cursor", cursor);
+                checkpoint.set(path + ".rows", done);
+                YamlUtil.saveAtomic(checkpointFile, checkpoint);
+
+                long now = System.currentTimeMillis();
+                if (now - lastReport >= REPORT_EVERY_MILLIS) {
+                    progress.report(table, done, total, rate(copied, started));
+                    lastReport = now;
+                }
+
+                if (rows.size() < chunkSize) break;
+            }
+
+            checkpoint.set(path + ".done", true);
+            YamlUtil.saveAtomic(checkpointFile, checkpoint);
+            progress.report(table, done, Math.max(done, total), rate(copied, started));
+        }
+
+        checkpointFile.delete();
+        return copied;
+    }
+
+    private static long rate(long rows, long started) {
+        long elapsed = Math.max(1L, System.currentTimeMillis() - started);
+        return rows * 1000L / elapsed;
+    }
+}
@@ -3,5 +3,7 @@ package ru.rizonchik.refontsocial.storage;
 public enum StorageType {
     SQLITE,
     MYSQL,
-    YAML
+    YAML,
+    LOG,
+    MAPPED
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package ru.rizonchik.refontsocial.storage;
+
+// pacing for background jobs that work in small transactions: a pause between chunks, and a way to stop between them
+public final class Throttle {
+
+    private final int chunkSize;
+    private final long pauseMillis;
+    private volatile boolean cancelled;
+
+    public Throttle(int chunkSize, long pauseMillis) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pauseMillis = Math.max(0L, pauseMillis);
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // call after each committed chunk; false means stop
+    public boolean pause() {
+        if (cancelled) return false;
+        if (pauseMillis > 0) {
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+        }
+        return !cancelled;
+    }
+}
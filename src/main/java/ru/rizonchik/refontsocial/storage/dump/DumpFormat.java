@@ -0,0 +1,16 @@
+package ru.rizonchik.refontsocial.storage.dump;
+
+public enum DumpFormat {
+    NDJSON("ndjson"),
+    CSV("csv");
+
+    private final String extension;
+
+    DumpFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,367 @@
+package ru.rizonchik.refontsocial.storage.dump;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.rizonchik.refontsocial.storage.BulkStorage;
+import ru.rizonchik.refontsocial.storage.BulkStorage.Progress;
+import ru.rizonchik.refontsocial.storage.BulkStorage.Table;
+import ru.rizonchik.refontsocial.storage.model.BulkRow;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// gzip NDJSON/CSV dumps with the same column names as the SQL tables; rows are streamed, never collected
+public final class StorageDump {
+
+    private static final int BUFFER = 1 << 16;
+    private static final long REPORT_EVERY_MILLIS = 2000L;
+
+    private static final Set<String> NUMERIC = new HashSet<>(Arrays.asList(
+            "likes", "dislikes", "score", "seen", "value", "last_time", "count", "time"
+    ));
+
+    private StorageDump() {
+    }
+
+    public static String fileName(Table table, DumpFormat format) {
+        return tableName(table) + "." + format.getExtension() + ".gz";
+    }
+
+    public static long export(BulkStorage storage, Table table, DumpFormat format, File file, int fetchSize, Progress progress) {
+        String[] columns = columns(table);
+        long total = storage.count(table);
+        File tmp = new File(file.getPath() + ".tmp");
+
+        Counter counter = new Counter(table, total, progress);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(tmp), BUFFER), StandardCharsets.UTF_8), BUFFER)) {
+
+            if (format == DumpFormat.CSV) {
+                writeCsv(out, columns);
+                storage.scan(table, fetchSize, row -> {
+                    writeCsv(out, values(table, row));
+                    counter.add(1);
+                });
+            } else {
+                JsonWriter json = new JsonWriter(out);
+                json.setLenient(true); // one top-level object per line
+                storage.scan(table, fetchSize, row -> {
+                    writeJson(json, out, columns, values(table, row));
+                    counter.add(1);
+                });
+                json.flush();
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        counter.finish();
+        return counter.done;
+    }
+
+    // rows go to storage.write in batches of batchSize, i.e. one JDBC batch and transaction each on SQL backends;
+    // players without a score get defaultScore, the configured neutral score
+    public static long load(BulkStorage storage, Table table, DumpFormat format, File file, int batchSize,
+                            double defaultScore, Progress progress) {
+        String[] columns = columns(table);
+        int size = Math.max(1, batchSize);
+
+        Counter counter = new Counter(table, -1L, progress);
+        List<BulkRow> batch = new ArrayList<>(size);
+
+        try (Reader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(file), BUFFER), StandardCharsets.UTF_8), BUFFER)) {
+
+            RowSource source = format == DumpFormat.CSV ? new CsvSource(in, columns) : new JsonSource(in, columns);
+            String[] values;
+            while ((values = source.next()) != null) {
+                batch.add(row(table, values, defaultScore));
+                if (batch.size() >= size) {
+                    storage.write(table, batch);
+                    counter.add(batch.size());
+                    batch.clear();
+                }
+            }
+            storage.write(table, batch);
+            counter.add(batch.size());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        counter.finish();
+        return counter.done;
+    }
+
+    private static String tableName(Table table) {
+        if (table == Table.PLAYERS) return "rs_players";
+        if (table == Table.VOTES) return "rs_votes";
+        if (table == Table.TAGS) return "rs_tags";
+        return "rs_vote_log";
+    }
+
+    private static String[] columns(Table table) {
+        if (table == Table.PLAYERS) return new String[]{"uuid", "name", "likes", "dislikes", "score", "seen", "ip_hash"};
+        if (table == Table.VOTES) return new String[]{"voter", "target", "value", "reason", "last_time"};
+        if (table == Table.TAGS) return new String[]{"target", "tag", "count"};
+        return new String[]{"target", "voter", "voter_name", "value", "reason", "time"};
+    }
+
+    private static String[] values(Table table, BulkRow r) {
+        if (table == Table.PLAYERS) {
+            return new String[]{r.uuid.toString(), r.name, String.valueOf(r.likes), String.valueOf(r.dislikes),
+                    String.valueOf(r.score), r.seen ? "1" : "0", r.ipHash};
+        }
+        if (table == Table.VOTES) {
+            return new String[]{r.voter.toString(), r.uuid.toString(), r.value != null ? String.valueOf(r.value) : null,
+                    r.reason, String.valueOf(r.time)};
+        }
+        if (table == Table.TAGS) {
+            return new String[]{r.uuid.toString(), r.reason, String.valueOf(r.count)};
+        }
+        return new String[]{r.uuid.toString(), r.voter != null ? r.voter.toString() : null, r.name,
+                String.valueOf(r.value != null ? r.value : 1), r.reason, String.valueOf(r.time)};
+    }
+
+    private static BulkRow row(Table table, String[] v, double defaultScore) {
+        if (table == Table.PLAYERS) {
+            return BulkRow.player(null, UUID.fromString(v[0]), v[1], toInt(v[2]), toInt(v[3]),
+                    v[4] != null ? Double.parseDouble(v[4]) : defaultScore, toInt(v[5]) == 1, v[6]);
+        }
+        if (table == Table.VOTES) {
+            return BulkRow.vote(null, UUID.fromString(v[0]), UUID.fromString(v[1]),
+                    v[2] != null ? Integer.valueOf(v[2]) : null, v[3], toLong(v[4]));
+        }
+        if (table == Table.TAGS) {
+            return BulkRow.tag(null, UUID.fromString(v[0]), v[1], toInt(v[2]));
+        }
+        return BulkRow.log(null, UUID.fromString(v[0]), v[1] != null ? UUID.fromString(v[1]) : null, v[2],
+                v[3] != null ? toInt(v[3]) : 1, v[4], toLong(v[5]));
+    }
+
+    private static int toInt(String s) {
+        return s != null ? Integer.parseInt(s) : 0;
+    }
+
+    private static long toLong(String s) {
+        return s != null ? Long.parseLong(s) : 0L;
+    }
+
+    private static void writeJson(JsonWriter json, Writer out, String[] columns, String[] values) {
+        try {
+            json.beginObject();
+            for (int i = 0; i < columns.length; i++) {
+                json.name(columns[i]);
+                if (values[i] == null) json.nullValue();
+                else if (NUMERIC.contains(columns[i])) json.jsonValue(values[i]);
+                else json.value(values[i]);
+            }
+            json.endObject();
+            out.write('\n');
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // null is an empty field, an empty string is ""
+    private static void writeCsv(Writer out, String[] values) {
+        try {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) out.write(',');
+                String v = values[i];
+                if (v == null) continue;
+
+                boolean quote = v.isEmpty();
+                for (int j = 0; j < v.length() && !quote; j++) {
+                    char c = v.charAt(j);
+                    quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+                }
+
+                if (!quote) {
+                    out.write(v);
+                    continue;
+                }
+                out.write('"');
+                out.write(v.replace("\"", "\"\""));
+                out.write('"');
+            }
+            out.write('\n');
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private interface RowSource {
+        // values in column order, or null at the end
+        String[] next() throws IOException;
+    }
+
+    private static final class JsonSource implements RowSource {
+
+        private final JsonReader json;
+        private final Map<String, Integer> index = new HashMap<>();
+        private final int width;
+
+        private JsonSource(Reader in, String[] columns) {
+            this.json = new JsonReader(in);
+            this.json.setLenient(true);
+            for (int i = 0; i < columns.length; i++) index.put(columns[i], i);
+            this.width = columns.length;
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            if (json.peek() == JsonToken.END_DOCUMENT) return null;
+
+            String[] values = new String[width];
+            json.beginObject();
+            while (json.hasNext()) {
+                Integer i = index.get(json.nextName());
+                if (i == null) {
+                    json.skipValue();
+                } else if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                } else {
+                    values[i] = json.nextString();
+                }
+            }
+            json.endObject();
+            return values;
+        }
+    }
+
+    private static final class CsvSource implements RowSource {
+
+        private final Reader in;
+        private final int[] mapping; // file column -> our column, -1 if unknown
+        private final int width;
+        private final StringBuilder field = new StringBuilder();
+        private boolean eof;
+
+        private CsvSource(Reader in, String[] columns) throws IOException {
+            this.in = in;
+            this.width = columns.length;
+
+            List<String> header = record();
+            if (header == null) header = Collections.emptyList();
+            this.mapping = new int[header.size()];
+            List<String> known = Arrays.asList(columns);
+            for (int i = 0; i < header.size(); i++) {
+                String name = header.get(i);
+                mapping[i] = name != null ? known.indexOf(name.trim()) : -1;
+            }
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            List<String> record;
+            do {
+                record = record();
+                if (record == null) return null;
+            } while (record.size() == 1 && record.get(0) == null); // blank line
+
+            String[] values = new String[width];
+            for (int i = 0; i < record.size() && i < mapping.length; i++) {
+                if (mapping[i] >= 0) values[mapping[i]] = record.get(i);
+            }
+            return values;
+        }
+
+        private List<String> record() throws IOException {
+            if (eof) return null;
+
+            List<String> out = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean inQuotes = false;
+
+            while (true) {
+                int c = in.read();
+                if (c < 0) {
+                    eof = true;
+                    if (out.isEmpty() && field.length() == 0 && !quoted) return null;
+                    out.add(quoted || field.length() > 0 ? field.toString() : null);
+                    return out;
+                }
+
+                if (inQuotes) {
+                    if (c != '"') {
+                        field.append((char) c);
+                        continue;
+                    }
+                    in.mark(1);
+                    int n = in.read();
+                    if (n == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        if (n >= 0) in.reset();
+                    }
+                    continue;
+                }
+
+                if (c == '"') {
+                    inQuotes = true;
+                    quoted = true;
+                } else if (c == ',') {
+                    out.add(quoted || field.length() > 0 ? field.toString() : null);
+                    field.setLength(0);
+                    quoted = false;
+                } else if (c == '\n') {
+                    out.add(quoted || field.length() > 0 ? field.toString() : null);
+                    return out;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+        }
+    }
+
+    private static final class Counter {
+
+        private final Table table;
+        private final long total;
+        private final Progress progress;
+        private final long started = System.currentTimeMillis();
+        private long lastReport = started;
+        private long done;
+
+        private Counter(Table table, long total, Progress progress) {
+            this.table = table;
+            this.total = total;
+            this.progress = progress;
+        }
+
+        private void add(int rows) {
+            done += rows;
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= REPORT_EVERY_MILLIS) {
+                progress.report(table, done, Math.max(done, total), rate(now));
+                lastReport = now;
+            }
+        }
+
+        private void finish() {
+            progress.report(table, done, done, rate(System.currentTimeMillis()));
+        }
+
+        private long rate(long now) {
+            return done * 1000L / Math.max(1L, now - started);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.rizonchik.refontsocial.storage.log;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+// append-file framing: [int length][payload][long crc32 of payload]
+public final class Frames {
+
+    public interface Handler {
+        void handle(DataInputStream payload) throws IOException;
+    }
+
+    private static final int MAX_FRAME = 16 * 1024 * 1024;
+    public static final int OVERHEAD = 12;
+
+    private Frames() {
+    }
+
+    public static ByteBuffer frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer buf = ByteBuffer.allocate(payload.length + OVERHEAD);
+        buf.putInt(payload.length);
+        buf.put(payload);
+        buf.putLong(crc.getValue());
+        buf.flip();
+        return buf;
+    }
+
+    // reads frames until EOF; a short or checksum-failed frame is a torn tail and, if asked, is cut off the file.
+    // a frame that checks out but cannot be decoded is real data this build does not understand: that one throws
+    public static int read(File file, Handler handler, boolean truncateTail, Logger logger) throws IOException {
+        if (!file.exists()) return 0;
+
+        int frames = 0;
+        long good = 0;
+        boolean torn = false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                byte[] payload;
+                try {
+                    if (len <= 0 || len > MAX_FRAME) throw new IOException("bad frame length " + len);
+
+                    payload = new byte[len];
+                    in.readFully(payload);
+                    long expected = in.readLong();
+
+                    CRC32 crc = new CRC32();
+                    crc.update(payload, 0, len);
+                    if (crc.getValue() != expected) throw new IOException("checksum mismatch");
+                } catch (IOException e) {
+                    torn = true;
+                    break;
+                }
+
+                try {
+                    handler.handle(new DataInputStream(new ByteArrayInputStream(payload)));
+                } catch (IOException | RuntimeException e) {
+                    throw new IOException(file.getName() + ": cannot decode record " + frames + " at offset " + good
+                            + " (" + e.getMessage() + "); the file was left as is", e);
+                }
+
+                good += len + OVERHEAD;
+                frames++;
+            }
+        }
+
+        if (torn) {
+            logger.warning(file.getName() + ": dropped a torn tail after " + frames + " records.");
+            if (truncateTail) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(good);
+                }
+            }
+        }
+        return frames;
+    }
+}
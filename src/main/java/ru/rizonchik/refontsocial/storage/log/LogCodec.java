@@ -0,0 +1,93 @@
+package ru.rizonchik.refontsocial.storage.log;
+
+import ru.rizonchik.refontsocial.storage.memory.MemoryStorage.LogData;
+import ru.rizonchik.refontsocial.storage.memory.MemoryStorage.PlayerData;
+import ru.rizonchik.refontsocial.storage.memory.MemoryStorage.VoteData;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+// field layout shared by journal records and snapshots
+public final class LogCodec {
+
+    public static final byte PLAYER = 1;
+    public static final byte VOTE = 2;
+    public static final byte TAG = 3;
+    public static final byte LOG = 4;
+
+    private LogCodec() {
+    }
+
+    public static void writePlayer(DataOutput out, PlayerData p) throws IOException {
+        writeUuid(out, p.uuid);
+        writeString(out, p.name);
+        out.writeInt(p.likes);
+        out.writeInt(p.dislikes);
+        out.writeDouble(p.score);
+        out.writeBoolean(p.seen);
+        writeString(out, p.ipHash);
+    }
+
+    public static PlayerData readPlayer(DataInput in) throws IOException {
+        PlayerData p = new PlayerData(readUuid(in));
+        p.name = readString(in);
+        p.likes = in.readInt();
+        p.dislikes = in.readInt();
+        p.score = in.readDouble();
+        p.seen = in.readBoolean();
+        p.ipHash = readString(in);
+        return p;
+    }
+
+    public static void writeVote(DataOutput out, VoteData v) throws IOException {
+        out.writeBoolean(v.value != null);
+        if (v.value != null) out.writeByte(v.value);
+        writeString(out, v.reason);
+        out.writeLong(v.lastTime);
+    }
+
+    public static VoteData readVote(DataInput in) throws IOException {
+        Integer value = in.readBoolean() ? (int) in.readByte() : null;
+        String reason = readString(in);
+        long lastTime = in.readLong();
+        return new VoteData(value, reason, lastTime);
+    }
+
+    public static void writeLog(DataOutput out, LogData e) throws IOException {
+        out.writeLong(e.time);
+        out.writeByte(e.value);
+        writeString(out, e.reason);
+        out.writeBoolean(e.voter != null);
+        if (e.voter != null) writeUuid(out, e.voter);
+        writeString(out, e.voterName);
+    }
+
+    public static LogData readLog(DataInput in) throws IOException {
+        long time = in.readLong();
+        int value = in.readByte();
+        String reason = readString(in);
+        UUID voter = in.readBoolean() ? readUuid(in) : null;
+        String voterName = readString(in);
+        return new LogData(time, value, reason, voter, voterName);
+    }
+
+    public static void writeUuid(DataOutput out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    public static UUID readUuid(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    public static void writeString(DataOutput out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
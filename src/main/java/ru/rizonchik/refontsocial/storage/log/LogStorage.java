@@ -0,0 +1,406 @@
+package ru.rizonchik.refontsocial.storage.log;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+import ru.rizonchik.refontsocial.storage.memory.MemoryStorage;
+import ru.rizonchik.refontsocial.storage.memory.VoteLogRing;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+// every operation is appended to journal-<gen>.log as one checksummed frame;
+// compaction writes the whole state to snapshot.bin and starts a new generation
+public final class LogStorage extends MemoryStorage {
+
+    private static final int SNAPSHOT_MAGIC = 0x52534E50;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private File dir;
+    private long compactAfterBytes;
+    private boolean fsync;
+
+    private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pending = new DataOutputStream(pendingBytes);
+
+    private FileChannel journal;
+    private long generation;
+    private long journalBytes;
+
+    private final Object compactLock = new Object();
+    private final AtomicBoolean compactQueued = new AtomicBoolean();
+    private boolean closed;
+
+    public LogStorage(JavaPlugin plugin) {
+        super(plugin);
+    }
+
+    @Override
+    public void init() {
+        dir = new File(plugin.getDataFolder(), plugin.getConfig().getString("storage.log.dir", "data-log"));
+        if (!dir.exists()) dir.mkdirs();
+
+        compactAfterBytes = Math.max(64L, plugin.getConfig().getLong("storage.log.compactAfterKb", 4096L)) * 1024L;
+        fsync = plugin.getConfig().getBoolean("storage.log.fsync", false);
+
+        lock.writeLock().lock();
+        try {
+            long start = loadSnapshot();
+
+            List<Long> gens = journalGenerations();
+            long last = start;
+            int frames = 0;
+            for (int i = 0; i < gens.size(); i++) {
+                long g = gens.get(i);
+                if (g < start) {
+                    journalFile(g).delete();
+                    continue;
+                }
+                frames += Frames.read(journalFile(g), this::applyFrame, i == gens.size() - 1, plugin.getLogger());
+                last = g;
+            }
+
+            generation = last;
+            openJournal(generation);
+
+            if (frames > 0) {
+                plugin.getLogger().info("Journal: replayed " + frames + " records on top of the snapshot.");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // a compact queued by committed() may still be waiting for compactLock; it sees closed and returns
+    @Override
+    public void close() {
+        synchronized (compactLock) {
+            if (journal == null) return;
+
+            try {
+                compact();
+            } finally {
+                closed = true;
+                try {
+                    journal.close();
+                } catch (IOException ignored) {
+                }
+                journal = null;
+            }
+        }
+    }
+
+    @Override
+    protected void playerChanged(PlayerData player) {
+        try {
+            pending.writeByte(LogCodec.PLAYER);
+            LogCodec.writePlayer(pending, player);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void voteChanged(UUID voter, UUID target, VoteData vote) {
+        try {
+            pending.writeByte(LogCodec.VOTE);
+            LogCodec.writeUuid(pending, voter);
+            LogCodec.writeUuid(pending, target);
+            LogCodec.writeVote(pending, vote);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void tagChanged(UUID target, String tag, int count) {
+        try {
+            pending.writeByte(LogCodec.TAG);
+            LogCodec.writeUuid(pending, target);
+            pending.writeUTF(tag);
+            pending.writeInt(count);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void logAppended(UUID target, LogData entry, int keep) {
+        try {
+            pending.writeByte(LogCodec.LOG);
+            LogCodec.writeUuid(pending, target);
+            pending.writeInt(keep);
+            LogCodec.writeLog(pending, entry);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void committed() {
+        if (pendingBytes.size() == 0) return;
+
+        ByteBuffer buf = Frames.frame(pendingBytes.toByteArray());
+        pendingBytes.reset();
+        int written = buf.remaining();
+
+        try {
+            while (buf.hasRemaining()) journal.write(buf);
+            if (fsync) journal.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        journalBytes += written;
+        if (journalBytes >= compactAfterBytes && plugin.isEnabled() && compactQueued.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().warning("Failed to compact the journal: " + e.getMessage());
+                } finally {
+                    compactQueued.set(false);
+                }
+            });
+        }
+    }
+
+    // the state is copied under the write lock; the file itself is written outside it
+    public void compact() {
+        synchronized (compactLock) {
+            if (closed) return;
+
+            byte[] body;
+            long next;
+
+            lock.writeLock().lock();
+            try {
+                body = snapshotBytes();
+                next = generation + 1;
+
+                journal.close();
+                generation = next;
+                openJournal(next);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            try {
+                writeSnapshot(body, next);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+
+            for (long g : journalGenerations()) {
+                if (g < next) journalFile(g).delete();
+            }
+        }
+    }
+
+    // replaces the whole state with the contents of data.yml; returns the number of imported players
+    public int importYaml(File source) {
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(source);
+        int imported;
+
+        lock.writeLock().lock();
+        try {
+            clearAll();
+            pendingBytes.reset();
+
+            readYaml(yaml);
+
+            imported = players.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        compact();
+        return imported;
+    }
+
+    private File journalFile(long gen) {
+        return new File(dir, "journal-" + gen + ".log");
+    }
+
+    private List<Long> journalGenerations() {
+        List<Long> out = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) return out;
+
+        for (File f : files) {
+            String n = f.getName();
+            if (!n.startsWith("journal-") || !n.endsWith(".log")) continue;
+            try {
+                out.add(Long.parseLong(n.substring(8, n.length() - 4)));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    private void openJournal(long gen) throws IOException {
+        journal = FileChannel.open(journalFile(gen).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journalBytes = journal.size();
+    }
+
+    private void applyFrame(DataInputStream in) throws IOException {
+        while (in.available() > 0) {
+            byte type = in.readByte();
+            if (type == LogCodec.PLAYER) {
+                putPlayer(LogCodec.readPlayer(in));
+            } else if (type == LogCodec.VOTE) {
+                UUID voter = LogCodec.readUuid(in);
+                UUID target = LogCodec.readUuid(in);
+                putVote(voter, target, LogCodec.readVote(in));
+            } else if (type == LogCodec.TAG) {
+                UUID target = LogCodec.readUuid(in);
+                String tag = in.readUTF();
+                putTag(target, tag, in.readInt());
+            } else if (type == LogCodec.LOG) {
+                UUID target = LogCodec.readUuid(in);
+                int keep = in.readInt();
+                appendLog(target, LogCodec.readLog(in), keep);
+            } else {
+                throw new IOException("unknown record type " + type);
+            }
+        }
+    }
+
+    private long loadSnapshot() throws IOException {
+        File file = new File(dir, "snapshot.bin");
+        if (!file.exists()) return 0L;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("snapshot.bin: bad magic");
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) throw new IOException("snapshot.bin: unsupported version " + version);
+
+            long nextGen = in.readLong();
+            int len = in.readInt();
+            byte[] body = new byte[len];
+            in.readFully(body);
+
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, len);
+            if (crc.getValue() != in.readLong()) throw new IOException("snapshot.bin: checksum mismatch");
+
+            readSnapshotBody(new DataInputStream(new ByteArrayInputStream(body)));
+            return nextGen;
+        }
+    }
+
+    private void readSnapshotBody(DataInputStream in) throws IOException {
+        int playerCount = in.readInt();
+        for (int i = 0; i < playerCount; i++) putPlayer(LogCodec.readPlayer(in));
+
+        int voterCount = in.readInt();
+        for (int i = 0; i < voterCount; i++) {
+            UUID voter = LogCodec.readUuid(in);
+            int n = in.readInt();
+            for (int j = 0; j < n; j++) {
+                UUID target = LogCodec.readUuid(in);
+                putVote(voter, target, LogCodec.readVote(in));
+            }
+        }
+
+        int tagTargets = in.readInt();
+        for (int i = 0; i < tagTargets; i++) {
+            UUID target = LogCodec.readUuid(in);
+            int n = in.readInt();
+            for (int j = 0; j < n; j++) {
+                String tag = in.readUTF();
+                putTag(target, tag, in.readInt());
+            }
+        }
+
+        int capacity = logCapacity();
+        int logTargets = in.readInt();
+        for (int i = 0; i < logTargets; i++) {
+            UUID target = LogCodec.readUuid(in);
+            int n = in.readInt();
+            for (int j = 0; j < n; j++) appendLog(target, LogCodec.readLog(in), capacity);
+        }
+    }
+
+    // caller holds the write lock
+    private byte[] snapshotBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(1024, players.size() * 96));
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(players.size());
+        for (PlayerData p : players.values()) LogCodec.writePlayer(out, p);
+
+        out.writeInt(votes.size());
+        for (Map.Entry<UUID, Map<UUID, VoteData>> byVoter : votes.entrySet()) {
+            LogCodec.writeUuid(out, byVoter.getKey());
+            out.writeInt(byVoter.getValue().size());
+            for (Map.Entry<UUID, VoteData> e : byVoter.getValue().entrySet()) {
+                LogCodec.writeUuid(out, e.getKey());
+                LogCodec.writeVote(out, e.getValue());
+            }
+        }
+
+        out.writeInt(tags.size());
+        for (Map.Entry<UUID, Map<String, Integer>> byTarget : tags.entrySet()) {
+            LogCodec.writeUuid(out, byTarget.getKey());
+            out.writeInt(byTarget.getValue().size());
+            for (Map.Entry<String, Integer> e : byTarget.getValue().entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue());
+            }
+        }
+
+        out.writeInt(voteLog.size());
+        for (Map.Entry<UUID, VoteLogRing> byTarget : voteLog.entrySet()) {
+            VoteLogRing ring = byTarget.getValue();
+            LogCodec.writeUuid(out, byTarget.getKey());
+            out.writeInt(ring.size());
+
+            // oldest first, so replaying through appendLog restores the order
+            for (int i = ring.size() - 1; i >= 0; i--) LogCodec.writeLog(out, ring.get(i));
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeSnapshot(byte[] body, long nextGen) throws IOException {
+        File target = new File(dir, "snapshot.bin");
+        File tmp = new File(dir, "snapshot.bin.tmp");
+
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(nextGen);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeLong(crc.getValue());
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        try {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,687 @@
+package ru.rizonchik.refontsocial.storage.mapped;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.java.JavaPlugin;
+import ru.rizonchik.refontsocial.storage.log.Frames;
+import ru.rizonchik.refontsocial.storage.log.LogCodec;
+import ru.rizonchik.refontsocial.storage.memory.MemoryStorage;
+import ru.rizonchik.refontsocial.storage.memory.VoteLogRing;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// players.dat is a memory-mapped table of fixed 64-byte slots updated in place;
+// names and ip hashes live in strings.dat, votes and history in their own append files.
+// header: [magic][version][slot count][strings generation]
+public final class MappedStorage extends MemoryStorage {
+
+    private static final int MAGIC = 0x52534D50;
+    private static final int VERSION = 1;
+
+    private static final int HEADER = 16;
+    private static final int STRINGS_GEN = 12;
+    private static final int SLOT = 64;
+
+    // slot layout
+    private static final int MSB = 0;
+    private static final int LSB = 8;
+    private static final int LIKES = 16;
+    private static final int DISLIKES = 20;
+    private static final int SCORE = 24;
+    private static final int FLAGS = 32;
+    private static final int NAME = 40;
+    private static final int IP = 48;
+
+    private static final int USED = 1;
+    private static final int SEEN = 2;
+
+    private static final int RECORDS_PER_FRAME = 4096;
+    private static final long STRINGS_SLACK = 64 * 1024;
+
+    private File dir;
+
+    private FileChannel tableChannel;
+    private MappedByteBuffer table;
+    private int capacity;
+    private int count;
+    private UuidSlotIndex index;
+
+    private FileChannel strings;
+    private long stringsEnd;
+    private final Map<String, Long> stringOffsets = new HashMap<>();
+
+    private FileChannel votesFile;
+    private FileChannel historyFile;
+
+    private final Set<PlayerData> dirtyPlayers = new LinkedHashSet<>();
+    private final ByteArrayOutputStream voteBytes = new ByteArrayOutputStream();
+    private final DataOutputStream voteOut = new DataOutputStream(voteBytes);
+    private final ByteArrayOutputStream historyBytes = new ByteArrayOutputStream();
+    private final DataOutputStream historyOut = new DataOutputStream(historyBytes);
+
+    // records in votes.dat / history.dat, superseded ones included; past the check mark compact() counts the live ones
+    private int pendingVotes;
+    private int pendingHistory;
+    private long voteRecords;
+    private long historyRecords;
+    private long voteCheckAt;
+    private long historyCheckAt;
+
+    // frames appended while compact() writes the rewritten file outside the lock
+    private List<ByteBuffer> voteTail;
+    private List<ByteBuffer> historyTail;
+
+    private final Object compactLock = new Object();
+    private final AtomicBoolean compactQueued = new AtomicBoolean();
+    private boolean closed;
+
+    public MappedStorage(JavaPlugin plugin) {
+        super(plugin);
+    }
+
+    @Override
+    public void init() {
+        dir = new File(plugin.getDataFolder(), plugin.getConfig().getString("storage.mapped.dir", "data-mapped"));
+        if (!dir.exists()) dir.mkdirs();
+
+        lock.writeLock().lock();
+        try {
+            clearAll();
+
+            int stringsGen = compactStrings();
+            Map<Long, String> byOffset = loadStrings(stringsGen);
+            loadTable(byOffset);
+
+            int[] voteCount = new int[1];
+            Frames.read(new File(dir, "votes.dat"), in -> {
+                while (in.available() > 0) {
+                    UUID voter = LogCodec.readUuid(in);
+                    UUID target = LogCodec.readUuid(in);
+                    putVote(voter, target, LogCodec.readVote(in));
+                    voteCount[0]++;
+                }
+            }, true, plugin.getLogger());
+            deriveTags();
+
+            int capacity = logCapacity();
+            int[] historyCount = new int[1];
+            Frames.read(new File(dir, "history.dat"), in -> {
+                while (in.available() > 0) {
+                    UUID target = LogCodec.readUuid(in);
+                    appendLog(target, LogCodec.readLog(in), capacity);
+                    historyCount[0]++;
+                }
+            }, true, plugin.getLogger());
+
+            voteRecords = voteCount[0];
+            long liveVotes = liveVotes();
+            if (voteRecords > liveVotes * 2 + 1024) {
+                List<ByteBuffer> frames = new ArrayList<>();
+                voteRecords = voteFrames(frames);
+                File tmp = new File(dir, "votes.dat.tmp");
+                writeFrames(tmp, frames, false);
+                replace(tmp, new File(dir, "votes.dat"));
+            }
+            voteCheckAt = liveVotes * 2 + 1024;
+
+            historyRecords = historyCount[0];
+            long liveHistory = liveHistory();
+            if (historyRecords > liveHistory * 2 + 1024) {
+                List<ByteBuffer> frames = new ArrayList<>();
+                historyRecords = historyFrames(frames);
+                File tmp = new File(dir, "history.dat.tmp");
+                writeFrames(tmp, frames, false);
+                replace(tmp, new File(dir, "history.dat"));
+            }
+            historyCheckAt = liveHistory * 2 + 1024;
+
+            votesFile = openAppend(new File(dir, "votes.dat"));
+            historyFile = openAppend(new File(dir, "history.dat"));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (compactLock) {
+            lock.writeLock().lock();
+            try {
+                closed = true;
+                if (table != null) table.force();
+                closeQuietly(tableChannel);
+                closeQuietly(strings);
+                closeQuietly(votesFile);
+                closeQuietly(historyFile);
+                table = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    protected void playerChanged(PlayerData player) {
+        dirtyPlayers.add(player);
+    }
+
+    @Override
+    protected void voteChanged(UUID voter, UUID target, VoteData vote) {
+        try {
+            LogCodec.writeUuid(voteOut, voter);
+            LogCodec.writeUuid(voteOut, target);
+            LogCodec.writeVote(voteOut, vote);
+            pendingVotes++;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void tagChanged(UUID target, String tag, int count) {
+        // tag counts are rebuilt from votes.dat on load
+    }
+
+    @Override
+    protected void logAppended(UUID target, LogData entry, int keep) {
+        try {
+            LogCodec.writeUuid(historyOut, target);
+            LogCodec.writeLog(historyOut, entry);
+            pendingHistory++;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // appends go out before the slots that summarise them
+    @Override
+    protected void committed() {
+        try {
+            if (voteBytes.size() > 0) {
+                ByteBuffer frame = Frames.frame(voteBytes.toByteArray());
+                voteBytes.reset();
+                if (voteTail != null) voteTail.add(frame.duplicate());
+                write(votesFile, frame);
+                voteRecords += pendingVotes;
+                pendingVotes = 0;
+            }
+            if (historyBytes.size() > 0) {
+                ByteBuffer frame = Frames.frame(historyBytes.toByteArray());
+                historyBytes.reset();
+                if (historyTail != null) historyTail.add(frame.duplicate());
+                write(historyFile, frame);
+                historyRecords += pendingHistory;
+                pendingHistory = 0;
+            }
+
+            for (PlayerData p : dirtyPlayers) writeSlot(p);
+            dirtyPlayers.clear();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if ((voteRecords > voteCheckAt || historyRecords > historyCheckAt)
+                && plugin.isEnabled() && compactQueued.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().warning("Failed to compact votes.dat/history.dat: " + e.getMessage());
+                } finally {
+                    compactQueued.set(false);
+                }
+            });
+        }
+    }
+
+    // rewrites votes.dat and history.dat once they hold more than twice the live records, as init does on load;
+    // the records are copied under the write lock, the file is written outside it and whatever was appended
+    // in the meantime goes on its end before it replaces the old one
+    public void compact() {
+        synchronized (compactLock) {
+            if (closed) return;
+
+            List<ByteBuffer> voteCopy = null;
+            List<ByteBuffer> historyCopy = null;
+            long votesCopied = 0;
+            long historyCopied = 0;
+            long votesMark = 0;
+            long historyMark = 0;
+
+            lock.writeLock().lock();
+            try {
+                long liveVotes = liveVotes();
+                if (voteRecords > liveVotes * 2 + 1024) {
+                    voteCopy = new ArrayList<>();
+                    votesCopied = voteFrames(voteCopy);
+                    votesMark = voteRecords;
+                    voteTail = new ArrayList<>();
+                }
+                voteCheckAt = liveVotes * 2 + 1024;
+
+                long liveHistory = liveHistory();
+                if (historyRecords > liveHistory * 2 + 1024) {
+                    historyCopy = new ArrayList<>();
+                    historyCopied = historyFrames(historyCopy);
+                    historyMark = historyRecords;
+                    historyTail = new ArrayList<>();
+                }
+                historyCheckAt = liveHistory * 2 + 1024;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (voteCopy == null && historyCopy == null) return;
+
+            File votesTmp = new File(dir, "votes.dat.tmp");
+            File historyTmp = new File(dir, "history.dat.tmp");
+            try {
+                if (voteCopy != null) writeFrames(votesTmp, voteCopy, false);
+                if (historyCopy != null) writeFrames(historyTmp, historyCopy, false);
+            } catch (IOException e) {
+                lock.writeLock().lock();
+                try {
+                    voteTail = null;
+                    historyTail = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw new RuntimeException(e);
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (voteCopy != null) {
+                    writeFrames(votesTmp, voteTail, true);
+                    votesFile.close();
+                    replace(votesTmp, new File(dir, "votes.dat"));
+                    votesFile = openAppend(new File(dir, "votes.dat"));
+                    voteRecords = votesCopied + voteRecords - votesMark;
+                }
+                if (historyCopy != null) {
+                    writeFrames(historyTmp, historyTail, true);
+                    historyFile.close();
+                    replace(historyTmp, new File(dir, "history.dat"));
+                    historyFile = openAppend(new File(dir, "history.dat"));
+                    historyRecords = historyCopied + historyRecords - historyMark;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                voteTail = null;
+                historyTail = null;
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void loadTable(Map<Long, String> byOffset) throws IOException {
+        tableChannel = FileChannel.open(new File(dir, "players.dat").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = tableChannel.size();
+        if (size < HEADER) {
+            capacity = 1024;
+            count = 0;
+            table = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity * SLOT);
+            table.putInt(0, MAGIC);
+            table.putInt(4, VERSION);
+            table.putInt(8, 0);
+            table.putInt(STRINGS_GEN, 0);
+        } else {
+            capacity = (int) ((size - HEADER) / SLOT);
+            table = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity * SLOT);
+            if (table.getInt(0) != MAGIC) throw new IOException("players.dat: bad magic");
+            if (table.getInt(4) != VERSION) throw new IOException("players.dat: unsupported version " + table.getInt(4));
+            count = Math.min(table.getInt(8), capacity);
+        }
+
+        index = new UuidSlotIndex(Math.max(count, 1024));
+        for (int slot = 0; slot < count; slot++) {
+            int base = HEADER + slot * SLOT;
+            int flags = table.getInt(base + FLAGS);
+            if ((flags & USED) == 0) continue;
+
+            PlayerData p = new PlayerData(new UUID(table.getLong(base + MSB), table.getLong(base + LSB)));
+            p.likes = table.getInt(base + LIKES);
+            p.dislikes = table.getInt(base + DISLIKES);
+            p.score = table.getDouble(base + SCORE);
+            p.seen = (flags & SEEN) != 0;
+            p.name = byOffset.get(table.getLong(base + NAME));
+            p.ipHash = byOffset.get(table.getLong(base + IP));
+
+            index.put(p.uuid, slot);
+            putPlayer(p);
+        }
+    }
+
+    private void writeSlot(PlayerData p) throws IOException {
+        int slot = index.get(p.uuid);
+        if (slot < 0) {
+            slot = count;
+            if (slot >= capacity) grow();
+            count++;
+            index.put(p.uuid, slot);
+            table.putInt(8, count);
+        }
+
+        int base = HEADER + slot * SLOT;
+        table.putLong(base + MSB, p.uuid.getMostSignificantBits());
+        table.putLong(base + LSB, p.uuid.getLeastSignificantBits());
+        table.putInt(base + LIKES, p.likes);
+        table.putInt(base + DISLIKES, p.dislikes);
+        table.putDouble(base + SCORE, p.score);
+        table.putLong(base + NAME, stringOffset(p.name));
+        table.putLong(base + IP, stringOffset(p.ipHash));
+        table.putInt(base + FLAGS, USED | (p.seen ? SEEN : 0));
+    }
+
+    private void grow() throws IOException {
+        table.force();
+        capacity *= 2;
+        table = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity * SLOT);
+    }
+
+    // strings.dat: [unsigned short length][utf-8 bytes], referenced by offset; equal strings share one entry.
+    // a compaction writes strings.<generation>.dat, so the old file stays valid until players.dat points elsewhere
+    private File stringsFile(int generation) {
+        return new File(dir, generation == 0 ? "strings.dat" : "strings." + generation + ".dat");
+    }
+
+    private Map<Long, String> loadStrings(int generation) throws IOException {
+        File file = stringsFile(generation);
+        Map<Long, String> byOffset = new HashMap<>();
+
+        long pos = 0;
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    int len;
+                    try {
+                        len = in.readUnsignedShort();
+                        byte[] bytes = new byte[len];
+                        in.readFully(bytes);
+
+                        String s = new String(bytes, StandardCharsets.UTF_8);
+                        byOffset.put(pos, s);
+                        stringOffsets.put(s, pos);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    pos += 2 + len;
+                }
+            }
+        }
+
+        // leftovers of an older generation or of a compaction that never reached players.dat
+        File[] stale = dir.listFiles((d, name) -> name.startsWith("strings.") && name.endsWith(".dat"));
+        if (stale != null) {
+            for (File f : stale) {
+                if (!f.getName().equals(file.getName())) f.delete();
+            }
+        }
+
+        strings = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        strings.truncate(pos);
+        strings.position(pos);
+        stringsEnd = pos;
+        return byOffset;
+    }
+
+    // renamed players lose their old entries for good; once those dominate, copy the live strings into the next
+    // generation and swap in a players.dat pointing at them. runs before the table is mapped; returns the generation
+    private int compactStrings() throws IOException {
+        File tableFile = new File(dir, "players.dat");
+        if (tableFile.length() < HEADER) return 0;
+
+        int generation;
+        int slots;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(tableFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return 0; // loadTable reports it
+            slots = in.readInt();
+            generation = in.readInt();
+        }
+
+        File oldStrings = stringsFile(generation);
+        if (oldStrings.length() < STRINGS_SLACK) return generation;
+
+        Set<Long> referenced = new HashSet<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(tableFile)))) {
+            in.skipBytes(HEADER);
+            byte[] slot = new byte[SLOT];
+            for (int i = 0; i < slots; i++) {
+                try {
+                    in.readFully(slot);
+                } catch (EOFException e) {
+                    break;
+                }
+                ByteBuffer b = ByteBuffer.wrap(slot);
+                if ((b.getInt(FLAGS) & USED) == 0) continue;
+                referenced.add(b.getLong(NAME));
+                referenced.add(b.getLong(IP));
+            }
+        }
+
+        Map<Long, byte[]> live = new HashMap<>();
+        long liveBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(oldStrings)))) {
+            long pos = 0;
+            while (true) {
+                int len;
+                byte[] bytes;
+                try {
+                    len = in.readUnsignedShort();
+                    bytes = new byte[len];
+                    in.readFully(bytes);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (referenced.contains(pos)) {
+                    live.put(pos, bytes);
+                    liveBytes += 2 + len;
+                }
+                pos += 2 + len;
+            }
+        }
+        if (oldStrings.length() <= liveBytes * 2 + STRINGS_SLACK) return generation;
+
+        int next = generation + 1;
+        File newStrings = stringsFile(next);
+        Map<Long, Long> moved = new HashMap<>();
+        Map<String, Long> written = new HashMap<>();
+        try (FileOutputStream fos = new FileOutputStream(newStrings);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            long pos = 0;
+            for (Map.Entry<Long, byte[]> e : live.entrySet()) {
+                String key = new String(e.getValue(), StandardCharsets.UTF_8);
+                Long at = written.get(key);
+                if (at == null) {
+                    at = pos;
+                    written.put(key, at);
+                    out.writeShort(e.getValue().length);
+                    out.write(e.getValue());
+                    pos += 2 + e.getValue().length;
+                }
+                moved.put(e.getKey(), at);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+
+        File tmp = new File(dir, "players.dat.tmp");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(tableFile)));
+             FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            byte[] header = new byte[HEADER];
+            in.readFully(header);
+            ByteBuffer.wrap(header).putInt(STRINGS_GEN, next);
+            out.write(header);
+
+            byte[] slot = new byte[SLOT];
+            while (true) {
+                try {
+                    in.readFully(slot);
+                } catch (EOFException e) {
+                    break;
+                }
+                ByteBuffer b = ByteBuffer.wrap(slot);
+                if ((b.getInt(FLAGS) & USED) != 0) {
+                    b.putLong(NAME, moved.getOrDefault(b.getLong(NAME), -1L));
+                    b.putLong(IP, moved.getOrDefault(b.getLong(IP), -1L));
+                }
+                out.write(slot);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        replace(tmp, tableFile);
+
+        plugin.getLogger().info(oldStrings.getName() + " compacted: " + oldStrings.length() / 1024L + " KB -> "
+                + newStrings.getName() + ", " + newStrings.length() / 1024L + " KB");
+        oldStrings.delete();
+        return next;
+    }
+
+    private long stringOffset(String s) throws IOException {
+        if (s == null) return -1L;
+
+        Long known = stringOffsets.get(s);
+        if (known != null) return known;
+
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) bytes = Arrays.copyOf(bytes, utf8Cut(bytes, 0xFFFF));
+
+        ByteBuffer buf = ByteBuffer.allocate(2 + bytes.length);
+        buf.putShort((short) bytes.length);
+        buf.put(bytes);
+        buf.flip();
+        write(strings, buf);
+
+        long offset = stringsEnd;
+        stringsEnd += 2 + bytes.length;
+        stringOffsets.put(s, offset);
+        return offset;
+    }
+
+    // longest prefix of at most max bytes that does not split a character
+    static int utf8Cut(byte[] bytes, int max) {
+        if (bytes.length <= max) return bytes.length;
+        int cut = max;
+        while (cut > 0 && (bytes[cut] & 0xC0) == 0x80) cut--;
+        return cut;
+    }
+
+    private void deriveTags() {
+        for (Map<UUID, VoteData> byTarget : votes.values()) {
+            for (Map.Entry<UUID, VoteData> e : byTarget.entrySet()) {
+                VoteData v = e.getValue();
+                if (v.value == null || v.reason == null || v.reason.trim().isEmpty()) continue;
+
+                Map<String, Integer> current = tags.get(e.getKey());
+                int cnt = current != null ? current.getOrDefault(v.reason, 0) : 0;
+                putTag(e.getKey(), v.reason, cnt + 1);
+            }
+        }
+    }
+
+    private long liveVotes() {
+        long live = 0;
+        for (Map<UUID, VoteData> byTarget : votes.values()) live += byTarget.size();
+        return live;
+    }
+
+    private long liveHistory() {
+        long live = 0;
+        for (VoteLogRing ring : voteLog.values()) live += ring.size();
+        return live;
+    }
+
+    // caller holds the write lock; returns the number of records
+    private long voteFrames(List<ByteBuffer> frames) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        long records = 0;
+
+        for (Map.Entry<UUID, Map<UUID, VoteData>> byVoter : votes.entrySet()) {
+            for (Map.Entry<UUID, VoteData> e : byVoter.getValue().entrySet()) {
+                LogCodec.writeUuid(data, byVoter.getKey());
+                LogCodec.writeUuid(data, e.getKey());
+                LogCodec.writeVote(data, e.getValue());
+
+                if (++records % RECORDS_PER_FRAME == 0) {
+                    frames.add(Frames.frame(bytes.toByteArray()));
+                    bytes.reset();
+                }
+            }
+        }
+        if (bytes.size() > 0) frames.add(Frames.frame(bytes.toByteArray()));
+        return records;
+    }
+
+    // caller holds the write lock; oldest first, so replaying through appendLog restores the order
+    private long historyFrames(List<ByteBuffer> frames) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        long records = 0;
+
+        for (Map.Entry<UUID, VoteLogRing> byTarget : voteLog.entrySet()) {
+            VoteLogRing ring = byTarget.getValue();
+            for (int i = ring.size() - 1; i >= 0; i--) {
+                LogCodec.writeUuid(data, byTarget.getKey());
+                LogCodec.writeLog(data, ring.get(i));
+
+                if (++records % RECORDS_PER_FRAME == 0) {
+                    frames.add(Frames.frame(bytes.toByteArray()));
+                    bytes.reset();
+                }
+            }
+        }
+        if (bytes.size() > 0) frames.add(Frames.frame(bytes.toByteArray()));
+        return records;
+    }
+
+    private static void writeFrames(File file, List<ByteBuffer> frames, boolean append) throws IOException {
+        try (FileChannel out = append
+                ? FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer frame : frames) write(out, frame);
+            out.force(false);
+        }
+    }
+
+    private static FileChannel openAppend(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) channel.write(buf);
+    }
+
+    private static void replace(File tmp, File target) throws IOException {
+        try {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void closeQuietly(Closeable c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
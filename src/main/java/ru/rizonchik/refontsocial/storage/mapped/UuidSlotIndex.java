@@ -0,0 +1,82 @@
+package ru.rizonchik.refontsocial.storage.mapped;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+// open addressing with linear probing over primitive arrays; no per-entry objects
+final class UuidSlotIndex {
+
+    private long[] msb;
+    private long[] lsb;
+    private int[] slots;
+    private int size;
+
+    UuidSlotIndex(int expected) {
+        int cap = 16;
+        while (cap < expected * 2) cap <<= 1;
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        msb = new long[cap];
+        lsb = new long[cap];
+        slots = new int[cap];
+        Arrays.fill(slots, -1);
+    }
+
+    int get(UUID uuid) {
+        long m = uuid.getMostSignificantBits();
+        long l = uuid.getLeastSignificantBits();
+
+        int mask = slots.length - 1;
+        for (int i = hash(m, l) & mask; ; i = (i + 1) & mask) {
+            int s = slots[i];
+            if (s < 0) return -1;
+            if (msb[i] == m && lsb[i] == l) return s;
+        }
+    }
+
+    void put(UUID uuid, int slot) {
+        if ((size + 1) * 2 > slots.length) grow();
+        if (insert(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), slot)) size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean insert(long m, long l, int slot) {
+        int mask = slots.length - 1;
+        for (int i = hash(m, l) & mask; ; i = (i + 1) & mask) {
+            if (slots[i] < 0) {
+                msb[i] = m;
+                lsb[i] = l;
+                slots[i] = slot;
+                return true;
+            }
+            if (msb[i] == m && lsb[i] == l) {
+                slots[i] = slot;
+                return false;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldMsb = msb;
+        long[] oldLsb = lsb;
+        int[] oldSlots = slots;
+
+        allocate(oldSlots.length * 2);
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] >= 0) insert(oldMsb[i], oldLsb[i], oldSlots[i]);
+        }
+    }
+
+    private static int hash(long m, long l) {
+        long h = m ^ l;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        return (int) h;
+    }
+}
@@ -0,0 +1,1036 @@
+package ru.rizonchik.refontsocial.storage.memory;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+import ru.rizonchik.refontsocial.storage.BulkStorage;
+import ru.rizonchik.refontsocial.storage.ScoreStorage;
+import ru.rizonchik.refontsocial.storage.Storage;
+import ru.rizonchik.refontsocial.storage.TopCategory;
+import ru.rizonchik.refontsocial.storage.model.BulkRow;
+import ru.rizonchik.refontsocial.storage.model.PlayerRep;
+import ru.rizonchik.refontsocial.storage.model.ProfileData;
+import ru.rizonchik.refontsocial.storage.model.VoteLogEntry;
+import ru.rizonchik.refontsocial.storage.model.VoteRecord;
+import ru.rizonchik.refontsocial.util.NumberUtil;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// whole data set in typed maps; subclasses only decide how changes reach the disk
+public abstract class MemoryStorage implements Storage, BulkStorage, ScoreStorage {
+
+    public static final class PlayerData {
+        public final UUID uuid;
+        public String name;
+        public int likes;
+        public int dislikes;
+        public double score;
+        public boolean seen;
+        public String ipHash;
+
+        public PlayerData(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        private PlayerRep toRep() {
+            return new PlayerRep(uuid, name, likes, dislikes, likes + dislikes, score);
+        }
+    }
+
+    public static final class VoteData {
+        public Integer value;
+        public String reason;
+        public long lastTime;
+
+        public VoteData(Integer value, String reason, long lastTime) {
+            this.value = value;
+            this.reason = reason;
+            this.lastTime = lastTime;
+        }
+    }
+
+    public static final class LogData {
+        public final long time;
+        public final int value;
+        public final String reason;
+        public final UUID voter;
+        public final String voterName;
+
+        public LogData(long time, int value, String reason, UUID voter, String voterName) {
+            this.time = time;
+            this.value = value;
+            this.reason = reason;
+            this.voter = voter;
+            this.voterName = voterName;
+        }
+    }
+
+    protected final JavaPlugin plugin;
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    protected final Map<UUID, PlayerData> players = new HashMap<>();
+    protected final Map<UUID, Map<UUID, VoteData>> votes = new HashMap<>();
+    protected final Map<UUID, Map<String, Integer>> tags = new HashMap<>();
+    protected final Map<UUID, VoteLogRing> voteLog = new HashMap<>();
+
+    // seen players per top category, kept in the same order getTop returns
+    private final Map<TopCategory, TreeSet<PlayerData>> sorted = new EnumMap<>(TopCategory.class);
+
+    protected MemoryStorage(JavaPlugin plugin) {
+        this.plugin = plugin;
+        for (TopCategory category : TopCategory.values()) sorted.put(category, new TreeSet<>(order(category)));
+    }
+
+    // change hooks, always called under the write lock
+
+    protected abstract void playerChanged(PlayerData player);
+
+    protected abstract void voteChanged(UUID voter, UUID target, VoteData vote);
+
+    protected abstract void tagChanged(UUID target, String tag, int count);
+
+    protected abstract void logAppended(UUID target, LogData entry, int keep);
+
+    // end of one logical operation; everything before it should become durable together
+    protected abstract void committed();
+
+    // raw setters shared by the live path and by loading/replay
+
+    protected final void putPlayer(PlayerData player) {
+        PlayerData old = players.put(player.uuid, player);
+        if (old != null) unindex(old);
+        index(player);
+    }
+
+    // ordering fields of a player may only change between unindex and index
+    private void unindex(PlayerData p) {
+        if (!p.seen) return;
+        for (TreeSet<PlayerData> set : sorted.values()) set.remove(p);
+    }
+
+    private void index(PlayerData p) {
+        if (!p.seen) return;
+        for (TreeSet<PlayerData> set : sorted.values()) set.add(p);
+    }
+
+    protected final void putVote(UUID voter, UUID target, VoteData vote) {
+        votes.computeIfAbsent(voter, k -> new HashMap<>()).put(target, vote);
+    }
+
+    protected final void putTag(UUID target, String tag, int count) {
+        Map<String, Integer> map = tags.computeIfAbsent(target, k -> new HashMap<>());
+        if (count <= 0) {
+            map.remove(tag);
+            if (map.isEmpty()) tags.remove(target);
+        } else {
+            map.put(tag, count);
+        }
+    }
+
+    protected final void appendLog(UUID target, LogData entry, int keep) {
+        voteLog.computeIfAbsent(target, k -> new VoteLogRing(keep)).add(entry, Math.max(1, keep));
+    }
+
+    // profile.history.limit × 3 entries per target
+    protected final int logCapacity() {
+        int keep = plugin.getConfig().getInt("profile.history.limit", 10);
+        if (keep < 1) keep = 1;
+        return keep * 3;
+    }
+
+    protected final void clearAll() {
+        players.clear();
+        votes.clear();
+        tags.clear();
+        voteLog.clear();
+        for (TreeSet<PlayerData> set : sorted.values()) set.clear();
+    }
+
+    // data.yml layout: players, votes.<voter>.<target>, tags.<target>.<tag>, vote_log.<target>.<id>
+    protected final void readYaml(YamlConfiguration yaml) {
+        ConfigurationSection playersSec = yaml.getConfigurationSection("players");
+        if (playersSec != null) {
+            for (String key : playersSec.getKeys(false)) {
+                UUID uuid = parseUuid(key);
+                ConfigurationSection sec = playersSec.getConfigurationSection(key);
+                if (uuid == null || sec == null) continue;
+
+                PlayerData p = new PlayerData(uuid);
+                p.name = sec.getString("name", null);
+                p.likes = sec.getInt("likes", 0);
+                p.dislikes = sec.getInt("dislikes", 0);
+                p.score = sec.getDouble("score", NumberUtil.defaultScore(plugin));
+                p.seen = sec.getBoolean("seen", false);
+                p.ipHash = sec.getString("ipHash", null);
+                putPlayer(p);
+            }
+        }
+
+        ConfigurationSection votesSec = yaml.getConfigurationSection("votes");
+        if (votesSec != null) {
+            for (String voterKey : votesSec.getKeys(false)) {
+                UUID voter = parseUuid(voterKey);
+                ConfigurationSection byTarget = votesSec.getConfigurationSection(voterKey);
+                if (voter == null || byTarget == null) continue;
+
+                for (String targetKey : byTarget.getKeys(false)) {
+                    UUID target = parseUuid(targetKey);
+                    ConfigurationSection sec = byTarget.getConfigurationSection(targetKey);
+                    if (target == null || sec == null) continue;
+
+                    Integer value = sec.get("value") == null ? null : sec.getInt("value");
+                    putVote(voter, target, new VoteData(value, sec.getString("reason", null), sec.getLong("lastTime", 0L)));
+                }
+            }
+        }
+
+        ConfigurationSection tagsSec = yaml.getConfigurationSection("tags");
+        if (tagsSec != null) {
+            for (String targetKey : tagsSec.getKeys(false)) {
+                UUID target = parseUuid(targetKey);
+                ConfigurationSection byTag = tagsSec.getConfigurationSection(targetKey);
+                if (target == null || byTag == null) continue;
+
+                for (String tag : byTag.getKeys(false)) putTag(target, tag, byTag.getInt(tag, 0));
+            }
+        }
+
+        ConfigurationSection logSec = yaml.getConfigurationSection("vote_log");
+        if (logSec != null) {
+            int capacity = logCapacity();
+            for (String targetKey : logSec.getKeys(false)) {
+                UUID target = parseUuid(targetKey);
+                if (target == null) continue;
+
+                List<LogData> list = new ArrayList<>();
+                if (logSec.get(targetKey) instanceof List) {
+                    for (String line : logSec.getStringList(targetKey)) {
+                        LogData e = parseLogLine(line);
+                        if (e != null) list.add(e);
+                    }
+                } else {
+                    // older layout: one section per entry under a random key
+                    ConfigurationSection entries = logSec.getConfigurationSection(targetKey);
+                    if (entries == null) continue;
+
+                    for (String id : entries.getKeys(false)) {
+                        ConfigurationSection sec = entries.getConfigurationSection(id);
+                        if (sec == null) continue;
+                        list.add(new LogData(
+                                sec.getLong("time", 0L),
+                                sec.getInt("value", 1),
+                                sec.getString("reason", null),
+                                parseUuid(sec.getString("voter", null)),
+                                sec.getString("voterName", null)
+                        ));
+                    }
+                }
+
+                list.sort(Comparator.comparingLong(e -> e.time));
+                for (LogData e : list) appendLog(target, e, capacity);
+            }
+        }
+    }
+
+    // "time;value;voter;voterName;reason", oldest first; reason goes last because it may contain ';'
+    private static String logLine(LogData e) {
+        return e.time + ";" + e.value + ";"
+                + (e.voter != null ? e.voter.toString() : "") + ";"
+                + (e.voterName != null ? e.voterName : "") + ";"
+                + (e.reason != null ? e.reason : "");
+    }
+
+    private static LogData parseLogLine(String line) {
+        String[] parts = line.split(";", 5);
+        if (parts.length < 5) return null;
+        try {
+            return new LogData(
+                    Long.parseLong(parts[0]),
+                    Integer.parseInt(parts[1]),
+                    parts[4].isEmpty() ? null : parts[4],
+                    parseUuid(parts[2].isEmpty() ? null : parts[2]),
+                    parts[3].isEmpty() ? null : parts[3]
+            );
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // plain nested maps in the data.yml layout; cheap to build under the read lock, turned into YAML outside it
+    protected final Map<String, Object> toYamlMap() {
+        Map<String, Object> playersOut = new LinkedHashMap<>();
+        for (PlayerData p : players.values()) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            if (p.name != null) m.put("name", p.name);
+            m.put("likes", p.likes);
+            m.put("dislikes", p.dislikes);
+            m.put("score", p.score);
+            m.put("seen", p.seen);
+            if (p.ipHash != null) m.put("ipHash", p.ipHash);
+            playersOut.put(p.uuid.toString(), m);
+        }
+
+        Map<String, Object> votesOut = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Map<UUID, VoteData>> byVoter : votes.entrySet()) {
+            Map<String, Object> byTarget = new LinkedHashMap<>();
+            for (Map.Entry<UUID, VoteData> e : byVoter.getValue().entrySet()) {
+                VoteData v = e.getValue();
+                Map<String, Object> m = new LinkedHashMap<>();
+                if (v.value != null) m.put("value", v.value);
+                if (v.reason != null) m.put("reason", v.reason);
+                m.put("lastTime", v.lastTime);
+                byTarget.put(e.getKey().toString(), m);
+            }
+            votesOut.put(byVoter.getKey().toString(), byTarget);
+        }
+
+        Map<String, Object> tagsOut = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Map<String, Integer>> byTarget : tags.entrySet()) {
+            tagsOut.put(byTarget.getKey().toString(), new LinkedHashMap<>(byTarget.getValue()));
+        }
+
+        Map<String, Object> logOut = new LinkedHashMap<>();
+        for (Map.Entry<UUID, VoteLogRing> byTarget : voteLog.entrySet()) {
+            VoteLogRing ring = byTarget.getValue();
+            List<String> lines = new ArrayList<>(ring.size());
+            for (int i = ring.size() - 1; i >= 0; i--) lines.add(logLine(ring.get(i)));
+            logOut.put(byTarget.getKey().toString(), lines);
+        }
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("players", playersOut);
+        root.put("votes", votesOut);
+        root.put("tags", tagsOut);
+        root.put("vote_log", logOut);
+        return root;
+    }
+
+    protected static UUID parseUuid(String s) {
+        if (s == null) return null;
+        try {
+            return UUID.fromString(s);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public PlayerRep getOrCreate(UUID uuid, String name) {
+        lock.writeLock().lock();
+        try {
+            PlayerData p = ensure(uuid, name);
+            committed();
+            return p.toRep();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private PlayerData ensure(UUID uuid, String name) {
+        PlayerData p = players.get(uuid);
+        if (p == null) {
+            p = new PlayerData(uuid);
+            p.name = name;
+            p.score = NumberUtil.defaultScore(plugin);
+            putPlayer(p);
+            playerChanged(p);
+        } else if (name != null && !name.isEmpty() && !name.equals(p.name)) {
+            p.name = name;
+            playerChanged(p);
+        }
+        return p;
+    }
+
+    @Override
+    public String getLastKnownName(UUID uuid) {
+        lock.readLock().lock();
+        try {
+            PlayerData p = players.get(uuid);
+            return p != null ? p.name : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<UUID, String> getLastKnownNames(Collection<UUID> uuids) {
+        Map<UUID, String> out = new HashMap<>();
+        if (uuids == null) return out;
+
+        lock.readLock().lock();
+        try {
+            for (UUID uuid : uuids) {
+                PlayerData p = players.get(uuid);
+                if (p != null && p.name != null) out.put(uuid, p.name);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    @Override
+    public Map<UUID, String> getNames() {
+        Map<UUID, String> out = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            for (PlayerData p : players.values()) {
+                if (p.name != null) out.put(p.uuid, p.name);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    @Override
+    public List<PlayerRep> getTop(int limit, int offset) {
+        return getTop(TopCategory.SCORE, limit, offset);
+    }
+
+    @Override
+    public List<PlayerRep> getTop(TopCategory category, int limit, int offset) {
+        if (limit <= 0) return Collections.emptyList();
+
+        lock.readLock().lock();
+        try {
+            List<PlayerRep> out = new ArrayList<>(Math.min(limit, 64));
+            int skip = Math.max(0, offset);
+            for (PlayerData p : sorted.get(category)) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                out.add(p.toRep());
+                if (out.size() >= limit) break;
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // same orderings as the SQL backends
+    protected static Comparator<PlayerData> order(TopCategory category) {
+        Comparator<PlayerData> cmp;
+        if (category == TopCategory.LIKES) {
+            cmp = Comparator.<PlayerData>comparingInt(p -> p.likes).reversed()
+                    .thenComparing(Comparator.<PlayerData>comparingDouble(p -> p.score).reversed());
+        } else if (category == TopCategory.DISLIKES) {
+            cmp = Comparator.<PlayerData>comparingInt(p -> p.dislikes).reversed()
+                    .thenComparingDouble(p -> p.score);
+        } else if (category == TopCategory.VOTES) {
+            cmp = Comparator.<PlayerData>comparingInt(p -> p.likes + p.dislikes).reversed()
+                    .thenComparing(Comparator.<PlayerData>comparingDouble(p -> p.score).reversed());
+        } else {
+            cmp = Comparator.<PlayerData>comparingDouble(p -> p.score).reversed()
+                    .thenComparing(Comparator.<PlayerData>comparingInt(p -> p.likes + p.dislikes).reversed());
+        }
+        return cmp.thenComparing(p -> p.uuid);
+    }
+
+    @Override
+    public VoteState getVoteState(UUID voter, UUID target) {
+        lock.readLock().lock();
+        try {
+            Map<UUID, VoteData> byTarget = votes.get(voter);
+            VoteData v = byTarget != null ? byTarget.get(target) : null;
+            if (v == null) return null;
+            return new VoteState(v.lastTime, v.value, v.reason);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<VoteRecord> getVotesSince(long sinceMillis) {
+        List<VoteRecord> list = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<UUID, Map<UUID, VoteData>> byVoter : votes.entrySet()) {
+                for (Map.Entry<UUID, VoteData> e : byVoter.getValue().entrySet()) {
+                    VoteData v = e.getValue();
+                    if (v.lastTime < sinceMillis) continue;
+                    list.add(new VoteRecord(byVoter.getKey(), e.getKey(), v.value, v.reason, v.lastTime));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return list;
+    }
+
+    @Override
+    public VoteResult applyVote(UUID voter, UUID target, int value, long timeMillis, String targetName, String reason) {
+        lock.writeLock().lock();
+        try {
+            PlayerData p = ensure(target, targetName);
+
+            Map<UUID, VoteData> byTarget = votes.get(voter);
+            VoteData existing = byTarget != null ? byTarget.get(target) : null;
+            Integer existingValue = existing != null ? existing.value : null;
+            String existingReason = existing != null ? existing.reason : null;
+
+            int likes = p.likes;
+            int dislikes = p.dislikes;
+
+            VoteResult result;
+            VoteData next;
+
+            if (existingValue == null) {
+                if (value == 1) likes++; else dislikes++;
+                next = new VoteData(value, reason, timeMillis);
+
+                addTagCount(target, reason, +1);
+                addVoteLog(target, new LogData(timeMillis, value, reason, voter, null));
+
+                result = VoteResult.CREATED;
+            } else if (existingValue == value) {
+                if (value == 1) likes--; else dislikes--;
+                next = new VoteData(null, null, timeMillis);
+
+                addTagCount(target, existingReason, -1);
+                addVoteLog(target, new LogData(timeMillis, value, "(removed)", voter, null));
+
+                result = VoteResult.REMOVED;
+            } else {
+                if (existingValue == 1 && value == 0) { likes--; dislikes++; }
+                if (existingValue == 0 && value == 1) { dislikes--; likes++; }
+                next = new VoteData(value, reason, timeMillis);
+
+                addTagCount(target, existingReason, -1);
+                addTagCount(target, reason, +1);
+                addVoteLog(target, new LogData(timeMillis, value, reason, voter, null));
+
+                result = VoteResult.CHANGED;
+            }
+
+            putVote(voter, target, next);
+            voteChanged(voter, target, next);
+
+            unindex(p);
+            p.likes = Math.max(0, likes);
+            p.dislikes = Math.max(0, dislikes);
+            p.score = NumberUtil.computeScore(plugin, p.likes, p.dislikes);
+            index(p);
+            if (targetName != null && !targetName.isEmpty()) p.name = targetName;
+            playerChanged(p);
+
+            committed();
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addTagCount(UUID target, String tag, int delta) {
+        if (tag == null || tag.trim().isEmpty()) return;
+
+        Map<String, Integer> map = tags.get(target);
+        int cur = map != null ? map.getOrDefault(tag, 0) : 0;
+        int next = Math.max(0, cur + delta);
+        if (next == cur) return;
+
+        putTag(target, tag, next);
+        tagChanged(target, tag, next);
+    }
+
+    private void addVoteLog(UUID target, LogData entry) {
+        int capacity = logCapacity();
+        appendLog(target, entry, capacity);
+        logAppended(target, entry, capacity);
+    }
+
+    @Override
+    public int countVotesByVoterSince(UUID voter, long sinceMillis) {
+        lock.readLock().lock();
+        try {
+            Map<UUID, VoteData> byTarget = votes.get(voter);
+            if (byTarget == null) return 0;
+
+            int cnt = 0;
+            for (VoteData v : byTarget.values()) {
+                if (v.value != null && v.lastTime >= sinceMillis) cnt++;
+            }
+            return cnt;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void markSeen(UUID uuid, String name, String ipHash) {
+        lock.writeLock().lock();
+        try {
+            PlayerData p = ensure(uuid, name);
+
+            boolean changed = !p.seen;
+            if (changed) {
+                p.seen = true;
+                index(p);
+            }
+            if (ipHash != null && !ipHash.equals(p.ipHash)) {
+                p.ipHash = ipHash;
+                changed = true;
+            }
+            if (changed) playerChanged(p);
+
+            committed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int getRank(UUID uuid) {
+        lock.readLock().lock();
+        try {
+            return rankOf(uuid);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // caller holds the read lock
+    protected int rankOf(UUID uuid) {
+        PlayerData self = players.get(uuid);
+        if (self == null || !self.seen) return -1;
+
+        return sorted.get(TopCategory.SCORE).headSet(self).size() + 1;
+    }
+
+    @Override
+    public Map<String, Integer> getTopTags(UUID target, int limit) {
+        lock.readLock().lock();
+        try {
+            return topTags(target, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Integer> topTags(UUID target, int limit) {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        if (limit <= 0) return out;
+
+        Map<String, Integer> map = tags.get(target);
+        if (map == null) return out;
+
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(map.entrySet());
+        entries.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+
+        for (int i = 0; i < entries.size() && out.size() < limit; i++) {
+            if (entries.get(i).getValue() > 0) out.put(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+        return out;
+    }
+
+    @Override
+    public List<VoteLogEntry> getRecentVotes(UUID target, int limit, boolean includeVoterName) {
+        lock.readLock().lock();
+        try {
+            return recentVotes(target, limit, includeVoterName);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<VoteLogEntry> recentVotes(UUID target, int limit, boolean includeVoterName) {
+        List<VoteLogEntry> list = new ArrayList<>();
+        if (limit <= 0) return list;
+
+        VoteLogRing log = voteLog.get(target);
+        if (log == null) return list;
+
+        for (int i = 0; i < log.size() && i < limit; i++) {
+            LogData e = log.get(i);
+
+            String voterName = null;
+            if (includeVoterName) {
+                voterName = e.voterName;
+                if (voterName == null && e.voter != null) {
+                    PlayerData p = players.get(e.voter);
+                    if (p != null) voterName = p.name;
+                }
+            }
+
+            list.add(new VoteLogEntry(e.time, e.value, e.reason, voterName));
+        }
+        return list;
+    }
+
+    @Override
+    public ProfileData loadProfile(UUID uuid, int tagLimit, int historyLimit, boolean includeVoterName) {
+        lock.readLock().lock();
+        try {
+            PlayerData p = players.get(uuid);
+            PlayerRep rep = p != null
+                    ? p.toRep()
+                    : new PlayerRep(uuid, null, 0, 0, 0, NumberUtil.defaultScore(plugin));
+
+            return new ProfileData(
+                    rep,
+                    rankOf(uuid),
+                    topTags(uuid, tagLimit),
+                    recentVotes(uuid, historyLimit, includeVoterName)
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getIpHash(UUID uuid) {
+        lock.readLock().lock();
+        try {
+            PlayerData p = players.get(uuid);
+            return p != null ? p.ipHash : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<UUID, String> getIpHashes() {
+        Map<UUID, String> out = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            for (PlayerData p : players.values()) {
+                if (p.ipHash != null) out.put(p.uuid, p.ipHash);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    // nothing is recorded: the pass is cheap in memory and only changed players are written, so it runs on every load
+    @Override
+    public String getScoreFingerprint() {
+        return null;
+    }
+
+    @Override
+    public long recomputeScores(String fingerprint) {
+        lock.writeLock().lock();
+        try {
+            long changed = 0;
+            for (PlayerData p : players.values()) {
+                double score = NumberUtil.computeScore(plugin, p.likes, p.dislikes);
+                if (Double.compare(score, p.score) == 0) continue;
+
+                unindex(p);
+                p.score = score;
+                index(p);
+                playerChanged(p);
+                changed++;
+            }
+
+            if (changed > 0) committed();
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rescore(UUID target, Collection<UUID> excludedVoters) {
+        lock.writeLock().lock();
+        try {
+            PlayerData p = players.get(target);
+            if (p == null) return;
+
+            int likes = p.likes;
+            int dislikes = p.dislikes;
+            for (UUID voter : excludedVoters) {
+                Map<UUID, VoteData> byTarget = votes.get(voter);
+                VoteData v = byTarget != null ? byTarget.get(target) : null;
+                if (v == null || v.value == null) continue;
+                if (v.value == 1) likes--;
+                else dislikes--;
+            }
+
+            double score = NumberUtil.computeScore(plugin, likes, dislikes);
+            if (Double.compare(score, p.score) == 0) return;
+
+            unindex(p);
+            p.score = score;
+            index(p);
+            playerChanged(p);
+            committed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long count(Table table) {
+        lock.readLock().lock();
+        try {
+            if (table == Table.PLAYERS) return players.size();
+
+            long n = 0;
+            if (table == Table.VOTES) for (Map<UUID, VoteData> m : votes.values()) n += m.size();
+            else if (table == Table.TAGS) for (Map<String, Integer> m : tags.values()) n += m.size();
+            else for (VoteLogRing ring : voteLog.values()) n += ring.size();
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // sorted top-level keys per table, taken when a run starts so later chunks only binary-search them;
+    // keys created mid-run are left to the next run, like rows the sql side inserts behind its cursor
+    private final Map<Table, List<String>> bulkKeys = new EnumMap<>(Table.class);
+
+    // cursors: uuid, "voter/target", "target/tag", "target/time/voter" (voter empty when unknown)
+    @Override
+    public List<BulkRow> read(Table table, String after, int limit) {
+        List<BulkRow> out = new ArrayList<>();
+
+        String first = null;
+        String second = null;
+        if (after != null) {
+            int slash = after.indexOf('/');
+            first = slash < 0 ? after : after.substring(0, slash);
+            second = slash < 0 ? null : after.substring(slash + 1);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<String> snapshot = bulkKeys(table, after == null);
+
+            if (table == Table.PLAYERS) {
+                for (String key : keysAfter(snapshot, first, false)) {
+                    PlayerData p = players.get(UUID.fromString(key));
+                    if (p == null) continue;
+                    out.add(BulkRow.player(key, p.uuid, p.name, p.likes, p.dislikes, p.score, p.seen, p.ipHash));
+                    if (out.size() >= limit) break;
+                }
+            } else if (table == Table.VOTES) {
+                for (String voterKey : keysAfter(snapshot, first, true)) {
+                    UUID voter = UUID.fromString(voterKey);
+                    Map<UUID, VoteData> byTarget = votes.get(voter);
+                    if (byTarget == null) continue;
+                    String from = voterKey.equals(first) ? second : null;
+
+                    // one voter's targets are few; sorting them per chunk is cheap
+                    List<String> targets = new ArrayList<>(byTarget.size());
+                    for (UUID uuid : byTarget.keySet()) targets.add(uuid.toString());
+                    Collections.sort(targets);
+
+                    for (String targetKey : keysAfter(targets, from, false)) {
+                        VoteData v = byTarget.get(UUID.fromString(targetKey));
+                        out.add(BulkRow.vote(voterKey + "/" + targetKey, voter, UUID.fromString(targetKey), v.value, v.reason, v.lastTime));
+                        if (out.size() >= limit) return out;
+                    }
+                }
+            } else if (table == Table.TAGS) {
+                for (String targetKey : keysAfter(snapshot, first, true)) {
+                    UUID target = UUID.fromString(targetKey);
+                    Map<String, Integer> byTag = tags.get(target);
+                    if (byTag == null) continue;
+
+                    List<String> keys = new ArrayList<>(byTag.keySet());
+                    Collections.sort(keys);
+                    for (String tag : keys) {
+                        if (targetKey.equals(first) && second != null && tag.compareTo(second) <= 0) continue;
+                        out.add(BulkRow.tag(targetKey + "/" + tag, target, tag, byTag.get(tag)));
+                        if (out.size() >= limit) return out;
+                    }
+                }
+            } else {
+                long afterTime = Long.MIN_VALUE;
+                String afterVoter = "";
+                if (second != null) {
+                    int slash = second.indexOf('/');
+                    afterTime = Long.parseLong(slash < 0 ? second : second.substring(0, slash));
+                    afterVoter = slash < 0 ? "" : second.substring(slash + 1);
+                }
+
+                for (String targetKey : keysAfter(snapshot, first, true)) {
+                    UUID target = UUID.fromString(targetKey);
+                    VoteLogRing ring = voteLog.get(target);
+                    if (ring == null) continue;
+
+                    // the same (target, time, voter) order and key the sql side skips duplicates by,
+                    // so entries appended to the ring mid-run do not shift the cursor
+                    List<LogData> entries = new ArrayList<>(ring.size());
+                    for (LogData e : ring) entries.add(e);
+                    entries.sort(LOG_ORDER);
+
+                    boolean resume = targetKey.equals(first) && second != null;
+                    for (LogData e : entries) {
+                        if (resume) {
+                            int cmp = Long.compare(e.time, afterTime);
+                            if (cmp < 0 || (cmp == 0 && voterKey(e).compareTo(afterVoter) <= 0)) continue;
+                        }
+                        out.add(BulkRow.log(logCursor(targetKey, e), target, e.voter, e.voterName, e.value, e.reason, e.time));
+                        if (out.size() >= limit) return out;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    // the key set is copied once; rows are copied one key at a time and handed out with no lock held
+    @Override
+    public void scan(Table table, int fetchSize, Consumer<BulkRow> sink) {
+        List<UUID> keys;
+        lock.readLock().lock();
+        try {
+            if (table == Table.PLAYERS) keys = new ArrayList<>(players.keySet());
+            else if (table == Table.VOTES) keys = new ArrayList<>(votes.keySet());
+            else if (table == Table.TAGS) keys = new ArrayList<>(tags.keySet());
+            else keys = new ArrayList<>(voteLog.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<BulkRow> buffer = new ArrayList<>();
+        for (UUID key : keys) {
+            lock.readLock().lock();
+            try {
+                copyRows(table, key, buffer);
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            if (buffer.size() >= fetchSize) {
+                for (BulkRow row : buffer) sink.accept(row);
+                buffer.clear();
+            }
+        }
+        for (BulkRow row : buffer) sink.accept(row);
+    }
+
+    private void copyRows(Table table, UUID key, List<BulkRow> out) {
+        String k = key.toString();
+
+        if (table == Table.PLAYERS) {
+            PlayerData p = players.get(key);
+            if (p != null) out.add(BulkRow.player(k, p.uuid, p.name, p.likes, p.dislikes, p.score, p.seen, p.ipHash));
+        } else if (table == Table.VOTES) {
+            Map<UUID, VoteData> byTarget = votes.get(key);
+            if (byTarget == null) return;
+            for (Map.Entry<UUID, VoteData> e : byTarget.entrySet()) {
+                VoteData v = e.getValue();
+                out.add(BulkRow.vote(k + "/" + e.getKey(), key, e.getKey(), v.value, v.reason, v.lastTime));
+            }
+        } else if (table == Table.TAGS) {
+            Map<String, Integer> byTag = tags.get(key);
+            if (byTag == null) return;
+            for (Map.Entry<String, Integer> e : byTag.entrySet()) {
+                out.add(BulkRow.tag(k + "/" + e.getKey(), key, e.getKey(), e.getValue()));
+            }
+        } else {
+            VoteLogRing ring = voteLog.get(key);
+            if (ring == null) return;
+            for (int i = ring.size() - 1; i >= 0; i--) {
+                LogData e = ring.get(i);
+                out.add(BulkRow.log(logCursor(k, e), key, e.voter, e.voterName, e.value, e.reason, e.time));
+            }
+        }
+    }
+
+    private static final Comparator<LogData> LOG_ORDER =
+            Comparator.<LogData>comparingLong(e -> e.time).thenComparing(MemoryStorage::voterKey);
+
+    private static String voterKey(LogData e) {
+        return e.voter != null ? e.voter.toString() : "";
+    }
+
+    private static String logCursor(String targetKey, LogData e) {
+        return targetKey + "/" + e.time + "/" + voterKey(e);
+    }
+
+    // caller holds the read lock
+    private List<String> bulkKeys(Table table, boolean restart) {
+        synchronized (bulkKeys) {
+            List<String> keys = bulkKeys.get(table);
+            if (keys != null && !restart) return keys;
+
+            Set<UUID> source;
+            if (table == Table.PLAYERS) source = players.keySet();
+            else if (table == Table.VOTES) source = votes.keySet();
+            else if (table == Table.TAGS) source = tags.keySet();
+            else source = voteLog.keySet();
+
+            keys = new ArrayList<>(source.size());
+            for (UUID uuid : source) keys.add(uuid.toString());
+            Collections.sort(keys);
+            keys = Collections.unmodifiableList(keys);
+            bulkKeys.put(table, keys);
+            return keys;
+        }
+    }
+
+    private static List<String> keysAfter(List<String> sorted, String after, boolean inclusive) {
+        if (after == null) return sorted;
+        int i = Collections.binarySearch(sorted, after);
+        if (i < 0) i = -i - 1;
+        else if (!inclusive) i++;
+        return sorted.subList(i, sorted.size());
+    }
+
+    @Override
+    public void write(Table table, List<BulkRow> rows) {
+        if (rows.isEmpty()) return;
+
+        lock.writeLock().lock();
+        try {
+            int capacity = logCapacity();
+
+            for (BulkRow row : rows) {
+                if (table == Table.PLAYERS) {
+                    PlayerData p = new PlayerData(row.uuid);
+                    p.name = row.name;
+                    p.likes = row.likes;
+                    p.dislikes = row.dislikes;
+                    p.score = row.score;
+                    p.seen = row.seen;
+                    p.ipHash = row.ipHash;
+                    putPlayer(p);
+                    playerChanged(p);
+                } else if (table == Table.VOTES) {
+                    VoteData v = new VoteData(row.value, row.reason, row.time);
+                    putVote(row.voter, row.uuid, v);
+                    voteChanged(row.voter, row.uuid, v);
+                } else if (table == Table.TAGS) {
+                    putTag(row.uuid, row.reason, row.count);
+                    tagChanged(row.uuid, row.reason, row.count);
+                } else {
+                    LogData e = new LogData(row.time, row.value != null ? row.value : 1, row.reason, row.voter, row.name);
+                    if (hasLog(row.uuid, e)) continue;
+                    appendLog(row.uuid, e, capacity);
+                    logAppended(row.uuid, e, capacity);
+                }
+            }
+
+            committed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean hasLog(UUID target, LogData e) {
+        VoteLogRing ring = voteLog.get(target);
+        if (ring == null) return false;
+
+        for (LogData x : ring) {
+            if (x.time == e.time && x.value == e.value && Objects.equals(x.voter, e.voter) && Objects.equals(x.reason, e.reason)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
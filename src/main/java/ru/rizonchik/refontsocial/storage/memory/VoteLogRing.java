@@ -0,0 +1,68 @@
+package ru.rizonchik.refontsocial.storage.memory;
+
+import ru.rizonchik.refontsocial.storage.memory.MemoryStorage.LogData;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// fixed-size vote history of one target: add overwrites the oldest slot, iteration is newest first
+public final class VoteLogRing implements Iterable<LogData> {
+
+    private LogData[] slots;
+    private int next;
+    private int size;
+
+    public VoteLogRing(int capacity) {
+        this.slots = new LogData[Math.max(1, capacity)];
+    }
+
+    public void add(LogData entry, int capacity) {
+        if (capacity != slots.length) resize(capacity);
+
+        slots[next] = entry;
+        next = (next + 1) % slots.length;
+        if (size < slots.length) size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // 0 is the newest entry
+    public LogData get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(String.valueOf(i));
+        int idx = next - 1 - i;
+        if (idx < 0) idx += slots.length;
+        return slots[idx];
+    }
+
+    private void resize(int capacity) {
+        capacity = Math.max(1, capacity);
+
+        int keep = Math.min(size, capacity);
+        LogData[] out = new LogData[capacity];
+        for (int i = 0; i < keep; i++) out[keep - 1 - i] = get(i);
+
+        slots = out;
+        size = keep;
+        next = keep % capacity;
+    }
+
+    @Override
+    public Iterator<LogData> iterator() {
+        return new Iterator<LogData>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public LogData next() {
+                if (i >= size) throw new NoSuchElementException();
+                return get(i++);
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package ru.rizonchik.refontsocial.storage.model;
+
+import java.util.UUID;
+
+// one row of any bulk table; only the fields of its table are set
+public final class BulkRow {
+
+    public final String cursor; // opaque position in the source, see BulkStorage.read
+
+    public final UUID uuid;     // player uuid, or vote/tag/log target
+    public final UUID voter;    // votes and vote log
+    public final String name;   // player name, or voter name in the vote log
+    public final int likes;
+    public final int dislikes;
+    public final double score;
+    public final boolean seen;
+    public final String ipHash;
+    public final Integer value;
+    public final String reason; // vote/log reason, or tag key
+    public final int count;
+    public final long time;
+
+    private BulkRow(String cursor, UUID uuid, UUID voter, String name, int likes, int dislikes, double score,
+                    boolean seen, String ipHash, Integer value, String reason, int count, long time) {
+        this.cursor = cursor;
+        this.uuid = uuid;
+        this.voter = voter;
+        this.name = name;
+        this.likes = likes;
+        this.dislikes = dislikes;
+        this.score = score;
+        this.seen = seen;
+        this.ipHash = ipHash;
+        this.value = value;
+        this.reason = reason;
+        this.count = count;
+        this.time = time;
+    }
+
+    public static BulkRow player(String cursor, UUID uuid, String name, int likes, int dislikes, double score, boolean seen, String ipHash) {
+        return new BulkRow(cursor, uuid, null, name, likes, dislikes, score, seen, ipHash, null, null, 0, 0L);
+    }
+
+    public static BulkRow vote(String cursor, UUID voter, UUID target, Integer value, String reason, long lastTime) {
+        return new BulkRow(cursor, target, voter, null, 0, 0, 0.0, false, null, value, reason, 0, lastTime);
+    }
+
+    public static BulkRow tag(String cursor, UUID target, String tag, int count) {
+        return new BulkRow(cursor, target, null, null, 0, 0, 0.0, false, null, null, tag, count, 0L);
+    }
+
+    public static BulkRow log(String cursor, UUID target, UUID voter, String voterName, int value, String reason, long time) {
+        return new BulkRow(cursor, target, voter, voterName, 0, 0, 0.0, false, null, value, reason, 0, time);
+    }
+}
@@ -0,0 +1,34 @@
+package ru.rizonchik.refontsocial.storage.model;
+
+import java.util.List;
+import java.util.Map;
+
+public final class ProfileData {
+    private final PlayerRep rep;
+    private final int rank; // -1 when not ranked
+    private final Map<String, Integer> topTags;
+    private final List<VoteLogEntry> history;
+
+    public ProfileData(PlayerRep rep, int rank, Map<String, Integer> topTags, List<VoteLogEntry> history) {
+        this.rep = rep;
+        this.rank = rank;
+        this.topTags = topTags;
+        this.history = history;
+    }
+
+    public PlayerRep getRep() {
+        return rep;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public Map<String, Integer> getTopTags() {
+        return topTags;
+    }
+
+    public List<VoteLogEntry> getHistory() {
+        return history;
+    }
+}
@@ -0,0 +1,40 @@
+package ru.rizonchik.refontsocial.storage.model;
+
+import java.util.UUID;
+
+public final class VoteRecord {
+
+    private final UUID voter;
+    private final UUID target;
+    private final Integer value;
+    private final String reason;
+    private final long lastTime;
+
+    public VoteRecord(UUID voter, UUID target, Integer value, String reason, long lastTime) {
+        this.voter = voter;
+        this.target = target;
+        this.value = value;
+        this.reason = reason;
+        this.lastTime = lastTime;
+    }
+
+    public UUID getVoter() {
+        return voter;
+    }
+
+    public UUID getTarget() {
+        return target;
+    }
+
+    public Integer getValue() {
+        return value;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public long getLastTime() {
+        return lastTime;
+    }
+}
@@ -3,16 +3,24 @@ package ru.rizonchik.refontsocial.storage.sql;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.plugin.java.JavaPlugin;
+import ru.rizonchik.refontsocial.storage.BulkStorage;
+import ru.rizonchik.refontsocial.storage.MaintenanceStorage;
+import ru.rizonchik.refontsocial.storage.ScoreStorage;
 import ru.rizonchik.refontsocial.storage.Storage;
+import ru.rizonchik.refontsocial.storage.Throttle;
 import ru.rizonchik.refontsocial.storage.TopCategory;
+import ru.rizonchik.refontsocial.storage.model.BulkRow;
 import ru.rizonchik.refontsocial.storage.model.PlayerRep;
+import ru.rizonchik.refontsocial.storage.model.ProfileData;
 import ru.rizonchik.refontsocial.storage.model.VoteLogEntry;
+import ru.rizonchik.refontsocial.storage.model.VoteRecord;
 import ru.rizonchik.refontsocial.util.NumberUtil;
 
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 
-public abstract class SqlStorage implements Storage {
+public abstract class SqlStorage implements Storage, BulkStorage, MaintenanceStorage, ScoreStorage {
 
     protected final JavaPlugin plugin;
     protected HikariDataSource ds;
@@ -72,6 +80,18 @@ public abstract class SqlStorage implements Storage {
                         "time BIGINT NOT NULL" +
                         ")");
 
+                // vote log rows moved out by retention
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS rs_vote_log_archive (" +
+                        "id BIGINT NOT NULL PRIMARY KEY," +
+                        "target VARCHAR(36) NOT NULL," +
+                        "voter VARCHAR(36) NULL," +
+                        "voter_name VARCHAR(16) NULL," +
+                        "value INT NOT NULL," +
+                        "reason VARCHAR(64) NULL," +
+                        "time BIGINT NOT NULL," +
+                        "archived BIGINT NOT NULL" +
+                        ")");
+
                 // tags
                 st.executeUpdate("CREATE TABLE IF NOT EXISTS rs_tags (" +
                         "target VARCHAR(36) NOT NULL," +
@@ -80,6 +100,12 @@ public abstract class SqlStorage implements Storage {
                         "PRIMARY KEY (target, tag)" +
                         ")");
 
+                // plugin state that belongs to this database
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS rs_meta (" +
+                        "meta_key VARCHAR(64) PRIMARY KEY," +
+                        "meta_value VARCHAR(255) NULL" +
+                        ")");
+
                 // backward-compat
                 try {
                     st.executeUpdate("ALTER TABLE rs_players ADD COLUMN seen INT NOT NULL DEFAULT 0");
@@ -93,6 +119,7 @@ public abstract class SqlStorage implements Storage {
                 try { st.executeUpdate("CREATE INDEX idx_rs_players_score ON rs_players(score)"); } catch (SQLException ignored) {}
                 try { st.executeUpdate("CREATE INDEX idx_rs_players_seen_score ON rs_players(seen, score)"); } catch (SQLException ignored) {}
                 try { st.executeUpdate("CREATE INDEX idx_rs_votes_voter_time ON rs_votes(voter, last_time)"); } catch (SQLException ignored) {}
+                try { st.executeUpdate("CREATE INDEX idx_rs_votes_time ON rs_votes(last_time)"); } catch (SQLException ignored) {}
                 try { st.executeUpdate("CREATE INDEX idx_rs_vote_log_target_time ON rs_vote_log(target, time)"); } catch (SQLException ignored) {}
                 try { st.executeUpdate("CREATE INDEX idx_rs_tags_target_count ON rs_tags(target, count)"); } catch (SQLException ignored) {}
 
@@ -121,6 +148,25 @@ public abstract class SqlStorage implements Storage {
         return null;
     }
 
+    @Override
+    public Map<UUID, String> getIpHashes() {
+        Map<UUID, String> out = new HashMap<>();
+
+        try (Connection c = ds.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("SELECT uuid, ip_hash FROM rs_players WHERE ip_hash IS NOT NULL")) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.put(UUID.fromString(rs.getString("uuid")), rs.getString("ip_hash"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return out;
+    }
+
     @Override
     public void close() {
         if (ds != null) {
@@ -131,7 +177,7 @@ public abstract class SqlStorage implements Storage {
 
     @Override
     public PlayerRep getOrCreate(UUID uuid, String name) {
-        ensurePlayer(uuid, name);
+        ensurePlayer(uuid, name, false);
 
         try (Connection c = ds.getConnection()) {
             try (PreparedStatement ps = c.prepareStatement(
@@ -169,6 +215,60 @@ public abstract class SqlStorage implements Storage {
         return null;
     }
 
+    @Override
+    public Map<UUID, String> getLastKnownNames(Collection<UUID> uuids) {
+        Map<UUID, String> out = new HashMap<>();
+        if (uuids == null || uuids.isEmpty()) return out;
+
+        List<UUID> list = new ArrayList<>(uuids);
+
+        try (Connection c = ds.getConnection()) {
+            for (int from = 0; from < list.size(); from += 500) {
+                List<UUID> chunk = list.subList(from, Math.min(list.size(), from + 500));
+
+                StringBuilder sql = new StringBuilder("SELECT uuid, name FROM rs_players WHERE uuid IN (");
+                for (int i = 0; i < chunk.size(); i++) sql.append(i == 0 ? "?" : ",?");
+                sql.append(")");
+
+                try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                    for (int i = 0; i < chunk.size(); i++) ps.setString(i + 1, chunk.get(i).toString());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            String name = rs.getString("name");
+                            if (name != null) out.put(UUID.fromString(rs.getString("uuid")), name);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return out;
+    }
+
+    @Override
+    public Map<UUID, String> getNames() {
+        Map<UUID, String> out = new HashMap<>();
+
+        try (Connection c = ds.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement("SELECT uuid, name FROM rs_players WHERE name IS NOT NULL")) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        try {
+                            out.put(UUID.fromString(rs.getString("uuid")), rs.getString("name"));
+                        } catch (IllegalArgumentException ignored) {
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return out;
+    }
+
     @Override
     public List<PlayerRep> getTop(int limit, int offset) {
         return getTop(TopCategory.SCORE, limit, offset);
@@ -232,10 +332,39 @@ public abstract class SqlStorage implements Storage {
         return null;
     }
 
+    @Override
+    public List<VoteRecord> getVotesSince(long sinceMillis) {
+        List<VoteRecord> list = new ArrayList<>();
+
+        try (Connection c = ds.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(
+                    "SELECT voter, target, value, reason, last_time FROM rs_votes WHERE last_time>=?")) {
+                ps.setLong(1, sinceMillis);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Object v = rs.getObject("value");
+                        Integer value = v == null ? null : rs.getInt("value");
+                        list.add(new VoteRecord(
+                                UUID.fromString(rs.getString("voter")),
+                                UUID.fromString(rs.getString("target")),
+                                value,
+                                rs.getString("reason"),
+                                rs.getLong("last_time")
+                        ));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return list;
+    }
+
     @Override
     public VoteResult applyVote(UUID voter, UUID target, int value, long timeMillis, String targetName, String reason) {
-        ensurePlayer(target, targetName);
-        ensurePlayer(voter, null);
+        ensurePlayer(target, targetName, true);
+        ensurePlayer(voter, null, true);
 
         try (Connection c = ds.getConnection()) {
             c.setAutoCommit(false);
@@ -370,7 +499,7 @@ public abstract class SqlStorage implements Storage {
 
     @Override
     public void markSeen(UUID uuid, String name, String ipHash) {
-        ensurePlayer(uuid, name);
+        ensurePlayer(uuid, name, false);
         try (Connection c = ds.getConnection()) {
             try (PreparedStatement ps = c.prepareStatement(
                     "UPDATE rs_players SET seen=1, name=COALESCE(?, name), ip_hash=COALESCE(?, ip_hash), updated=? WHERE uuid=?")) {
@@ -476,7 +605,114 @@ public abstract class SqlStorage implements Storage {
         return list;
     }
 
-    protected void ensurePlayer(UUID uuid, String name) {
+    @Override
+    public ProfileData loadProfile(UUID uuid, int tagLimit, int historyLimit, boolean includeVoterName) {
+        String player = "SELECT name, likes, dislikes, score, seen FROM rs_players WHERE uuid=?";
+        String rank = "SELECT COUNT(*) AS cnt FROM rs_players p, " +
+                "(SELECT score, (likes+dislikes) AS votes FROM rs_players WHERE uuid=?) t " +
+                "WHERE p.seen=1 AND (" +
+                "p.score > t.score OR " +
+                "(p.score = t.score AND (p.likes+p.dislikes) > t.votes) OR " +
+                "(p.score = t.score AND (p.likes+p.dislikes) = t.votes AND p.uuid < ?)" +
+                ")";
+        String tags = "SELECT tag, count FROM rs_tags WHERE target=? AND count>0 ORDER BY count DESC LIMIT ?";
+        String history = includeVoterName
+                ? "SELECT value, reason, time, voter_name FROM rs_vote_log WHERE target=? ORDER BY time DESC LIMIT ?"
+                : "SELECT value, reason, time, NULL AS voter_name FROM rs_vote_log WHERE target=? ORDER BY time DESC LIMIT ?";
+
+        String id = uuid.toString();
+        int tagCount = Math.max(0, tagLimit);
+        int historyCount = Math.max(0, historyLimit);
+
+        ProfileReader reader = new ProfileReader(uuid);
+
+        try (Connection c = ds.getConnection()) {
+            // one connection and one snapshot; the pool stays single-statement
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = c.prepareStatement(player)) {
+                    ps.setString(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        reader.read(0, rs);
+                    }
+                }
+                try (PreparedStatement ps = c.prepareStatement(rank)) {
+                    ps.setString(1, id);
+                    ps.setString(2, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        reader.read(1, rs);
+                    }
+                }
+                try (PreparedStatement ps = c.prepareStatement(tags)) {
+                    ps.setString(1, id);
+                    ps.setInt(2, tagCount);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        reader.read(2, rs);
+                    }
+                }
+                try (PreparedStatement ps = c.prepareStatement(history)) {
+                    ps.setString(1, id);
+                    ps.setInt(2, historyCount);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        reader.read(3, rs);
+                    }
+                }
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return reader.build();
+    }
+
+    private final class ProfileReader {
+        private final UUID uuid;
+
+        private PlayerRep rep;
+        private boolean seen;
+        private int above = -1;
+        private final Map<String, Integer> tags = new LinkedHashMap<>();
+        private final List<VoteLogEntry> history = new ArrayList<>();
+
+        private ProfileReader(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        private void read(int index, ResultSet rs) throws SQLException {
+            if (index == 0) {
+                if (!rs.next()) return;
+                int likes = rs.getInt("likes");
+                int dislikes = rs.getInt("dislikes");
+                rep = new PlayerRep(uuid, rs.getString("name"), likes, dislikes, likes + dislikes, rs.getDouble("score"));
+                seen = rs.getInt("seen") == 1;
+            } else if (index == 1) {
+                if (rs.next()) above = rs.getInt("cnt");
+            } else if (index == 2) {
+                while (rs.next()) tags.put(rs.getString("tag"), rs.getInt("count"));
+            } else if (index == 3) {
+                while (rs.next()) {
+                    history.add(new VoteLogEntry(rs.getLong("time"), rs.getInt("value"), rs.getString("reason"), rs.getString("voter_name")));
+                }
+            }
+        }
+
+        private ProfileData build() {
+            PlayerRep r = rep != null ? rep : new PlayerRep(uuid, null, 0, 0, 0, NumberUtil.defaultScore(plugin));
+            int rank = (rep != null && seen && above >= 0) ? above + 1 : -1;
+            return new ProfileData(r, rank, tags, history);
+        }
+    }
+
+    // touch bumps updated, which keeps the phantom sweeper off a row that is about to get a vote;
+    // lookups (placeholders, commands) must not, or a looked-up phantom would never age out
+    protected void ensurePlayer(UUID uuid, String name, boolean touch) {
         try (Connection c = ds.getConnection()) {
             try (PreparedStatement ps = c.prepareStatement(
                     "INSERT INTO rs_players(uuid, name, likes, dislikes, score, updated, seen, ip_hash) VALUES (?,?,?,?,?,?,?,?)")) {
@@ -490,11 +726,20 @@ public abstract class SqlStorage implements Storage {
                 ps.setString(8, null);
                 ps.executeUpdate();
             } catch (SQLException ex) {
-                try (PreparedStatement ps = c.prepareStatement(
-                        "UPDATE rs_players SET name=COALESCE(?, name) WHERE uuid=?")) {
-                    ps.setString(1, name);
-                    ps.setString(2, uuid.toString());
-                    ps.executeUpdate();
+                if (touch) {
+                    try (PreparedStatement ps = c.prepareStatement(
+                            "UPDATE rs_players SET name=COALESCE(?, name), updated=? WHERE uuid=?")) {
+                        ps.setString(1, name);
+                        ps.setLong(2, System.currentTimeMillis());
+                        ps.setString(3, uuid.toString());
+                        ps.executeUpdate();
+                    }
+                } else if (name != null) {
+                    try (PreparedStatement ps = c.prepareStatement("UPDATE rs_players SET name=? WHERE uuid=?")) {
+                        ps.setString(1, name);
+                        ps.setString(2, uuid.toString());
+                        ps.executeUpdate();
+                    }
                 }
             }
         } catch (SQLException e) {
@@ -577,4 +822,548 @@ public abstract class SqlStorage implements Storage {
             }
         }
     }
-}
\ No newline at end of file
+
+    // walks targets in key order and clears each one in chunks, one short transaction per chunk
+    @Override
+    public long pruneVoteLog(int keepPerTarget, long olderThanMillis, boolean archive, Throttle throttle) {
+        int keep = Math.max(0, keepPerTarget);
+        int chunk = Math.min(throttle.chunkSize(), 500);
+        long removed = 0;
+        String after = "";
+
+        while (!throttle.isCancelled()) {
+            List<String> targets = new ArrayList<>();
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(
+                         "SELECT DISTINCT target FROM rs_vote_log WHERE target > ? ORDER BY target LIMIT 200")) {
+                ps.setString(1, after);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) targets.add(rs.getString(1));
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            if (targets.isEmpty()) break;
+            after = targets.get(targets.size() - 1);
+
+            for (String target : targets) {
+                while (true) {
+                    List<Long> ids = expiredLogIds(target, keep, olderThanMillis, chunk);
+                    if (ids.isEmpty()) break;
+
+                    removed += removeLogRows(ids, archive);
+                    if (!throttle.pause()) return removed;
+                    if (ids.size() < chunk) break;
+                }
+            }
+        }
+        return removed;
+    }
+
+    private List<Long> expiredLogIds(String target, int keep, long olderThanMillis, int limit) {
+        List<Long> out = new ArrayList<>();
+        // the derived table lets MySQL accept LIMIT inside NOT IN
+        String sql = "SELECT id FROM rs_vote_log WHERE target=? AND time < ? AND id NOT IN (" +
+                "SELECT id FROM (SELECT id FROM rs_vote_log WHERE target=? ORDER BY time DESC, id DESC LIMIT ?) newest" +
+                ") ORDER BY id LIMIT ?";
+
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setString(1, target);
+            ps.setLong(2, olderThanMillis);
+            ps.setString(3, target);
+            ps.setInt(4, keep);
+            ps.setInt(5, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return out;
+    }
+
+    private int removeLogRows(List<Long> ids, boolean archive) {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < ids.size(); i++) in.append(i == 0 ? "?" : ",?");
+
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                if (archive) {
+                    try (PreparedStatement ps = c.prepareStatement(
+                            "INSERT INTO rs_vote_log_archive(id, target, voter, voter_name, value, reason, time, archived) " +
+                                    "SELECT id, target, voter, voter_name, value, reason, time, ? FROM rs_vote_log WHERE id IN (" + in + ")")) {
+                        ps.setLong(1, System.currentTimeMillis());
+                        for (int i = 0; i < ids.size(); i++) ps.setLong(i + 2, ids.get(i));
+                        ps.executeUpdate();
+                    }
+                }
+
+                int deleted;
+                try (PreparedStatement ps = c.prepareStatement("DELETE FROM rs_vote_log WHERE id IN (" + in + ")")) {
+                    for (int i = 0; i < ids.size(); i++) ps.setLong(i + 1, ids.get(i));
+                    deleted = ps.executeUpdate();
+                }
+
+                c.commit();
+                return deleted;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // pages through the primary key so every read is bounded; the delete re-checks every condition itself
+    @Override
+    public long purgePhantomPlayers(long untouchedSinceMillis, Throttle throttle) {
+        int chunk = Math.min(throttle.chunkSize(), 500);
+        long removed = 0;
+        String after = "";
+
+        while (!throttle.isCancelled()) {
+            List<String> candidates = new ArrayList<>();
+            String last = null;
+
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(
+                         "SELECT uuid, seen, likes, dislikes, updated FROM rs_players WHERE uuid > ? ORDER BY uuid LIMIT ?")) {
+                ps.setString(1, after);
+                ps.setInt(2, chunk);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        last = rs.getString("uuid");
+                        if (rs.getInt("seen") == 0 && rs.getInt("likes") == 0 && rs.getInt("dislikes") == 0
+                                && rs.getLong("updated") < untouchedSinceMillis) {
+                            candidates.add(last);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            if (last == null) break;
+            after = last;
+
+            if (!candidates.isEmpty()) {
+                StringBuilder in = new StringBuilder();
+                for (int i = 0; i < candidates.size(); i++) in.append(i == 0 ? "?" : ",?");
+
+                try (Connection c = ds.getConnection();
+                     PreparedStatement ps = c.prepareStatement(
+                             "DELETE FROM rs_players WHERE uuid IN (" + in + ") " +
+                                     "AND seen=0 AND likes=0 AND dislikes=0 AND updated < ? " +
+                                     "AND NOT EXISTS (SELECT 1 FROM rs_votes WHERE rs_votes.voter = rs_players.uuid) " +
+                                     "AND NOT EXISTS (SELECT 1 FROM rs_vote_log WHERE rs_vote_log.target = rs_players.uuid)")) {
+                    int i = 1;
+                    for (String uuid : candidates) ps.setString(i++, uuid);
+                    ps.setLong(i, untouchedSinceMillis);
+                    removed += ps.executeUpdate();
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            if (!throttle.pause()) break;
+        }
+        return removed;
+    }
+
+    @Override
+    public long purgeEmptyTags(Throttle throttle) {
+        int chunk = Math.min(throttle.chunkSize(), 500);
+        long removed = 0;
+        String afterTarget = "";
+        String afterTag = "";
+
+        while (!throttle.isCancelled()) {
+            List<String[]> empty = new ArrayList<>();
+            String[] last = null;
+
+            try (Connection c = ds.getConnection();
+                 PreparedStatement ps = c.prepareStatement(
+                         "SELECT target, tag, count FROM rs_tags WHERE target > ? OR (target = ? AND tag > ?) ORDER BY target, tag LIMIT ?")) {
+                ps.setString(1, afterTarget);
+                ps.setString(2, afterTarget);
+                ps.setString(3, afterTag);
+                ps.setInt(4, chunk);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        last = new String[]{rs.getString("target"), rs.getString("tag")};
+                        if (rs.getInt("count") <= 0) empty.add(last);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            if (last == null) break;
+            afterTarget = last[0];
+            afterTag = last[1];
+
+            if (!empty.isEmpty()) {
+                try (Connection c = ds.getConnection()) {
+                    c.setAutoCommit(false);
+                    try (PreparedStatement ps = c.prepareStatement("DELETE FROM rs_tags WHERE target=? AND tag=? AND count <= 0")) {
+                        for (String[] key : empty) {
+                            ps.setString(1, key[0]);
+                            ps.setString(2, key[1]);
+                            ps.addBatch();
+                        }
+                        for (int n : ps.executeBatch()) {
+                            if (n > 0) removed += n;
+                        }
+                        c.commit();
+                    } catch (SQLException e) {
+                        c.rollback();
+                        throw e;
+                    } finally {
+                        c.setAutoCommit(true);
+                    }
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            if (!throttle.pause()) break;
+        }
+        return removed;
+    }
+
+    @Override
+    public String getScoreFingerprint() {
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT meta_value FROM rs_meta WHERE meta_key='score_fingerprint'");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // NumberUtil.computeScore as one UPDATE; committed together with the fingerprint, so a crash just repeats it
+    @Override
+    public long recomputeScores(String fingerprint) {
+        double min = plugin.getConfig().getDouble("rating.scale.min", 0.0);
+        double max = plugin.getConfig().getDouble("rating.scale.max", 10.0);
+        double def = NumberUtil.clamp(NumberUtil.defaultScore(plugin), min, max);
+
+        String algo = plugin.getConfig().getString("rating.algorithm", "BAYESIAN");
+        boolean simple = algo != null && algo.toUpperCase(Locale.ROOT).equals("SIMPLE_RATIO");
+        int priorVotes = Math.max(0, plugin.getConfig().getInt("rating.bayesian.priorVotes", 12));
+        double defRatio = max - min <= 0.0 ? 0.5 : (def - min) / (max - min);
+
+        String greatest = isMysql() ? "GREATEST" : "MAX";
+        String least = isMysql() ? "LEAST" : "MIN";
+        String l = greatest + "(likes, 0)";
+        String d = greatest + "(dislikes, 0)";
+
+        // * 1E0 keeps the division in floating point on MySQL, where bound doubles arrive as decimals
+        String ratio = simple
+                ? l + " * 1E0 / (" + l + " + " + d + ")"
+                : "(" + l + " + ?) * 1E0 / (" + l + " + " + d + " + ?)";
+
+        String sql = "UPDATE rs_players SET score = CASE WHEN " + l + " + " + d + " <= 0 THEN ? " +
+                "ELSE " + greatest + "(?, " + least + "(?, ? + ? * " + ratio + ")) END";
+
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                int updated;
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    int i = 1;
+                    ps.setDouble(i++, def);
+                    ps.setDouble(i++, min);
+                    ps.setDouble(i++, max);
+                    ps.setDouble(i++, min);
+                    ps.setDouble(i++, max - min);
+                    if (!simple) {
+                        ps.setDouble(i++, priorVotes * defRatio);
+                        ps.setDouble(i, priorVotes);
+                    }
+                    updated = ps.executeUpdate();
+                }
+
+                try (PreparedStatement ps = c.prepareStatement(isMysql()
+                        ? "INSERT INTO rs_meta(meta_key, meta_value) VALUES ('score_fingerprint', ?) ON DUPLICATE KEY UPDATE meta_value=VALUES(meta_value)"
+                        : "INSERT INTO rs_meta(meta_key, meta_value) VALUES ('score_fingerprint', ?) ON CONFLICT(meta_key) DO UPDATE SET meta_value=excluded.meta_value")) {
+                    ps.setString(1, fingerprint);
+                    ps.executeUpdate();
+                }
+
+                c.commit();
+                return updated;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void rescore(UUID target, Collection<UUID> excludedVoters) {
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                int likes;
+                int dislikes;
+
+                // the row lock keeps a concurrent applyVote from landing between the read and the write
+                try (PreparedStatement ps = c.prepareStatement("SELECT likes, dislikes FROM rs_players WHERE uuid=?"
+                        + (isMysql() ? " FOR UPDATE" : ""))) {
+                    ps.setString(1, target.toString());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) {
+                            c.commit();
+                            return;
+                        }
+                        likes = rs.getInt("likes");
+                        dislikes = rs.getInt("dislikes");
+                    }
+                }
+
+                if (!excludedVoters.isEmpty()) {
+                    StringBuilder in = new StringBuilder();
+                    for (int i = 0; i < excludedVoters.size(); i++) in.append(i == 0 ? "?" : ",?");
+
+                    try (PreparedStatement ps = c.prepareStatement(
+                            "SELECT value, COUNT(*) AS cnt FROM rs_votes WHERE target=? AND value IS NOT NULL AND voter IN (" + in + ") GROUP BY value")) {
+                        int i = 1;
+                        ps.setString(i++, target.toString());
+                        for (UUID voter : excludedVoters) ps.setString(i++, voter.toString());
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                if (rs.getInt("value") == 1) likes -= rs.getInt("cnt");
+                                else dislikes -= rs.getInt("cnt");
+                            }
+                        }
+                    }
+                }
+
+                try (PreparedStatement ps = c.prepareStatement("UPDATE rs_players SET score=? WHERE uuid=?")) {
+                    ps.setDouble(1, NumberUtil.computeScore(plugin, likes, dislikes));
+                    ps.setString(2, target.toString());
+                    ps.executeUpdate();
+                }
+
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public long count(Table table) {
+        try (Connection c = ds.getConnection();
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + tableName(table))) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // keyset pagination: players by uuid, votes by (voter, target), tags by (target, tag), vote log by id
+    @Override
+    public List<BulkRow> read(Table table, String after, int limit) {
+        List<BulkRow> out = new ArrayList<>();
+
+        String sql;
+        if (table == Table.PLAYERS) {
+            sql = "SELECT uuid, name, likes, dislikes, score, seen, ip_hash FROM rs_players WHERE uuid > ? ORDER BY uuid LIMIT ?";
+        } else if (table == Table.VOTES) {
+            sql = "SELECT voter, target, value, reason, last_time FROM rs_votes " +
+                    "WHERE voter > ? OR (voter = ? AND target > ?) ORDER BY voter, target LIMIT ?";
+        } else if (table == Table.TAGS) {
+            sql = "SELECT target, tag, count FROM rs_tags " +
+                    "WHERE target > ? OR (target = ? AND tag > ?) ORDER BY target, tag LIMIT ?";
+        } else {
+            sql = "SELECT id, target, voter, voter_name, value, reason, time FROM rs_vote_log WHERE id > ? ORDER BY id LIMIT ?";
+        }
+
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            if (table == Table.PLAYERS) {
+                ps.setString(1, after != null ? after : "");
+                ps.setInt(2, limit);
+            } else if (table == Table.VOTE_LOG) {
+                ps.setLong(1, after != null ? Long.parseLong(after) : 0L);
+                ps.setInt(2, limit);
+            } else {
+                String first = "";
+                String second = "";
+                if (after != null) {
+                    int slash = after.indexOf('/');
+                    first = after.substring(0, slash);
+                    second = after.substring(slash + 1);
+                }
+                ps.setString(1, first);
+                ps.setString(2, first);
+                ps.setString(3, second);
+                ps.setInt(4, limit);
+            }
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(readRow(table, rs));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        return out;
+    }
+
+    // a single forward-only, read-only cursor; Connector/J only streams with Integer.MIN_VALUE, otherwise it buffers the whole result
+    @Override
+    public void scan(Table table, int fetchSize, Consumer<BulkRow> sink) {
+        String sql;
+        if (table == Table.PLAYERS) sql = "SELECT uuid, name, likes, dislikes, score, seen, ip_hash FROM rs_players";
+        else if (table == Table.VOTES) sql = "SELECT voter, target, value, reason, last_time FROM rs_votes";
+        else if (table == Table.TAGS) sql = "SELECT target, tag, count FROM rs_tags";
+        else sql = "SELECT id, target, voter, voter_name, value, reason, time FROM rs_vote_log";
+
+        try (Connection c = ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(isMysql() ? Integer.MIN_VALUE : Math.max(1, fetchSize));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) sink.accept(readRow(table, rs));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private BulkRow readRow(Table table, ResultSet rs) throws SQLException {
+        if (table == Table.PLAYERS) {
+            String uuid = rs.getString("uuid");
+            return BulkRow.player(uuid, UUID.fromString(uuid), rs.getString("name"),
+                    rs.getInt("likes"), rs.getInt("dislikes"), rs.getDouble("score"),
+                    rs.getInt("seen") == 1, rs.getString("ip_hash"));
+        }
+        if (table == Table.VOTES) {
+            String voter = rs.getString("voter");
+            String target = rs.getString("target");
+            Object v = rs.getObject("value");
+            return BulkRow.vote(voter + "/" + target, UUID.fromString(voter), UUID.fromString(target),
+                    v == null ? null : rs.getInt("value"), rs.getString("reason"), rs.getLong("last_time"));
+        }
+        if (table == Table.TAGS) {
+            String target = rs.getString("target");
+            String tag = rs.getString("tag");
+            return BulkRow.tag(target + "/" + tag, UUID.fromString(target), tag, rs.getInt("count"));
+        }
+
+        String voter = rs.getString("voter");
+        return BulkRow.log(String.valueOf(rs.getLong("id")), UUID.fromString(rs.getString("target")),
+                voter != null ? UUID.fromString(voter) : null, rs.getString("voter_name"),
+                rs.getInt("value"), rs.getString("reason"), rs.getLong("time"));
+    }
+
+    @Override
+    public void write(Table table, List<BulkRow> rows) {
+        if (rows.isEmpty()) return;
+
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            try (PreparedStatement ps = c.prepareStatement(writeSql(table))) {
+                long now = System.currentTimeMillis();
+                for (BulkRow row : rows) {
+                    bindRow(table, ps, row, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String writeSql(Table table) {
+        boolean mysql = isMysql();
+
+        if (table == Table.PLAYERS) {
+            return "INSERT INTO rs_players(uuid, name, likes, dislikes, score, updated, seen, ip_hash) VALUES (?,?,?,?,?,?,?,?) " + (mysql
+                    ? "ON DUPLICATE KEY UPDATE name=VALUES(name), likes=VALUES(likes), dislikes=VALUES(dislikes), " +
+                    "score=VALUES(score), updated=VALUES(updated), seen=VALUES(seen), ip_hash=VALUES(ip_hash)"
+                    : "ON CONFLICT(uuid) DO UPDATE SET name=excluded.name, likes=excluded.likes, dislikes=excluded.dislikes, " +
+                    "score=excluded.score, updated=excluded.updated, seen=excluded.seen, ip_hash=excluded.ip_hash");
+        }
+        if (table == Table.VOTES) {
+            return "INSERT INTO rs_votes(voter, target, value, reason, last_time) VALUES (?,?,?,?,?) " + (mysql
+                    ? "ON DUPLICATE KEY UPDATE value=VALUES(value), reason=VALUES(reason), last_time=VALUES(last_time)"
+                    : "ON CONFLICT(voter, target) DO UPDATE SET value=excluded.value, reason=excluded.reason, last_time=excluded.last_time");
+        }
+        if (table == Table.TAGS) {
+            return "INSERT INTO rs_tags(target, tag, count) VALUES (?,?,?) " + (mysql
+                    ? "ON DUPLICATE KEY UPDATE count=VALUES(count)"
+                    : "ON CONFLICT(target, tag) DO UPDATE SET count=excluded.count");
+        }
+
+        // no natural key on rs_vote_log: skip rows that an interrupted run already copied
+        return "INSERT INTO rs_vote_log(target, voter, voter_name, value, reason, time) " +
+                "SELECT ?,?,?,?,?,? " + (mysql ? "FROM DUAL " : "") +
+                "WHERE NOT EXISTS (SELECT 1 FROM rs_vote_log WHERE target=? AND time=? AND " +
+                (mysql ? "voter <=> ?" : "voter IS ?") + ")";
+    }
+
+    private void bindRow(Table table, PreparedStatement ps, BulkRow row, long now) throws SQLException {
+        if (table == Table.PLAYERS) {
+            ps.setString(1, row.uuid.toString());
+            ps.setString(2, row.name);
+            ps.setInt(3, row.likes);
+            ps.setInt(4, row.dislikes);
+            ps.setDouble(5, row.score);
+            ps.setLong(6, now);
+            ps.setInt(7, row.seen ? 1 : 0);
+            ps.setString(8, row.ipHash);
+        } else if (table == Table.VOTES) {
+            ps.setString(1, row.voter.toString());
+            ps.setString(2, row.uuid.toString());
+            if (row.value != null) ps.setInt(3, row.value); else ps.setNull(3, Types.INTEGER);
+            ps.setString(4, row.reason);
+            ps.setLong(5, row.time);
+        } else if (table == Table.TAGS) {
+            ps.setString(1, row.uuid.toString());
+            ps.setString(2, row.reason);
+            ps.setInt(3, row.count);
+        } else {
+            String voter = row.voter != null ? row.voter.toString() : null;
+            ps.setString(1, row.uuid.toString());
+            ps.setString(2, voter);
+            ps.setString(3, row.name);
+            ps.setInt(4, row.value != null ? row.value : 1);
+            ps.setString(5, row.reason);
+            ps.setLong(6, row.time);
+            ps.setString(7, row.uuid.toString());
+            ps.setLong(8, row.time);
+            ps.setString(9, voter);
+        }
+    }
+
+    private static String tableName(Table table) {
+        if (table == Table.PLAYERS) return "rs_players";
+        if (table == Table.VOTES) return "rs_votes";
+        if (table == Table.TAGS) return "rs_tags";
+        return "rs_vote_log";
+    }
+}
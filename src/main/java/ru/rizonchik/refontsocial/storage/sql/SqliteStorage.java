@@ -2,10 +2,18 @@ package ru.rizonchik.refontsocial.storage.sql;
 
 import com.zaxxer.hikari.HikariConfig;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.DB;
+import ru.rizonchik.refontsocial.storage.BackupStorage;
 
 import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 
-public final class SqliteStorage extends SqlStorage {
+public final class SqliteStorage extends SqlStorage implements BackupStorage {
 
     public SqliteStorage(JavaPlugin plugin) {
         super(plugin);
@@ -18,14 +26,111 @@ public final class SqliteStorage extends SqlStorage {
 
     @Override
     protected HikariConfig buildConfig() {
-        String fileName = plugin.getConfig().getString("storage.sqlite.file", "data.db");
-        File file = new File(plugin.getDataFolder(), fileName);
-
         HikariConfig cfg = new HikariConfig();
-        cfg.setJdbcUrl("jdbc:sqlite:" + file.getAbsolutePath());
+        cfg.setJdbcUrl("jdbc:sqlite:" + dataFile().getAbsolutePath());
         cfg.setMaximumPoolSize(1);
         cfg.setPoolName("RefontSocial-SQLite");
         cfg.setConnectionTestQuery("SELECT 1");
         return cfg;
     }
-}
\ No newline at end of file
+
+    @Override
+    public File dataFile() {
+        String fileName = plugin.getConfig().getString("storage.sqlite.file", "data.db");
+        return new File(plugin.getDataFolder(), fileName);
+    }
+
+    @Override
+    public String backupExtension() {
+        return "db";
+    }
+
+    // online backup API on a connection of its own, a few pages per step with a pause in between, so the
+    // pool's single connection stays free and plugin writes go through during the copy. Each such write
+    // restarts the copy; after maxRestarts of them the pool connection is taken until the copy finishes
+    @Override
+    public void backupTo(File target) {
+        int pagesPerStep = Math.max(1, plugin.getConfig().getInt("backup.sqlite.pagesPerStep", 256));
+        long pauseMs = Math.max(0L, plugin.getConfig().getLong("backup.sqlite.stepPauseMs", 20L));
+        int maxRestarts = Math.max(0, plugin.getConfig().getInt("backup.sqlite.maxRestarts", 3));
+
+        SteppedCopy copy = new SteppedCopy(pauseMs, maxRestarts);
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + dataFile().getAbsolutePath())) {
+            int rc = c.unwrap(SQLiteConnection.class).getDatabase()
+                    .backup("main", target.getAbsolutePath(), copy, 100, 50, pagesPerStep);
+            if (rc != 0) throw new SQLException("backup failed, sqlite code " + rc);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            copy.release();
+        }
+    }
+
+    private final class SteppedCopy implements DB.ProgressObserver {
+
+        private final long pauseMs;
+        private final int maxRestarts;
+        private int lastRemaining = Integer.MAX_VALUE;
+        private int restarts;
+        private Connection held;
+
+        SteppedCopy(long pauseMs, int maxRestarts) {
+            this.pauseMs = pauseMs;
+            this.maxRestarts = maxRestarts;
+        }
+
+        @Override
+        public void progress(int remaining, int pageCount) {
+            if (remaining > lastRemaining) restarts++;
+            lastRemaining = remaining;
+            if (remaining == 0) return;
+
+            if (held == null && restarts > maxRestarts) {
+                // too busy to copy in between writes: hold the writers off until the copy is done
+                try {
+                    held = ds.getConnection();
+                } catch (SQLException e) {
+                    // keep stepping, the next restart tries again
+                }
+            }
+            if (held != null || pauseMs == 0L) return;
+
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void release() {
+            if (held == null) return;
+            try {
+                held.close();
+            } catch (SQLException ignored) {
+            }
+            held = null;
+        }
+    }
+
+    @Override
+    public void verifyBackup(File backup) {
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + backup.getAbsolutePath());
+             Statement st = c.createStatement()) {
+
+            try (ResultSet rs = st.executeQuery("PRAGMA integrity_check")) {
+                String result = rs.next() ? rs.getString(1) : null;
+                if (!"ok".equalsIgnoreCase(result)) throw new IllegalStateException("integrity_check: " + result);
+            }
+
+            for (String table : new String[]{"rs_players", "rs_votes", "rs_tags", "rs_vote_log"}) {
+                try (ResultSet ignored = st.executeQuery("SELECT 1 FROM " + table + " LIMIT 1")) {
+                    // only checks that the table exists
+                } catch (SQLException e) {
+                    throw new IllegalStateException("no table " + table + ", not a copy of this plugin's database");
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("cannot open: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ru.rizonchik.refontsocial.util;
 
 import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -8,47 +9,185 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class ItemUtil {
 
+    private static volatile Templates TEMPLATES;
+
     private ItemUtil() {
     }
 
     public static ItemStack fromGui(JavaPlugin plugin, String key, String... replace) {
+        Template t = templates(plugin).get(key);
+        if (!t.dynamic) return t.prototype.clone();
+
+        ItemStack item = t.prototype.clone();
+        ItemMeta meta = item.getItemMeta();
+        if (meta == null) return item;
+
+        meta.setDisplayName(t.name.render(replace));
+
+        if (!t.lore.isEmpty()) {
+            List<String> lore = new ArrayList<>(t.lore.size());
+            for (Line line : t.lore) lore.add(line.render(replace));
+            meta.setLore(lore);
+        }
+
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    private static Templates templates(JavaPlugin plugin) {
         YamlConfiguration gui = YamlUtil.gui(plugin);
 
+        Templates t = TEMPLATES;
+        if (t != null && t.source == gui) return t;
+
+        synchronized (ItemUtil.class) {
+            t = TEMPLATES;
+            if (t == null || t.source != gui) {
+                t = new Templates(gui);
+                TEMPLATES = t;
+            }
+            return t;
+        }
+    }
+
+    private static final class Templates {
+        private final YamlConfiguration source;
+        private final Map<String, Template> byKey = new ConcurrentHashMap<>();
+
+        private Templates(YamlConfiguration source) {
+            this.source = source;
+
+            ConfigurationSection items = source.getConfigurationSection("items");
+            if (items != null) {
+                for (String key : items.getKeys(false)) byKey.put(key, compile(source, key));
+            }
+        }
+
+        private Template get(String key) {
+            return byKey.computeIfAbsent(key, k -> compile(source, k));
+        }
+    }
+
+    private static final class Template {
+        private final ItemStack prototype;
+        private final Line name;
+        private final List<Line> lore;
+        private final boolean dynamic;
+
+        private Template(ItemStack prototype, Line name, List<Line> lore, boolean dynamic) {
+            this.prototype = prototype;
+            this.name = name;
+            this.lore = lore;
+            this.dynamic = dynamic;
+        }
+    }
+
+    private static Template compile(YamlConfiguration gui, String key) {
         String base = "items." + key;
         String matName = gui.getString(base + ".material", "PAPER");
         Material mat = Material.matchMaterial(matName);
         if (mat == null) mat = Material.PAPER;
 
+        Line name = Line.parse(gui.getString(base + ".name", " "));
+
+        List<Line> lore = new ArrayList<>();
+        List<String> loreRaw = gui.getStringList(base + ".lore");
+        if (loreRaw != null) {
+            for (String s : loreRaw) lore.add(Line.parse(s));
+        }
+
+        boolean dynamic = name.isDynamic();
+        for (Line line : lore) dynamic |= line.isDynamic();
+
         ItemStack item = new ItemStack(mat);
         ItemMeta meta = item.getItemMeta();
-        if (meta == null) return item;
+        if (meta != null && !dynamic) {
+            meta.setDisplayName(name.render());
+            if (!lore.isEmpty()) {
+                List<String> out = new ArrayList<>(lore.size());
+                for (Line line : lore) out.add(line.render());
+                meta.setLore(out);
+            }
+            item.setItemMeta(meta);
+        }
 
-        String name = gui.getString(base + ".name", " ");
-        name = apply(name, replace);
-        meta.setDisplayName(Colors.color(name));
+        return new Template(item, name, lore, dynamic && meta != null);
+    }
 
-        List<String> loreRaw = gui.getStringList(base + ".lore");
-        if (loreRaw != null && !loreRaw.isEmpty()) {
-            List<String> lore = new ArrayList<>();
-            for (String s : loreRaw) {
-                lore.add(Colors.color(apply(s, replace)));
+    // literal and placeholder parts at even and odd offsets; literals are colored once at compile time
+    private static final class Line {
+        private final String[] parts;
+
+        private Line(String[] parts) {
+            this.parts = parts;
+        }
+
+        private static Line parse(String s) {
+            if (s == null) s = "";
+
+            List<String> parts = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+
+            int i = 0;
+            while (i < s.length()) {
+                char c = s.charAt(i);
+                if (c == '%') {
+                    int close = s.indexOf('%', i + 1);
+                    if (close > 0 && isKey(s, i + 1, close)) {
+                        parts.add(Colors.color(literal.toString()));
+                        literal.setLength(0);
+                        parts.add(s.substring(i, close + 1));
+                        i = close + 1;
+                        continue;
+                    }
+                }
+                literal.append(c);
+                i++;
             }
-            meta.setLore(lore);
+            parts.add(Colors.color(literal.toString()));
+
+            return new Line(parts.toArray(new String[0]));
         }
 
-        item.setItemMeta(meta);
-        return item;
-    }
+        private static boolean isKey(String s, int from, int to) {
+            if (to <= from) return false;
+            for (int i = from; i < to; i++) {
+                char c = s.charAt(i);
+                if (!Character.isLetterOrDigit(c) && c != '_') return false;
+            }
+            return true;
+        }
 
-    private static String apply(String s, String... replace) {
-        if (s == null) return "";
-        if (replace == null) return s;
-        for (int i = 0; i + 1 < replace.length; i += 2) {
-            s = s.replace(replace[i], replace[i + 1]);
+        private boolean isDynamic() {
+            return parts.length > 1;
+        }
+
+        private String render(String... replace) {
+            if (parts.length == 1) return parts[0];
+
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < parts.length; i++) {
+                if ((i & 1) == 0) {
+                    sb.append(parts[i]);
+                    continue;
+                }
+                sb.append(value(parts[i], replace));
+            }
+            return sb.toString();
+        }
+
+        private static String value(String placeholder, String... replace) {
+            if (replace != null) {
+                for (int i = 0; i + 1 < replace.length; i += 2) {
+                    if (placeholder.equals(replace[i])) return Colors.color(replace[i + 1]);
+                }
+            }
+            return placeholder;
         }
-        return s;
     }
-}
\ No newline at end of file
+}
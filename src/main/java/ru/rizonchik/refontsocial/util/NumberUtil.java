@@ -4,6 +4,9 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Locale;
 
 public final class NumberUtil {
@@ -62,6 +65,19 @@ public final class NumberUtil {
         return clamp(score, min, max);
     }
 
+    // changes whenever computeScore would give different results for the same counters
+    public static String scoreFingerprint(JavaPlugin plugin) {
+        String algo = plugin.getConfig().getString("rating.algorithm", "BAYESIAN");
+        boolean simple = algo != null && algo.toUpperCase(Locale.ROOT).equals("SIMPLE_RATIO");
+
+        StringBuilder sb = new StringBuilder(simple ? "SIMPLE_RATIO" : "BAYESIAN")
+                .append('|').append(plugin.getConfig().getDouble("rating.scale.min", 0.0))
+                .append('|').append(plugin.getConfig().getDouble("rating.scale.max", 10.0))
+                .append('|').append(defaultScore(plugin));
+        if (!simple) sb.append('|').append(Math.max(0, plugin.getConfig().getInt("rating.bayesian.priorVotes", 12)));
+        return sb.toString();
+    }
+
     public static String formatScore(JavaPlugin plugin, double score) {
         String pattern = plugin.getConfig().getString("rating.format", "#0.0");
         DecimalFormat df = new DecimalFormat(pattern, new DecimalFormatSymbols(Locale.US));
@@ -72,9 +88,31 @@ public final class NumberUtil {
         return Math.max(min, Math.min(max, v));
     }
 
-    public static long startOfTodayMillis() {
-        long now = System.currentTimeMillis();
-        long day = 24L * 60L * 60L * 1000L;
-        return now - (now % day);
+    public static ZoneId dailyZone(JavaPlugin plugin) {
+        String tz = plugin.getConfig().getString("antiAbuse.dailyLimit.timezone", "UTC");
+        if (tz == null || tz.trim().isEmpty()) return ZoneOffset.UTC;
+        try {
+            return ZoneId.of(tz.trim());
+        } catch (Exception e) {
+            plugin.getLogger().warning("Unknown antiAbuse.dailyLimit.timezone '" + tz + "', using UTC");
+            return ZoneOffset.UTC;
+        }
+    }
+
+    public static long startOfDayMillis(long timeMillis, ZoneId zone) {
+        return Instant.ofEpochMilli(timeMillis).atZone(zone)
+                .toLocalDate()
+                .atStartOfDay(zone)
+                .toInstant()
+                .toEpochMilli();
+    }
+
+    public static long startOfNextDayMillis(long timeMillis, ZoneId zone) {
+        return Instant.ofEpochMilli(timeMillis).atZone(zone)
+                .toLocalDate()
+                .plusDays(1)
+                .atStartOfDay(zone)
+                .toInstant()
+                .toEpochMilli();
     }
 }
\ No newline at end of file
@@ -0,0 +1,176 @@
+package ru.rizonchik.refontsocial.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// 4 levels x 64 slots over caller-owned int ids; not thread-safe, the owner guards it
+public final class TimingWheel {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+    private static final int NONE = -1;
+
+    private final long tickMillis;
+    private final int[] heads = new int[LEVELS * SLOTS];
+
+    private int[] next;
+    private int[] prev;
+    private int[] bucket;
+    private long[] deadline;
+
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, int initialCapacity, long nowMillis) {
+        this.tickMillis = Math.max(1L, tickMillis);
+        Arrays.fill(heads, NONE);
+
+        int cap = Math.max(16, initialCapacity);
+        next = new int[cap];
+        prev = new int[cap];
+        bucket = new int[cap];
+        deadline = new long[cap];
+        Arrays.fill(bucket, NONE);
+
+        currentTick = nowMillis / this.tickMillis;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity <= bucket.length) return;
+
+        int cap = bucket.length;
+        while (cap < capacity) cap <<= 1;
+
+        int old = bucket.length;
+        next = Arrays.copyOf(next, cap);
+        prev = Arrays.copyOf(prev, cap);
+        deadline = Arrays.copyOf(deadline, cap);
+        bucket = Arrays.copyOf(bucket, cap);
+        Arrays.fill(bucket, old, cap, NONE);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isScheduled(int id) {
+        return id >= 0 && id < bucket.length && bucket[id] != NONE;
+    }
+
+    public void schedule(int id, long deadlineMillis) {
+        ensureCapacity(id + 1);
+        if (bucket[id] != NONE) {
+            unlink(id);
+        } else {
+            size++;
+        }
+
+        long t = (deadlineMillis + tickMillis - 1) / tickMillis;
+        if (t <= currentTick) t = currentTick + 1;
+
+        deadline[id] = t;
+        link(id, bucketFor(t));
+    }
+
+    public void cancel(int id) {
+        if (!isScheduled(id)) return;
+        unlink(id);
+        size--;
+    }
+
+    public void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(bucket, NONE);
+        size = 0;
+    }
+
+    public void advance(long nowMillis, IntConsumer onExpire) {
+        long target = nowMillis / tickMillis;
+        if (target <= currentTick) return;
+
+        if (size == 0) {
+            currentTick = target;
+            return;
+        }
+
+        while (currentTick < target) {
+            currentTick++;
+
+            int idx = (int) (currentTick & MASK);
+            if (idx == 0) cascade(1);
+
+            int id = detach(idx);
+            while (id != NONE) {
+                int n = next[id];
+                bucket[id] = NONE;
+                size--;
+                onExpire.accept(id);
+                id = n;
+            }
+
+            if (size == 0) {
+                currentTick = target;
+                return;
+            }
+        }
+    }
+
+    private void cascade(int level) {
+        if (level >= LEVELS) return;
+
+        int idx = (int) ((currentTick >>> (BITS * level)) & MASK);
+        if (idx == 0) cascade(level + 1);
+
+        int id = detach(level * SLOTS + idx);
+        while (id != NONE) {
+            int n = next[id];
+            link(id, bucketFor(deadline[id]));
+            id = n;
+        }
+    }
+
+    private int bucketFor(long t) {
+        long delta = t - currentTick;
+        if (delta > MAX_DELTA) {
+            delta = MAX_DELTA;
+            t = currentTick + MAX_DELTA;
+        }
+
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < (1L << (BITS * (level + 1)))) {
+                return level * SLOTS + (int) ((t >>> (BITS * level)) & MASK);
+            }
+        }
+        return (LEVELS - 1) * SLOTS + (int) ((t >>> (BITS * (LEVELS - 1))) & MASK);
+    }
+
+    private int detach(int b) {
+        int head = heads[b];
+        heads[b] = NONE;
+        return head;
+    }
+
+    private void link(int id, int b) {
+        int head = heads[b];
+        next[id] = head;
+        prev[id] = NONE;
+        if (head != NONE) prev[head] = id;
+        heads[b] = id;
+        bucket[id] = b;
+    }
+
+    private void unlink(int id) {
+        int b = bucket[id];
+        int p = prev[id];
+        int n = next[id];
+
+        if (p != NONE) next[p] = n;
+        else heads[b] = n;
+
+        if (n != NONE) prev[n] = p;
+        bucket[id] = NONE;
+    }
+}
@@ -4,8 +4,12 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 public final class YamlUtil {
 
@@ -80,4 +84,25 @@ public final class YamlUtil {
             throw new RuntimeException(e);
         }
     }
-}
\ No newline at end of file
+
+    // readers never see a half-written file: write a sibling temp file, then rename over the target
+    public static void saveAtomic(File file, YamlConfiguration cfg) {
+        try {
+            if (!file.getParentFile().exists()) file.getParentFile().mkdirs();
+
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(cfg.saveToString().getBytes(StandardCharsets.UTF_8));
+                out.getFD().sync();
+            }
+
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
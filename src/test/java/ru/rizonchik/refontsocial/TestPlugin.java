@@ -0,0 +1,35 @@
+package ru.rizonchik.refontsocial;
+
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.logging.Logger;
+
+// a JavaPlugin built through Bukkit's unit-test constructor: config, data folder and logger work, the scheduler does not
+public final class TestPlugin extends JavaPlugin {
+
+    private static final Logger LOGGER = Logger.getLogger("RefontSocialTest");
+
+    private static final Server SERVER = (Server) Proxy.newProxyInstance(
+            TestPlugin.class.getClassLoader(),
+            new Class<?>[]{Server.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("getLogger")) return LOGGER;
+                if (method.getName().equals("getName")) return "test";
+                Class<?> type = method.getReturnType();
+                if (type == boolean.class) return false;
+                if (type == int.class) return 0;
+                if (type == long.class) return 0L;
+                if (type == double.class) return 0.0;
+                return null;
+            });
+
+    public TestPlugin(File dataFolder) {
+        super(new JavaPluginLoader(SERVER), new PluginDescriptionFile("RefontSocial", "test", TestPlugin.class.getName()),
+                dataFolder, new File(dataFolder, "RefontSocial.jar"));
+    }
+}
@@ -0,0 +1,108 @@
+package ru.rizonchik.refontsocial.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class CooldownIndexTest {
+
+    private static final long GLOBAL = 20_000L;
+    private static final long PAIR = 600_000L;
+
+    private final long now = System.currentTimeMillis();
+
+    private CooldownIndex index() {
+        CooldownIndex index = new CooldownIndex(now);
+        index.setRetention(GLOBAL, PAIR);
+        return index;
+    }
+
+    @Test
+    void keepsPairUntilRetentionEnds() {
+        CooldownIndex index = index();
+        UUID voter = UUID.randomUUID();
+        UUID target = UUID.randomUUID();
+
+        index.recordVote(voter, target, 1, now);
+        assertEquals(now, index.lastVoteTime(voter, target, now));
+        assertEquals(1, index.lastVoteValue(voter, target, now));
+        assertEquals(-1L, index.lastVoteTime(target, voter, now));
+
+        assertEquals(now, index.lastVoteTime(voter, target, now + PAIR - 2000L));
+        assertEquals(-1L, index.lastVoteTime(voter, target, now + PAIR + 2000L));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void removedVoteKeepsTimeWithoutValue() {
+        CooldownIndex index = index();
+        UUID voter = UUID.randomUUID();
+        UUID target = UUID.randomUUID();
+
+        index.recordVote(voter, target, 0, now - 1000L);
+        index.recordVote(voter, target, null, now);
+        assertEquals(now, index.lastVoteTime(voter, target, now));
+        assertEquals(-1, index.lastVoteValue(voter, target, now));
+    }
+
+    @Test
+    void olderRecordDoesNotOverwriteNewer() {
+        CooldownIndex index = index();
+        UUID voter = UUID.randomUUID();
+        UUID target = UUID.randomUUID();
+
+        index.recordVote(voter, target, 1, now);
+        index.recordVote(voter, target, 0, now - 5000L);
+        assertEquals(now, index.lastVoteTime(voter, target, now));
+        assertEquals(1, index.lastVoteValue(voter, target, now));
+
+        index.markGlobal(voter, now);
+        index.markGlobal(voter, now - 5000L);
+        assertEquals(now, index.lastGlobal(voter, now));
+    }
+
+    @Test
+    void globalAndPairEntriesAreSeparate() {
+        CooldownIndex index = index();
+        UUID voter = UUID.randomUUID();
+        UUID target = UUID.randomUUID();
+
+        index.markGlobal(voter, now);
+        index.recordVote(voter, target, 1, now);
+        assertEquals(2, index.size());
+
+        assertEquals(-1L, index.lastGlobal(voter, now + GLOBAL + 2000L));
+        assertEquals(now, index.lastVoteTime(voter, target, now + GLOBAL + 2000L));
+    }
+
+    @Test
+    void lookupsSurviveGrowthAndDeletion() {
+        CooldownIndex index = index();
+        List<UUID> voters = new ArrayList<>();
+        UUID target = UUID.randomUUID();
+
+        // even voters expire early; deleting them must not break probe chains of the odd ones
+        for (int i = 0; i < 2000; i++) {
+            UUID voter = UUID.randomUUID();
+            voters.add(voter);
+            long time = i % 2 == 0 ? now - PAIR + 5000L : now;
+            index.recordVote(voter, target, i % 2, time);
+        }
+        assertEquals(2000, index.size());
+
+        long later = now + 10_000L;
+        for (int i = 0; i < voters.size(); i++) {
+            long expected = i % 2 == 0 ? -1L : now;
+            assertEquals(expected, index.lastVoteTime(voters.get(i), target, later), "voter " + i);
+        }
+        assertEquals(1000, index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(-1L, index.lastVoteTime(voters.get(1), target, later));
+    }
+}
@@ -0,0 +1,158 @@
+package ru.rizonchik.refontsocial.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.rizonchik.refontsocial.storage.Storage.VoteResult;
+import ru.rizonchik.refontsocial.storage.model.VoteRecord;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class DailyVoteCounterTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long START = 100 * DAY;
+
+    @TempDir
+    Path dir;
+
+    private final UUID voter = UUID.randomUUID();
+    private final UUID a = UUID.randomUUID();
+    private final UUID b = UUID.randomUUID();
+
+    private DailyVoteCounter counter() {
+        return new DailyVoteCounter(START, START + DAY);
+    }
+
+    @Test
+    void changingAVoteKeepsOneSlot() {
+        DailyVoteCounter counter = counter();
+        counter.record(voter, a, VoteResult.CREATED, START + 10);
+        counter.record(voter, a, VoteResult.CHANGED, START + 20);
+        assertEquals(1, counter.get(voter));
+
+        counter.record(voter, b, VoteResult.CREATED, START + 30);
+        assertEquals(2, counter.get(voter));
+    }
+
+    @Test
+    void removingTodaysVoteFreesItsSlot() {
+        DailyVoteCounter counter = counter();
+        counter.record(voter, a, VoteResult.CREATED, START + 10);
+        counter.record(voter, a, VoteResult.REMOVED, START + 20);
+        assertEquals(0, counter.get(voter));
+
+        counter.record(voter, a, VoteResult.CREATED, START + 30);
+        assertEquals(1, counter.get(voter));
+    }
+
+    @Test
+    void removingAnOlderVoteDoesNotGoNegative() {
+        DailyVoteCounter counter = counter();
+        counter.record(voter, b, VoteResult.CREATED, START + 10);
+        counter.record(voter, a, VoteResult.REMOVED, START + 20); // cast yesterday, never counted
+        assertEquals(1, counter.get(voter));
+    }
+
+    @Test
+    void changingYesterdaysVoteCountsToday() {
+        DailyVoteCounter counter = counter();
+        counter.record(voter, a, VoteResult.CHANGED, START + 10);
+        assertEquals(1, counter.get(voter));
+    }
+
+    @Test
+    void liveCountMatchesRebuildFromStorage() {
+        DailyVoteCounter live = counter();
+        live.record(voter, a, VoteResult.CREATED, START + 1);
+        live.record(voter, a, VoteResult.CHANGED, START + 2);
+        live.record(voter, b, VoteResult.CREATED, START + 3);
+        live.record(voter, b, VoteResult.REMOVED, START + 4);
+
+        // what rs_votes holds afterwards: a with a value, b cleared, plus a vote from yesterday
+        List<VoteRecord> rows = Arrays.asList(
+                new VoteRecord(voter, a, 0, null, START + 2),
+                new VoteRecord(voter, b, null, null, START + 4),
+                new VoteRecord(voter, UUID.randomUUID(), 1, null, START - 5)
+        );
+        DailyVoteCounter rebuilt = counter();
+        rebuilt.addAll(rows);
+
+        assertEquals(1, live.get(voter));
+        assertEquals(live.get(voter), rebuilt.get(voter));
+    }
+
+    @Test
+    void resetStartsTheNextDay() {
+        DailyVoteCounter counter = counter();
+        counter.record(voter, a, VoteResult.CREATED, START + 10);
+        assertTrue(counter.isExpired(START + DAY));
+
+        counter.reset(START + DAY, START + 2 * DAY);
+        assertEquals(0, counter.get(voter));
+
+        // a vote applied after the reset but stamped before midnight belongs to the old day
+        counter.record(voter, a, VoteResult.CREATED, START + DAY - 1);
+        assertEquals(0, counter.get(voter));
+
+        counter.reset(START, START + DAY);
+        assertEquals(START + DAY, counter.getDayStart());
+    }
+
+    @Test
+    void saveAndLoadSameDay() throws Exception {
+        File file = dir.resolve("daily_votes.dat").toFile();
+        DailyVoteCounter counter = counter();
+        counter.record(voter, a, VoteResult.CREATED, START + 10);
+        counter.record(voter, b, VoteResult.CREATED, START + 20);
+        counter.save(file);
+
+        DailyVoteCounter loaded = counter();
+        assertTrue(loaded.load(file));
+        assertEquals(2, loaded.get(voter));
+
+        DailyVoteCounter nextDay = new DailyVoteCounter(START + DAY, START + 2 * DAY);
+        assertFalse(nextDay.load(file));
+        assertEquals(0, nextDay.get(voter));
+    }
+
+    @Test
+    void recordAndResetFromDifferentThreads() throws Exception {
+        DailyVoteCounter counter = counter();
+        int threads = 4;
+        int perThread = 5000;
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            UUID v = UUID.randomUUID();
+            Thread worker = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    counter.record(v, UUID.randomUUID(), VoteResult.CREATED, START + i);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        go.countDown();
+        counter.reset(START + DAY, START + 2 * DAY);
+        for (Thread worker : workers) worker.join();
+
+        // yesterday's votes are either cleared by the reset or refused after it, whichever thread ran first
+        assertEquals(0, counter.size());
+        assertEquals(START + DAY, counter.getDayStart());
+    }
+}
@@ -0,0 +1,106 @@
+package ru.rizonchik.refontsocial.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.rizonchik.refontsocial.TestPlugin;
+import ru.rizonchik.refontsocial.service.RateLimiter.Action;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class RateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private TestPlugin plugin;
+    private final Metrics metrics = new Metrics();
+    private final UUID player = UUID.randomUUID();
+    private long now = 5 * SECOND;
+
+    @BeforeEach
+    void setUp() {
+        plugin = new TestPlugin(dir.toFile());
+        plugin.getConfig().set("performance.rateLimit.enabled", true);
+        plugin.getConfig().set("performance.rateLimit.actions.show.perSecond", 1.0);
+        plugin.getConfig().set("performance.rateLimit.actions.show.burst", 3);
+        plugin.getConfig().set("performance.rateLimit.actions.top.perSecond", 2.0);
+        plugin.getConfig().set("performance.rateLimit.actions.top.burst", 1);
+        plugin.getConfig().set("performance.rateLimit.actions.profile.perSecond", 0.0);
+    }
+
+    private RateLimiter limiter() {
+        return new RateLimiter(plugin, metrics, () -> now);
+    }
+
+    @Test
+    void allowsBurstThenRejects() {
+        RateLimiter limiter = limiter();
+        for (int i = 0; i < 3; i++) assertTrue(limiter.tryAcquire(player, Action.SHOW), "request " + i);
+        assertFalse(limiter.tryAcquire(player, Action.SHOW));
+        assertFalse(limiter.tryAcquire(player, Action.SHOW));
+        assertEquals(2, metrics.get("throttle.show"));
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() {
+        RateLimiter limiter = limiter();
+        for (int i = 0; i < 3; i++) limiter.tryAcquire(player, Action.SHOW);
+        assertFalse(limiter.tryAcquire(player, Action.SHOW));
+
+        now += SECOND / 2;
+        assertFalse(limiter.tryAcquire(player, Action.SHOW));
+
+        now += SECOND / 2;
+        assertTrue(limiter.tryAcquire(player, Action.SHOW));
+        assertFalse(limiter.tryAcquire(player, Action.SHOW));
+    }
+
+    @Test
+    void idleTimeRefillsOnlyUpToTheBurst() {
+        RateLimiter limiter = limiter();
+        limiter.tryAcquire(player, Action.SHOW);
+
+        now += 60 * SECOND;
+        for (int i = 0; i < 3; i++) assertTrue(limiter.tryAcquire(player, Action.SHOW), "request " + i);
+        assertFalse(limiter.tryAcquire(player, Action.SHOW));
+    }
+
+    @Test
+    void burstOfOneSpacesRequests() {
+        RateLimiter limiter = limiter();
+        assertTrue(limiter.tryAcquire(player, Action.TOP));
+        assertFalse(limiter.tryAcquire(player, Action.TOP));
+
+        now += SECOND / 2;
+        assertTrue(limiter.tryAcquire(player, Action.TOP));
+    }
+
+    @Test
+    void actionsAndPlayersAreIndependent() {
+        RateLimiter limiter = limiter();
+        for (int i = 0; i < 3; i++) limiter.tryAcquire(player, Action.SHOW);
+        assertFalse(limiter.tryAcquire(player, Action.SHOW));
+
+        assertTrue(limiter.tryAcquire(player, Action.TOP));
+        assertTrue(limiter.tryAcquire(UUID.randomUUID(), Action.SHOW));
+
+        limiter.forget(player);
+        assertTrue(limiter.tryAcquire(player, Action.SHOW));
+    }
+
+    @Test
+    void zeroRateAndDisabledAreUnlimited() {
+        RateLimiter limiter = limiter();
+        for (int i = 0; i < 100; i++) assertTrue(limiter.tryAcquire(player, Action.PROFILE));
+
+        plugin.getConfig().set("performance.rateLimit.enabled", false);
+        RateLimiter disabled = limiter();
+        for (int i = 0; i < 100; i++) assertTrue(disabled.tryAcquire(player, Action.SHOW));
+    }
+}
@@ -0,0 +1,153 @@
+package ru.rizonchik.refontsocial.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.rizonchik.refontsocial.TestPlugin;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class RingDetectorTest {
+
+    private static final long T0 = 1_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private TestPlugin plugin;
+    private final List<Set<UUID>> notified = new ArrayList<>();
+
+    private final UUID a = UUID.randomUUID();
+    private final UUID b = UUID.randomUUID();
+    private final UUID c = UUID.randomUUID();
+    private final UUID outsider = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        plugin = new TestPlugin(dir.toFile());
+        plugin.getConfig().set("antiAbuse.rings.enabled", true);
+        plugin.getConfig().set("antiAbuse.rings.quarantine", true);
+        plugin.getConfig().set("antiAbuse.rings.minClusterSize", 3);
+        plugin.getConfig().set("antiAbuse.rings.windowSeconds", 3600);
+    }
+
+    private RingDetector detector() {
+        RingDetector detector = new RingDetector(plugin);
+        detector.setQuarantineListener(notified::add);
+        return detector;
+    }
+
+    private static void like(RingDetector detector, UUID voter, UUID target, long time) {
+        detector.submit(voter, target, 1, time);
+    }
+
+    @Test
+    void reciprocalLikesFlagACluster() {
+        RingDetector detector = detector();
+        like(detector, a, b, T0);
+        like(detector, b, a, T0 + 1);
+        like(detector, b, c, T0 + 2);
+        like(detector, c, b, T0 + 3);
+        like(detector, outsider, a, T0 + 4);
+        detector.drain();
+
+        List<RingDetector.Cluster> clusters = detector.getClusters();
+        assertEquals(1, clusters.size());
+        assertEquals(new HashSet<>(Arrays.asList(a, b, c)), clusters.get(0).members);
+
+        assertTrue(detector.isQuarantined(a, c));
+        assertFalse(detector.isQuarantined(outsider, a));
+        assertFalse(detector.isQuarantined(a, outsider));
+
+        assertEquals(new HashSet<>(Arrays.asList(a, c)), detector.quarantinedVoters(b));
+        assertTrue(detector.quarantinedVoters(outsider).isEmpty());
+
+        assertEquals(1, notified.size());
+        assertEquals(new HashSet<>(Arrays.asList(a, b, c)), notified.get(0));
+    }
+
+    @Test
+    void oneWayCycleAndDislikesAreNotARing() {
+        RingDetector detector = detector();
+        like(detector, a, b, T0);
+        like(detector, b, c, T0 + 1);
+        like(detector, c, a, T0 + 2);
+        detector.submit(b, a, 0, T0 + 3);
+        detector.submit(c, b, 0, T0 + 4);
+        detector.drain();
+
+        assertTrue(detector.getClusters().isEmpty());
+        assertFalse(detector.isQuarantined(a, b));
+        assertTrue(notified.isEmpty());
+    }
+
+    @Test
+    void reciprocityOutsideTheWindowDoesNotCount() {
+        RingDetector detector = detector();
+        long hour = 3_600_000L;
+        like(detector, a, b, T0);
+        like(detector, b, c, T0);
+        like(detector, b, a, T0 + 2 * hour);
+        like(detector, c, b, T0 + 2 * hour);
+        detector.drain();
+
+        assertTrue(detector.getClusters().isEmpty());
+    }
+
+    @Test
+    void clusterGrowsWhenAnotherMemberJoins() {
+        RingDetector detector = detector();
+        UUID d = UUID.randomUUID();
+        like(detector, a, b, T0);
+        like(detector, b, a, T0);
+        like(detector, b, c, T0);
+        like(detector, c, b, T0);
+        detector.drain();
+
+        like(detector, c, d, T0 + 10);
+        like(detector, d, c, T0 + 11);
+        detector.drain();
+
+        List<RingDetector.Cluster> clusters = detector.getClusters();
+        assertEquals(1, clusters.size());
+        assertEquals(4, clusters.get(0).members.size());
+        assertTrue(detector.isQuarantined(d, a));
+        assertEquals(2, notified.size());
+        assertTrue(notified.get(1).contains(d));
+    }
+
+    @Test
+    void clearingFlagsReleasesMembers() {
+        RingDetector detector = detector();
+        like(detector, a, b, T0);
+        like(detector, b, a, T0);
+        like(detector, b, c, T0);
+        like(detector, c, b, T0);
+        detector.drain();
+        notified.clear();
+
+        detector.clearFlags();
+        assertFalse(detector.isQuarantined(a, b));
+        assertTrue(detector.quarantinedVoters(b).isEmpty());
+        assertEquals(Collections.singletonList(new HashSet<>(Arrays.asList(a, b, c))), notified);
+    }
+
+    @Test
+    void flaggingWithoutQuarantineDoesNotBlock() {
+        plugin.getConfig().set("antiAbuse.rings.quarantine", false);
+        RingDetector detector = detector();
+        like(detector, a, b, T0);
+        like(detector, b, a, T0);
+        like(detector, b, c, T0);
+        like(detector, c, b, T0);
+        detector.drain();
+
+        assertEquals(1, detector.getClusters().size());
+        assertFalse(detector.isQuarantined(a, b));
+        assertTrue(detector.quarantinedVoters(b).isEmpty());
+        assertTrue(notified.isEmpty());
+    }
+}
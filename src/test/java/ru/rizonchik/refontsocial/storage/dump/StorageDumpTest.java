@@ -0,0 +1,154 @@
+package ru.rizonchik.refontsocial.storage.dump;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.rizonchik.refontsocial.storage.BulkStorage;
+import ru.rizonchik.refontsocial.storage.BulkStorage.Table;
+import ru.rizonchik.refontsocial.storage.model.BulkRow;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class StorageDumpTest {
+
+    private static final BulkStorage.Progress QUIET = (table, done, total, rate) -> {
+    };
+
+    @TempDir
+    Path dir;
+
+    // rows kept as written, in order
+    private static final class ListStorage implements BulkStorage {
+        final Map<Table, List<BulkRow>> rows = new EnumMap<>(Table.class);
+
+        List<BulkRow> rows(Table table) {
+            return rows.computeIfAbsent(table, t -> new ArrayList<>());
+        }
+
+        @Override
+        public long count(Table table) {
+            return rows(table).size();
+        }
+
+        @Override
+        public List<BulkRow> read(Table table, String after, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void scan(Table table, int fetchSize, Consumer<BulkRow> sink) {
+            for (BulkRow row : rows(table)) sink.accept(row);
+        }
+
+        @Override
+        public void write(Table table, List<BulkRow> batch) {
+            rows(table).addAll(batch);
+        }
+    }
+
+    private static final String[] AWKWARD = {null, "", "plain", "a,b", "say \"hi\"", "line\nbreak\r\nend", "тег ✓"};
+
+    private static ListStorage sample() {
+        ListStorage s = new ListStorage();
+        for (int i = 0; i < AWKWARD.length; i++) {
+            UUID uuid = new UUID(i, i + 1);
+            UUID voter = i % 2 == 0 ? new UUID(100 + i, 7) : null;
+            s.rows(Table.PLAYERS).add(BulkRow.player(null, uuid, AWKWARD[i], i, i * 2, 1.25 * i, i % 2 == 0, AWKWARD[(i + 1) % AWKWARD.length]));
+            s.rows(Table.VOTES).add(BulkRow.vote(null, new UUID(200 + i, 1), uuid, i % 3 == 0 ? null : (i % 2 == 0 ? 1 : 0), AWKWARD[i], 1_700_000_000_000L + i));
+            if (AWKWARD[i] != null) s.rows(Table.TAGS).add(BulkRow.tag(null, uuid, AWKWARD[i], i + 1));
+            s.rows(Table.VOTE_LOG).add(BulkRow.log(null, uuid, voter, AWKWARD[i], i % 2, AWKWARD[(i + 2) % AWKWARD.length], 1_600_000_000_000L + i));
+        }
+        return s;
+    }
+
+    private static void assertSameRows(Table table, List<BulkRow> expected, List<BulkRow> actual) {
+        assertEquals(expected.size(), actual.size(), table + " row count");
+        for (int i = 0; i < expected.size(); i++) {
+            BulkRow e = expected.get(i);
+            BulkRow a = actual.get(i);
+            String at = table + " row " + i;
+            assertEquals(e.uuid, a.uuid, at);
+            assertEquals(e.voter, a.voter, at);
+            assertEquals(e.name, a.name, at);
+            assertEquals(e.likes, a.likes, at);
+            assertEquals(e.dislikes, a.dislikes, at);
+            assertEquals(e.score, a.score, 0.0, at);
+            assertEquals(e.seen, a.seen, at);
+            assertEquals(e.ipHash, a.ipHash, at);
+            assertEquals(e.reason, a.reason, at);
+            assertEquals(e.count, a.count, at);
+            assertEquals(e.time, a.time, at);
+            if (table == Table.VOTE_LOG) assertEquals(e.value != null ? e.value : 1, a.value != null ? a.value : 1, at);
+            else assertEquals(e.value, a.value, at);
+        }
+    }
+
+    private void roundTrip(DumpFormat format) {
+        ListStorage source = sample();
+        ListStorage target = new ListStorage();
+
+        for (Table table : Table.values()) {
+            File file = dir.resolve(StorageDump.fileName(table, format)).toFile();
+            long written = StorageDump.export(source, table, format, file, 3, QUIET);
+            assertEquals(source.count(table), written);
+
+            long read = StorageDump.load(target, table, format, file, 2, 5.0, QUIET);
+            assertEquals(written, read);
+            assertSameRows(table, source.rows(table), target.rows(table));
+        }
+    }
+
+    @Test
+    void csvRoundTripKeepsNullsQuotesAndLineBreaks() {
+        roundTrip(DumpFormat.CSV);
+    }
+
+    @Test
+    void ndjsonRoundTripKeepsNullsQuotesAndLineBreaks() {
+        roundTrip(DumpFormat.NDJSON);
+    }
+
+    private File gzip(String name, String content) throws IOException {
+        File file = dir.resolve(name).toFile();
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8)) {
+            out.write(content);
+        }
+        return file;
+    }
+
+    @Test
+    void missingScoreTakesTheConfiguredDefault() throws IOException {
+        UUID a = new UUID(1, 1);
+        UUID b = new UUID(2, 2);
+        File csv = gzip("players.csv.gz", "uuid,name,likes,dislikes,seen\n" + a + ",A,1,0,1\n");
+        File json = gzip("players.ndjson.gz", "{\"uuid\":\"" + b + "\",\"name\":\"B\",\"score\":null}\n");
+
+        ListStorage target = new ListStorage();
+        StorageDump.load(target, Table.PLAYERS, DumpFormat.CSV, csv, 10, 7.5, QUIET);
+        StorageDump.load(target, Table.PLAYERS, DumpFormat.NDJSON, json, 10, 0.0, QUIET);
+
+        List<BulkRow> rows = target.rows(Table.PLAYERS);
+        assertEquals(7.5, rows.get(0).score, 0.0);
+        assertEquals(0.0, rows.get(1).score, 0.0);
+        assertFalse(rows.get(1).seen);
+    }
+
+    @Test
+    void unknownColumnsAndBlankLinesAreSkipped() throws IOException {
+        UUID t = new UUID(3, 3);
+        File csv = gzip("tags.csv.gz", "extra,target,tag,count\nx," + t + ",kind,4\n\n");
+
+        ListStorage target = new ListStorage();
+        assertEquals(1, StorageDump.load(target, Table.TAGS, DumpFormat.CSV, csv, 10, 5.0, QUIET));
+        BulkRow row = target.rows(Table.TAGS).get(0);
+        assertEquals(t, row.uuid);
+        assertEquals("kind", row.reason);
+        assertEquals(4, row.count);
+    }
+}
@@ -0,0 +1,131 @@
+package ru.rizonchik.refontsocial.storage.log;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class FramesTest {
+
+    private static final Logger LOGGER = Logger.getAnonymousLogger();
+
+    @TempDir
+    Path dir;
+
+    private File file() {
+        return dir.resolve("frames.dat").toFile();
+    }
+
+    private static void append(File file, byte[]... payloads) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            for (byte[] payload : payloads) {
+                ByteBuffer buf = Frames.frame(payload);
+                out.write(buf.array(), 0, buf.limit());
+            }
+        }
+    }
+
+    private static byte[] payload(int value) {
+        return ByteBuffer.allocate(4).putInt(value).array();
+    }
+
+    private static List<Integer> readAll(File file, boolean truncateTail) throws IOException {
+        List<Integer> values = new ArrayList<>();
+        Frames.read(file, in -> values.add(in.readInt()), truncateTail, LOGGER);
+        return values;
+    }
+
+    @Test
+    void readsEveryFrameBack() throws IOException {
+        File file = file();
+        append(file, payload(1), payload(2), payload(3));
+
+        assertEquals(Arrays.asList(1, 2, 3), readAll(file, true));
+        assertEquals(3L * (4 + Frames.OVERHEAD), file.length());
+    }
+
+    @Test
+    void missingFileReadsNothing() throws IOException {
+        assertEquals(0, Frames.read(file(), in -> fail("no frames expected"), true, LOGGER));
+    }
+
+    @Test
+    void shortTailIsCutOff() throws IOException {
+        File file = file();
+        append(file, payload(1), payload(2));
+        long good = file.length();
+
+        ByteBuffer torn = Frames.frame(payload(3));
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(torn.array(), 0, torn.limit() - 5);
+        }
+
+        assertEquals(Arrays.asList(1, 2), readAll(file, true));
+        assertEquals(good, file.length());
+
+        append(file, payload(4));
+        assertEquals(Arrays.asList(1, 2, 4), readAll(file, true));
+    }
+
+    @Test
+    void checksumMismatchIsCutOff() throws IOException {
+        File file = file();
+        append(file, payload(1), payload(2));
+        long good = file.length();
+        append(file, payload(3));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(good + 4);
+            raf.writeInt(99);
+        }
+
+        assertEquals(Arrays.asList(1, 2), readAll(file, true));
+        assertEquals(good, file.length());
+    }
+
+    @Test
+    void tornTailIsKeptWhenNotAskedToTruncate() throws IOException {
+        File file = file();
+        append(file, payload(1));
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[]{0, 0, 0, 4, 1});
+        }
+        long length = file.length();
+
+        assertEquals(Arrays.asList(1), readAll(file, false));
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    void undecodableFrameIsAHardError() throws IOException {
+        File file = file();
+        append(file, payload(1), new byte[]{7}, payload(3));
+        long length = file.length();
+
+        assertThrows(IOException.class, () -> readAll(file, true));
+        assertEquals(length, file.length());
+    }
+
+    @Test
+    void handlerFailureIsAHardError() throws IOException {
+        File file = file();
+        append(file, payload(1), payload(2));
+        long length = file.length();
+
+        assertThrows(IOException.class, () -> Frames.read(file, in -> {
+            if (in.readInt() == 2) throw new IOException("unknown record type 2");
+        }, true, LOGGER));
+        assertEquals(length, file.length());
+    }
+}
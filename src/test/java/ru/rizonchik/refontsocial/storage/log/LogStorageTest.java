@@ -0,0 +1,138 @@
+package ru.rizonchik.refontsocial.storage.log;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.rizonchik.refontsocial.TestPlugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a "crash" is a second instance opened on the same directory while the first one is left unclosed
+final class LogStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private TestPlugin plugin;
+    private LogStorage storage;
+
+    private final UUID voter = UUID.randomUUID();
+    private final UUID target = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        plugin = new TestPlugin(dir.toFile());
+        storage = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) storage.close();
+    }
+
+    private LogStorage open() {
+        LogStorage s = new LogStorage(plugin);
+        s.init();
+        return s;
+    }
+
+    private File dataDir() {
+        return new File(dir.toFile(), "data-log");
+    }
+
+    private File journal(long gen) {
+        return new File(dataDir(), "journal-" + gen + ".log");
+    }
+
+    @Test
+    void replaysTheJournalAfterRestart() {
+        storage.markSeen(target, "Target", "ip-t");
+        storage.applyVote(voter, target, 1, 10L, "Target", "help");
+        storage.markSeen(target, "Renamed", null);
+        assertFalse(new File(dataDir(), "snapshot.bin").exists());
+
+        storage = open();
+
+        assertEquals("Renamed", storage.getLastKnownName(target));
+        assertEquals("ip-t", storage.getIpHash(target));
+        assertEquals(Integer.valueOf(1), storage.getVoteState(voter, target).value);
+        assertEquals(1, storage.getOrCreate(target, null).getLikes());
+        assertEquals(Integer.valueOf(1), storage.getTopTags(target, 5).get("help"));
+        assertEquals(1, storage.getRecentVotes(target, 10, false).size());
+    }
+
+    @Test
+    void tornTailOfTheLastGenerationIsDropped() throws IOException {
+        storage.applyVote(voter, target, 1, 10L, "Target", null);
+        storage.compact();
+        storage.applyVote(voter, target, 0, 20L, "Target", null);
+
+        File last = journal(1);
+        long intact = last.length();
+        try (FileOutputStream out = new FileOutputStream(last, true)) {
+            // a frame header promising more bytes than made it to disk
+            out.write(new byte[]{0, 0, 1, 0, 7, 7, 7});
+        }
+
+        storage = open();
+
+        assertEquals(intact, last.length());
+        assertEquals(Integer.valueOf(0), storage.getVoteState(voter, target).value);
+
+        // the journal keeps going from the truncated end
+        storage.applyVote(voter, target, 1, 30L, "Target", null);
+        storage = open();
+        assertEquals(Integer.valueOf(1), storage.getVoteState(voter, target).value);
+        assertEquals(30L, storage.getVoteState(voter, target).lastTime.longValue());
+    }
+
+    @Test
+    void crashBetweenNewGenerationAndSnapshotLosesNothing() throws IOException {
+        storage.markSeen(target, "Target", null);
+        storage.applyVote(voter, target, 1, 10L, "Target", null);
+        storage.compact();
+        storage.applyVote(UUID.randomUUID(), target, 0, 20L, "Target", null);
+
+        // state on disk before the next compact: snapshot for gen 1 and journal-1
+        Path snapshot = new File(dataDir(), "snapshot.bin").toPath();
+        Path saved = dir.resolve("snapshot.saved");
+        Path savedJournal = dir.resolve("journal-1.saved");
+        Files.copy(snapshot, saved);
+        Files.copy(journal(1).toPath(), savedJournal);
+
+        storage.compact();
+        storage.applyVote(voter, target, 0, 30L, "Target", null);
+
+        // journal-2 is open and written to, but the snapshot that replaces journal-1 never landed
+        Files.copy(saved, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(savedJournal, journal(1).toPath());
+
+        storage = open();
+
+        assertEquals("Target", storage.getLastKnownName(target));
+        assertEquals(Integer.valueOf(0), storage.getVoteState(voter, target).value);
+        assertEquals(0, storage.getOrCreate(target, null).getLikes());
+        assertEquals(2, storage.getOrCreate(target, null).getDislikes());
+        assertEquals(3, storage.getRecentVotes(target, 10, false).size());
+    }
+
+    @Test
+    void compactAfterCloseDoesNothing() {
+        storage.applyVote(voter, target, 1, 10L, "Target", null);
+        storage.close();
+
+        storage.compact();
+
+        storage = open();
+        assertEquals(Integer.valueOf(1), storage.getVoteState(voter, target).value);
+    }
+}
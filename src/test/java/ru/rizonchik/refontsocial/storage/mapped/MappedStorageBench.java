@@ -0,0 +1,96 @@
+package ru.rizonchik.refontsocial.storage.mapped;
+
+import ru.rizonchik.refontsocial.TestPlugin;
+import ru.rizonchik.refontsocial.storage.Storage;
+import ru.rizonchik.refontsocial.storage.sql.SqliteStorage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// MAPPED against SQLITE on the same workload: joins, votes, profile reads and top pages.
+// Not a test; run it by hand from the test classpath:
+//   java -cp target/test-classes:target/classes:<deps> ru.rizonchik.refontsocial.storage.mapped.MappedStorageBench [players] [ops]
+public final class MappedStorageBench {
+
+    private MappedStorageBench() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+
+        UUID[] ids = new UUID[players];
+        for (int i = 0; i < players; i++) ids[i] = UUID.randomUUID();
+
+        // the first round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            boolean report = round == 1;
+            run("MAPPED", MappedStorage::new, ids, ops, report);
+            run("SQLITE", SqliteStorage::new, ids, ops, report);
+        }
+    }
+
+    private static void run(String label, Function<TestPlugin, Storage> factory, UUID[] ids, int ops, boolean report)
+            throws IOException {
+        File dir = Files.createTempDirectory("refontsocial-bench").toFile();
+        TestPlugin plugin = new TestPlugin(dir);
+        plugin.getConfig().set("rating.algorithm", "SIMPLE_RATIO");
+        plugin.getConfig().set("rating.scale.min", 0.0);
+        plugin.getConfig().set("rating.scale.max", 10.0);
+
+        Storage storage = factory.apply(plugin);
+        storage.init();
+        try {
+            Random random = new Random(42);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ids.length; i++) storage.markSeen(ids[i], "Player" + i, "ip-" + (i % 97));
+            long joins = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ops; i++) {
+                UUID voter = ids[random.nextInt(ids.length)];
+                UUID target = ids[random.nextInt(ids.length)];
+                storage.applyVote(voter, target, random.nextInt(2), i, null, random.nextInt(4) == 0 ? "help" : null);
+            }
+            long votes = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ops; i++) storage.loadProfile(ids[random.nextInt(ids.length)], 5, 10, true);
+            long profiles = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int pages = Math.max(1, ops / 100);
+            for (int i = 0; i < pages; i++) storage.getTop(45, (i % 10) * 45);
+            long tops = System.nanoTime() - start;
+
+            if (report) {
+                System.out.println(label
+                        + ": markSeen " + perOp(joins, ids.length)
+                        + ", applyVote " + perOp(votes, ops)
+                        + ", loadProfile " + perOp(profiles, ops)
+                        + ", getTop " + perOp(tops, pages));
+            }
+        } finally {
+            storage.close();
+            delete(dir);
+        }
+    }
+
+    private static String perOp(long nanos, int count) {
+        return String.format("%.1f us/op", nanos / 1000.0 / count);
+    }
+
+    private static void delete(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
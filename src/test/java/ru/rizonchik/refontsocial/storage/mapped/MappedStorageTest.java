@@ -0,0 +1,149 @@
+package ru.rizonchik.refontsocial.storage.mapped;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.rizonchik.refontsocial.TestPlugin;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class MappedStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private TestPlugin plugin;
+    private MappedStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        plugin = new TestPlugin(dir.toFile());
+        storage = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) storage.close();
+    }
+
+    private MappedStorage open() {
+        MappedStorage s = new MappedStorage(plugin);
+        s.init();
+        return s;
+    }
+
+    private File dataDir() {
+        return new File(dir.toFile(), "data-mapped");
+    }
+
+    private static String name(String prefix, int i) {
+        StringBuilder sb = new StringBuilder(prefix).append(i);
+        while (sb.length() < 200) sb.append('x');
+        return sb.toString();
+    }
+
+    @Test
+    void renamesCompactStringsOnReopen() {
+        UUID renamed = UUID.randomUUID();
+        UUID stable = UUID.randomUUID();
+        storage.markSeen(stable, "Stable", "ip-stable");
+        for (int i = 0; i < 1000; i++) storage.markSeen(renamed, name("n", i), "ip-" + (i % 3));
+
+        long before = new File(dataDir(), "strings.dat").length();
+        assertTrue(before > 150_000);
+
+        storage.close();
+        storage = open();
+
+        assertFalse(new File(dataDir(), "strings.dat").exists());
+        File compacted = new File(dataDir(), "strings.1.dat");
+        assertTrue(compacted.length() < 1024, "compacted to " + compacted.length());
+
+        assertEquals(name("n", 999), storage.getLastKnownName(renamed));
+        assertEquals("Stable", storage.getLastKnownName(stable));
+        assertEquals("ip-0", storage.getIpHash(renamed));
+        assertEquals("ip-stable", storage.getIpHash(stable));
+
+        // new strings land in the new generation and survive another reopen
+        storage.markSeen(stable, "Renamed", null);
+        storage.close();
+        storage = open();
+        assertEquals("Renamed", storage.getLastKnownName(stable));
+        assertEquals(name("n", 999), storage.getLastKnownName(renamed));
+    }
+
+    @Test
+    void smallStringsFileIsLeftAlone() {
+        UUID id = UUID.randomUUID();
+        storage.markSeen(id, "A", "ip");
+        storage.markSeen(id, "B", "ip");
+        storage.close();
+        storage = open();
+
+        assertTrue(new File(dataDir(), "strings.dat").exists());
+        assertEquals("B", storage.getLastKnownName(id));
+    }
+
+    @Test
+    void cutNeverSplitsACharacter() {
+        byte[] ascii = "abcdef".getBytes(StandardCharsets.UTF_8);
+        assertEquals(4, MappedStorage.utf8Cut(ascii, 4));
+        assertEquals(6, MappedStorage.utf8Cut(ascii, 10));
+
+        // "ж" is two bytes, "€" three
+        byte[] mixed = "aж€".getBytes(StandardCharsets.UTF_8);
+        assertEquals(1, MappedStorage.utf8Cut(mixed, 2));
+        assertEquals(3, MappedStorage.utf8Cut(mixed, 3));
+        assertEquals(3, MappedStorage.utf8Cut(mixed, 5));
+        assertEquals(6, MappedStorage.utf8Cut(mixed, 6));
+
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 40_000) sb.append('ж');
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        int cut = MappedStorage.utf8Cut(bytes, 0xFFFF);
+        assertEquals(0xFFFF - 1, cut);
+        assertEquals(cut / 2, new String(bytes, 0, cut, StandardCharsets.UTF_8).length());
+    }
+
+    @Test
+    void compactRewritesVotesAndHistoryWhileOpen() {
+        UUID voter = UUID.randomUUID();
+        UUID target = UUID.randomUUID();
+        for (int i = 0; i < 3000; i++) storage.applyVote(voter, target, i % 2, 1000L + i, "T", null);
+
+        File votesFile = new File(dataDir(), "votes.dat");
+        File historyFile = new File(dataDir(), "history.dat");
+        long votesBefore = votesFile.length();
+        long historyBefore = historyFile.length();
+
+        storage.compact();
+
+        assertTrue(votesFile.length() < votesBefore / 10, "votes.dat " + votesBefore + " -> " + votesFile.length());
+        assertTrue(historyFile.length() < historyBefore, "history.dat " + historyBefore + " -> " + historyFile.length());
+        assertFalse(new File(dataDir(), "votes.dat.tmp").exists());
+
+        // appends after the rewrite go to the new files
+        storage.applyVote(voter, target, 0, 5000L, "T", null);
+        int kept = storage.getRecentVotes(target, 10_000, false).size();
+        storage.close();
+        storage = open();
+
+        assertEquals(Integer.valueOf(0), storage.getVoteState(voter, target).value);
+        assertEquals(5000L, storage.getVoteState(voter, target).lastTime.longValue());
+        assertEquals(kept, storage.getRecentVotes(target, 10_000, false).size());
+    }
+
+    @Test
+    void compactAfterCloseDoesNothing() {
+        storage.applyVote(UUID.randomUUID(), UUID.randomUUID(), 1, 1L, "T", null);
+        storage.close();
+        storage.compact();
+        storage = null;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.rizonchik.refontsocial.storage.mapped;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class UuidSlotIndexTest {
+
+    @Test
+    void growsPastTheExpectedSizeAndKeepsEveryEntry() {
+        UuidSlotIndex index = new UuidSlotIndex(1);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            index.put(id, i);
+        }
+
+        assertEquals(10_000, index.size());
+        for (int i = 0; i < ids.size(); i++) assertEquals(i, index.get(ids.get(i)));
+        assertEquals(-1, index.get(UUID.randomUUID()));
+    }
+
+    @Test
+    void putOnAKnownKeyReplacesTheSlot() {
+        UuidSlotIndex index = new UuidSlotIndex(4);
+        UUID id = UUID.randomUUID();
+        index.put(id, 1);
+        index.put(id, 7);
+
+        assertEquals(1, index.size());
+        assertEquals(7, index.get(id));
+    }
+
+    @Test
+    void collidingKeysProbeToTheirOwnSlots() {
+        // equal msb ^ lsb hash to the same bucket
+        UuidSlotIndex index = new UuidSlotIndex(1);
+        for (int i = 0; i < 100; i++) index.put(new UUID(i, i), i);
+
+        assertEquals(100, index.size());
+        for (int i = 0; i < 100; i++) assertEquals(i, index.get(new UUID(i, i)));
+        assertEquals(-1, index.get(new UUID(100, 100)));
+    }
+}
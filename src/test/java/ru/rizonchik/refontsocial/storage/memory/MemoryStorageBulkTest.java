@@ -0,0 +1,131 @@
+package ru.rizonchik.refontsocial.storage.memory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.rizonchik.refontsocial.TestPlugin;
+import ru.rizonchik.refontsocial.storage.BulkStorage.Table;
+import ru.rizonchik.refontsocial.storage.model.BulkRow;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class MemoryStorageBulkTest {
+
+    @TempDir
+    Path dir;
+
+    private MemoryStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new MemoryStorage(new TestPlugin(dir.toFile())) {
+            @Override
+            public void init() {
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            protected void playerChanged(PlayerData player) {
+            }
+
+            @Override
+            protected void voteChanged(UUID voter, UUID target, VoteData vote) {
+            }
+
+            @Override
+            protected void tagChanged(UUID target, String tag, int count) {
+            }
+
+            @Override
+            protected void logAppended(UUID target, LogData entry, int keep) {
+            }
+
+            @Override
+            protected void committed() {
+            }
+        };
+    }
+
+    private static BulkRow log(UUID target, UUID voter, long time) {
+        return BulkRow.log(null, target, voter, null, 1, null, time);
+    }
+
+    private static BulkRow player(UUID uuid) {
+        return BulkRow.player(null, uuid, "p", 0, 0, 5.0, true, null);
+    }
+
+    private List<BulkRow> readAll(Table table, int chunk, Runnable betweenChunks) {
+        List<BulkRow> all = new ArrayList<>();
+        String cursor = null;
+        while (true) {
+            List<BulkRow> rows = storage.read(table, cursor, chunk);
+            all.addAll(rows);
+            if (rows.size() < chunk) return all;
+            cursor = rows.get(rows.size() - 1).cursor;
+            betweenChunks.run();
+        }
+    }
+
+    @Test
+    void playersComeOutOnceInUuidOrder() {
+        for (int i = 0; i < 50; i++) storage.write(Table.PLAYERS, Collections.singletonList(player(UUID.randomUUID())));
+
+        List<BulkRow> rows = readAll(Table.PLAYERS, 7, () -> { });
+        assertEquals(50, rows.size());
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue(rows.get(i - 1).uuid.toString().compareTo(rows.get(i).uuid.toString()) < 0);
+        }
+    }
+
+    @Test
+    void voteLogCursorSurvivesAppendsMidRun() {
+        UUID target = UUID.randomUUID();
+        List<BulkRow> initial = new ArrayList<>();
+        for (int i = 0; i < 10; i++) initial.add(log(target, UUID.randomUUID(), 1000L + i));
+        storage.write(Table.VOTE_LOG, initial);
+
+        long[] next = {5000L};
+        List<BulkRow> rows = readAll(Table.VOTE_LOG, 3, () -> storage.write(Table.VOTE_LOG,
+                Collections.singletonList(log(target, UUID.randomUUID(), next[0]++))));
+
+        Set<String> seen = new HashSet<>();
+        for (BulkRow r : rows) assertTrue(seen.add(r.cursor), "duplicate " + r.cursor);
+        for (BulkRow r : initial) {
+            assertTrue(seen.contains(target + "/" + r.time + "/" + r.voter), "missed " + r.time);
+        }
+        for (int i = 1; i < rows.size(); i++) assertTrue(rows.get(i - 1).time <= rows.get(i).time);
+    }
+
+    @Test
+    void voteLogTiesOrderByVoter() {
+        UUID target = UUID.randomUUID();
+        List<BulkRow> same = new ArrayList<>();
+        for (int i = 0; i < 6; i++) same.add(log(target, UUID.randomUUID(), 1000L));
+        same.add(log(target, null, 1000L));
+        storage.write(Table.VOTE_LOG, same);
+
+        List<BulkRow> rows = readAll(Table.VOTE_LOG, 2, () -> { });
+        assertEquals(7, rows.size());
+        assertNull(rows.get(0).voter);
+        Set<UUID> voters = new HashSet<>();
+        for (BulkRow r : rows) voters.add(r.voter);
+        assertEquals(7, voters.size());
+    }
+
+    @Test
+    void keysAddedMidRunWaitForTheNextRun() {
+        for (int i = 0; i < 10; i++) storage.write(Table.PLAYERS, Collections.singletonList(player(UUID.randomUUID())));
+
+        List<BulkRow> rows = readAll(Table.PLAYERS, 4, () ->
+                storage.write(Table.PLAYERS, Collections.singletonList(player(UUID.randomUUID()))));
+        assertEquals(10, rows.size());
+
+        assertEquals(storage.count(Table.PLAYERS), readAll(Table.PLAYERS, 4, () -> { }).size());
+    }
+}
@@ -0,0 +1,96 @@
+package ru.rizonchik.refontsocial.storage.memory;
+
+import org.junit.jupiter.api.Test;
+import ru.rizonchik.refontsocial.storage.memory.MemoryStorage.LogData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class VoteLogRingTest {
+
+    private static LogData entry(long time) {
+        return new LogData(time, 1, null, null, null);
+    }
+
+    private static List<Long> times(VoteLogRing ring) {
+        List<Long> out = new ArrayList<>();
+        for (LogData d : ring) out.add(d.time);
+        return out;
+    }
+
+    @Test
+    void iteratesNewestFirstBeforeFilling() {
+        VoteLogRing ring = new VoteLogRing(4);
+        ring.add(entry(1), 4);
+        ring.add(entry(2), 4);
+
+        assertEquals(2, ring.size());
+        assertEquals(Arrays.asList(2L, 1L), times(ring));
+        assertEquals(2L, ring.get(0).time);
+    }
+
+    @Test
+    void wrapOverwritesTheOldest() {
+        VoteLogRing ring = new VoteLogRing(3);
+        for (long t = 1; t <= 7; t++) ring.add(entry(t), 3);
+
+        assertEquals(3, ring.size());
+        assertEquals(Arrays.asList(7L, 6L, 5L), times(ring));
+        assertThrows(IndexOutOfBoundsException.class, () -> ring.get(3));
+    }
+
+    @Test
+    void shrinkKeepsTheNewest() {
+        VoteLogRing ring = new VoteLogRing(5);
+        for (long t = 1; t <= 7; t++) ring.add(entry(t), 5);
+
+        ring.add(entry(8), 2);
+
+        assertEquals(2, ring.size());
+        assertEquals(Arrays.asList(8L, 7L), times(ring));
+
+        ring.add(entry(9), 2);
+        assertEquals(Arrays.asList(9L, 8L), times(ring));
+    }
+
+    @Test
+    void growKeepsEverythingAndWrapsAtTheNewSize() {
+        VoteLogRing ring = new VoteLogRing(3);
+        for (long t = 1; t <= 5; t++) ring.add(entry(t), 3);
+
+        ring.add(entry(6), 5);
+        assertEquals(Arrays.asList(6L, 5L, 4L, 3L), times(ring));
+
+        ring.add(entry(7), 5);
+        ring.add(entry(8), 5);
+        assertEquals(5, ring.size());
+        assertEquals(Arrays.asList(8L, 7L, 6L, 5L, 4L), times(ring));
+    }
+
+    @Test
+    void capacityBelowOneKeepsOne() {
+        VoteLogRing ring = new VoteLogRing(0);
+        ring.add(entry(1), 0);
+        ring.add(entry(2), -3);
+
+        assertEquals(1, ring.size());
+        assertEquals(Arrays.asList(2L), times(ring));
+    }
+
+    @Test
+    void iteratorStopsAtSize() {
+        VoteLogRing ring = new VoteLogRing(2);
+        ring.add(entry(1), 2);
+
+        Iterator<LogData> it = ring.iterator();
+        assertTrue(it.hasNext());
+        it.next();
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+}
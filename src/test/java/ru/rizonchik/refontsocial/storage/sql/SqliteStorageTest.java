@@ -0,0 +1,244 @@
+package ru.rizonchik.refontsocial.storage.sql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.rizonchik.refontsocial.TestPlugin;
+import ru.rizonchik.refontsocial.storage.BulkStorage.Table;
+import ru.rizonchik.refontsocial.storage.Throttle;
+import ru.rizonchik.refontsocial.storage.model.BulkRow;
+import ru.rizonchik.refontsocial.storage.model.PlayerRep;
+import ru.rizonchik.refontsocial.util.NumberUtil;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class SqliteStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private TestPlugin plugin;
+    private SqliteStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        plugin = new TestPlugin(dir.toFile());
+        plugin.getConfig().set("rating.algorithm", "SIMPLE_RATIO");
+        plugin.getConfig().set("rating.scale.min", 0.0);
+        plugin.getConfig().set("rating.scale.max", 10.0);
+        storage = new SqliteStorage(plugin);
+        storage.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    void rescoreLeavesOutExcludedVoters() {
+        UUID target = UUID.randomUUID();
+        UUID ringA = UUID.randomUUID();
+        UUID ringB = UUID.randomUUID();
+        UUID honest = UUID.randomUUID();
+
+        storage.applyVote(ringA, target, 1, 1L, "T", null);
+        storage.applyVote(ringB, target, 1, 2L, "T", null);
+        storage.applyVote(honest, target, 0, 3L, "T", null);
+        assertEquals(NumberUtil.computeScore(plugin, 2, 1), storage.getOrCreate(target, null).getScore(), 1e-9);
+
+        storage.rescore(target, Arrays.asList(ringA, ringB, UUID.randomUUID()));
+        PlayerRep rep = storage.getOrCreate(target, null);
+        assertEquals(NumberUtil.computeScore(plugin, 0, 1), rep.getScore(), 1e-9);
+        assertEquals(2, rep.getLikes(), "counters are not touched");
+
+        storage.rescore(target, Collections.emptyList());
+        assertEquals(NumberUtil.computeScore(plugin, 2, 1), storage.getOrCreate(target, null).getScore(), 1e-9);
+    }
+
+    private long query(String sql, Object... args) {
+        try (Connection c = storage.ds.getConnection();
+             PreparedStatement ps = c.prepareStatement(sql)) {
+            for (int i = 0; i < args.length; i++) ps.setObject(i + 1, args[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1L;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void logRows(UUID target, long... times) {
+        List<BulkRow> rows = new ArrayList<>();
+        for (long t : times) rows.add(BulkRow.log(null, target, UUID.randomUUID(), "v", 1, null, t));
+        storage.write(Table.VOTE_LOG, rows);
+    }
+
+    @Test
+    void pruneKeepsTheNewestAndRecentRowsAndArchivesTheRest() {
+        UUID busy = UUID.randomUUID();
+        UUID quiet = UUID.randomUUID();
+        logRows(busy, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        logRows(quiet, 1, 2);
+
+        // older than 8 and outside the newest 3: times 1..7 of busy; quiet is within its newest 3
+        long removed = storage.pruneVoteLog(3, 8L, true, new Throttle(2, 0L));
+
+        assertEquals(7, removed);
+        assertEquals(3, query("SELECT COUNT(*) FROM rs_vote_log WHERE target=?", busy.toString()));
+        assertEquals(8, query("SELECT MIN(time) FROM rs_vote_log WHERE target=?", busy.toString()));
+        assertEquals(2, query("SELECT COUNT(*) FROM rs_vote_log WHERE target=?", quiet.toString()));
+        assertEquals(7, query("SELECT COUNT(*) FROM rs_vote_log_archive WHERE target=?", busy.toString()));
+        assertEquals(7, query("SELECT MAX(time) FROM rs_vote_log_archive"));
+    }
+
+    @Test
+    void pruneWithoutArchiveOnlyDeletes() {
+        UUID target = UUID.randomUUID();
+        logRows(target, 1, 2, 3, 4);
+
+        assertEquals(3, storage.pruneVoteLog(1, 100L, false, new Throttle(500, 0L)));
+        assertEquals(1, query("SELECT COUNT(*) FROM rs_vote_log"));
+        assertEquals(4, query("SELECT time FROM rs_vote_log"));
+        assertEquals(0, query("SELECT COUNT(*) FROM rs_vote_log_archive"));
+    }
+
+    @Test
+    void cancelledPruneStopsBetweenChunks() {
+        UUID target = UUID.randomUUID();
+        logRows(target, 1, 2, 3, 4, 5, 6);
+
+        Throttle throttle = new Throttle(2, 0L);
+        throttle.cancel();
+        assertEquals(0, storage.pruneVoteLog(0, 100L, false, throttle));
+        assertEquals(6, query("SELECT COUNT(*) FROM rs_vote_log"));
+    }
+
+    @Test
+    void emptyTagsArePurged() {
+        UUID target = UUID.randomUUID();
+        storage.write(Table.TAGS, Arrays.asList(
+                BulkRow.tag(null, target, "a", 0),
+                BulkRow.tag(null, target, "b", 2),
+                BulkRow.tag(null, target, "c", 0)
+        ));
+
+        assertEquals(2, storage.purgeEmptyTags(new Throttle(1, 0L)));
+        assertEquals(1, query("SELECT COUNT(*) FROM rs_tags"));
+    }
+
+    private void age(UUID uuid) {
+        try (Connection c = storage.ds.getConnection();
+             PreparedStatement ps = c.prepareStatement("UPDATE rs_players SET updated=1 WHERE uuid=?")) {
+            ps.setString(1, uuid.toString());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void lookupsDoNotKeepPhantomsAlive() {
+        UUID phantom = UUID.randomUUID();
+        UUID seen = UUID.randomUUID();
+        UUID voted = UUID.randomUUID();
+
+        storage.getOrCreate(phantom, "Ghost");
+        storage.markSeen(seen, "Here", null);
+        storage.applyVote(seen, voted, 1, 5L, "Liked", null);
+        for (UUID uuid : Arrays.asList(phantom, seen, voted)) age(uuid);
+
+        // placeholder and command lookups hit the row again and again
+        for (int i = 0; i < 3; i++) storage.getOrCreate(phantom, i == 0 ? "Ghost2" : null);
+        assertEquals(1, query("SELECT updated FROM rs_players WHERE uuid=?", phantom.toString()));
+        assertEquals("Ghost2", storage.getLastKnownName(phantom));
+
+        long removed = storage.purgePhantomPlayers(System.currentTimeMillis(), new Throttle(500, 0L));
+
+        assertEquals(1, removed);
+        assertEquals(0, query("SELECT COUNT(*) FROM rs_players WHERE uuid=?", phantom.toString()));
+        assertEquals(2, query("SELECT COUNT(*) FROM rs_players"));
+    }
+
+    @Test
+    void theVotePathKeepsItsRowsFromTheSweeper() {
+        UUID target = UUID.randomUUID();
+        storage.getOrCreate(target, "T");
+        age(target);
+
+        storage.applyVote(UUID.randomUUID(), target, 1, 5L, "T", null);
+        assertTrue(query("SELECT updated FROM rs_players WHERE uuid=?", target.toString()) > 1);
+    }
+
+    @Test
+    void recomputeMatchesTheJavaFormulaForEveryPlayer() {
+        UUID liked = UUID.randomUUID();
+        UUID mixed = UUID.randomUUID();
+        UUID fresh = UUID.randomUUID();
+
+        for (int i = 0; i < 3; i++) storage.applyVote(UUID.randomUUID(), liked, 1, i, "L", null);
+        storage.applyVote(UUID.randomUUID(), mixed, 1, 10L, "M", null);
+        storage.applyVote(UUID.randomUUID(), mixed, 0, 11L, "M", null);
+        storage.applyVote(UUID.randomUUID(), mixed, 0, 12L, "M", null);
+        storage.getOrCreate(fresh, "F");
+        assertNull(storage.getScoreFingerprint());
+
+        plugin.getConfig().set("rating.algorithm", "BAYESIAN");
+        plugin.getConfig().set("rating.bayesian.priorVotes", 4);
+        plugin.getConfig().set("rating.scale.max", 5.0);
+
+        long updated = storage.recomputeScores("fp-1");
+
+        assertTrue(updated >= 3);
+        assertEquals("fp-1", storage.getScoreFingerprint());
+        assertEquals(NumberUtil.computeScore(plugin, 3, 0), storage.getOrCreate(liked, null).getScore(), 1e-9);
+        assertEquals(NumberUtil.computeScore(plugin, 1, 2), storage.getOrCreate(mixed, null).getScore(), 1e-9);
+        assertEquals(NumberUtil.computeScore(plugin, 0, 0), storage.getOrCreate(fresh, null).getScore(), 1e-9);
+
+        plugin.getConfig().set("rating.algorithm", "SIMPLE_RATIO");
+        storage.recomputeScores("fp-2");
+        assertEquals("fp-2", storage.getScoreFingerprint());
+        assertEquals(NumberUtil.computeScore(plugin, 1, 2), storage.getOrCreate(mixed, null).getScore(), 1e-9);
+    }
+
+    @Test
+    void steppedBackupLetsWritesThroughAndStillCompletes() throws Exception {
+        for (int i = 0; i < 500; i++) storage.applyVote(UUID.randomUUID(), UUID.randomUUID(), 1, i, "P" + i, null);
+        plugin.getConfig().set("backup.sqlite.pagesPerStep", 1);
+        plugin.getConfig().set("backup.sqlite.stepPauseMs", 2);
+        plugin.getConfig().set("backup.sqlite.maxRestarts", 2);
+
+        File copy = dir.resolve("copy.db").toFile();
+        Thread backup = new Thread(() -> storage.backupTo(copy));
+        backup.start();
+        UUID late = UUID.randomUUID();
+        for (int i = 0; i < 20 && backup.isAlive(); i++) {
+            storage.applyVote(UUID.randomUUID(), late, 1, 1000L + i, "Late", null);
+        }
+        backup.join(60_000L);
+
+        assertFalse(backup.isAlive());
+        storage.verifyBackup(copy);
+        try (Connection c = DriverManager.getConnection("jdbc:sqlite:" + copy.getAbsolutePath());
+             Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM rs_vote_log")) {
+            assertTrue(rs.next());
+            assertTrue(rs.getLong(1) >= 500);
+        }
+    }
+}
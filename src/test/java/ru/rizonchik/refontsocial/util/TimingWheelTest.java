@@ -0,0 +1,105 @@
+package ru.rizonchik.refontsocial.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+final class TimingWheelTest {
+
+    private static final long TICK = 1000L;
+
+    @Test
+    void expiresAtDeadlineTick() {
+        TimingWheel wheel = new TimingWheel(TICK, 16, 0L);
+        List<Integer> expired = new ArrayList<>();
+
+        wheel.schedule(1, 5000L);
+        wheel.advance(4999L, expired::add);
+        assertTrue(expired.isEmpty());
+        assertTrue(wheel.isScheduled(1));
+
+        wheel.advance(5000L, expired::add);
+        assertEquals(1, expired.size());
+        assertEquals(1, (int) expired.get(0));
+        assertFalse(wheel.isScheduled(1));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() {
+        TimingWheel wheel = new TimingWheel(TICK, 16, 10_000L);
+        List<Integer> expired = new ArrayList<>();
+
+        wheel.schedule(3, 2_000L);
+        wheel.advance(10_999L, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(11_000L, expired::add);
+        assertEquals(1, expired.size());
+    }
+
+    @Test
+    void cascadesFromUpperLevelsWithoutFiringEarly() {
+        TimingWheel wheel = new TimingWheel(TICK, 16, 0L);
+        Random random = new Random(42);
+        Map<Integer, Long> deadlines = new HashMap<>();
+
+        // up to level 2 (64^3 ticks), including exact slot boundaries
+        long[] fixed = {64, 65, 4095, 4096, 4097, 64 * 64 * 3 + 17};
+        for (int i = 0; i < 600; i++) {
+            long ticks = i < fixed.length ? fixed[i] : 1 + random.nextInt(200_000);
+            deadlines.put(i, ticks * TICK);
+            wheel.schedule(i, ticks * TICK);
+        }
+
+        Map<Integer, Long> firedAt = new HashMap<>();
+        long now = 0L;
+        while (wheel.size() > 0) {
+            now += (1 + random.nextInt(50)) * TICK;
+            long at = now;
+            wheel.advance(now, id -> firedAt.put(id, at));
+        }
+
+        assertEquals(deadlines.size(), firedAt.size());
+        for (Map.Entry<Integer, Long> e : deadlines.entrySet()) {
+            long fired = firedAt.get(e.getKey());
+            assertTrue(fired >= e.getValue(), "fired early: " + e.getKey());
+            assertTrue(fired - e.getValue() < 50 * TICK, "fired late: " + e.getKey());
+        }
+    }
+
+    @Test
+    void cancelAndRescheduleMoveEntries() {
+        TimingWheel wheel = new TimingWheel(TICK, 16, 0L);
+        List<Integer> expired = new ArrayList<>();
+
+        wheel.schedule(1, 3000L);
+        wheel.schedule(2, 3000L);
+        wheel.cancel(1);
+        wheel.schedule(2, 9000L);
+        assertEquals(1, wheel.size());
+
+        wheel.advance(8000L, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(9000L, expired::add);
+        assertEquals(1, expired.size());
+        assertEquals(2, (int) expired.get(0));
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        TimingWheel wheel = new TimingWheel(TICK, 16, 0L);
+        for (int id = 0; id < 1000; id++) wheel.schedule(id, (id % 7 + 1) * TICK);
+        assertEquals(1000, wheel.size());
+
+        int[] count = new int[1];
+        wheel.advance(7 * TICK, id -> count[0]++);
+        assertEquals(1000, count[0]);
+        assertEquals(0, wheel.size());
+    }
+}